@@ -22,6 +22,13 @@ public interface BaseFileStorageUI {
      */
     public FileObject getSelectedFile();
 
+    /**
+     * Returns all files or folders currently selected in the file table.
+     *
+     * @return the selected FileObjects, empty if no selection is made.
+     */
+    public List<FileObject> getSelectedFiles();
+
     /**
      * Refreshes and displays the given list of files/folders in the file table component.
      * Typically used when navigating a folder or after sync/upload operations.
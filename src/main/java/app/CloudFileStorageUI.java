@@ -4,10 +4,11 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JFrame;
@@ -17,7 +18,6 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.JTree;
-import javax.swing.filechooser.FileSystemView;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
@@ -32,11 +32,19 @@ import listeners.FolderTreeSelectionHandler;
 import listeners.SqlFileEventListener;
 import storage.AwsLoginDialog;
 import storage.AwsS3Credential;
+import storage.CachingFileStoreOperations;
+import storage.DownloadCache;
 import storage.FileObject;
 import storage.FileStoreException;
 import storage.S3CloudStoreOperations;
+import storage.TransferOrder;
+import storage.TransferQueue;
 import storage.db.FileMetadataRepository;
+import storage.db.SQLiteDownloadCacheRepository;
 import storage.db.SQLiteFileMetadataRepository;
+import storage.db.SQLitePartManifestRepository;
+import storage.db.SQLiteTransferJobRepository;
+import storage.db.SQLiteUploadSessionRepository;
 import storage.db.SqlConnectionManager;
 import util.AwsS3Util;
 import util.FileUtil;
@@ -66,11 +74,15 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
     // Cloud storage operations handler (AWS S3 implementation)
     private S3CloudStoreOperations cloudStoreOperations;
 
+    // Bucket listing cache in front of the cloud store operations
+    private CachingFileStoreOperations cachingFileStoreOperations;
+
 	private AwsS3Credential awsS3Credential;
 
     private Connection connection;
     private FileMetadataRepository fileMetadataRepository;
     private FileSyncHandle fileSyncHandle;
+    private TransferQueue transferQueue;
 
     private boolean isWindowOpened = false;
     /**
@@ -98,9 +110,16 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
 		}
         initFileMetaRepository();
         cloudStoreOperations = new S3CloudStoreOperations(awsS3Credential);
-        fileSyncHandle  = new S3LocalFileSyncHandle(fileMetadataRepository, cloudStoreOperations);
+        cloudStoreOperations.setFileMetadataRepository(fileMetadataRepository);
+        initUploadSessions();
+        initDownloadCache();
+        cachingFileStoreOperations = new CachingFileStoreOperations(cloudStoreOperations,
+                cloudStoreOperations.getTransferConfig().getListingCacheTtl());
+        fileSyncHandle  = new S3LocalFileSyncHandle(fileMetadataRepository, cachingFileStoreOperations);
         FileEventListener fileEventListener = new SqlFileEventListener(fileMetadataRepository);
-        fileManager = new S3CloudManagerImpl(this, cloudStoreOperations,fileEventListener,fileSyncHandle);
+        S3CloudManagerImpl s3CloudManager = new S3CloudManagerImpl(this, cachingFileStoreOperations,fileEventListener,fileSyncHandle);
+        initTransferQueue(s3CloudManager);
+        fileManager = s3CloudManager;
 
         FileMenuBar menuBar = new FileMenuBar(this, fileManager);
         setJMenuBar(menuBar.getMenuBar());
@@ -120,6 +139,13 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
                   isWindowOpened = true;
                }
 
+               @Override
+               public void windowClosing(WindowEvent e) {
+                  if(transferQueue != null){
+                     transferQueue.close();
+                  }
+               }
+
                @Override
                public void windowActivated(WindowEvent e) {
                    logger.info("GUI application window Activated.....");
@@ -141,6 +167,46 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
         }
     }
 
+    /**
+     * Enable resumable and delta multipart uploads and abort abandoned ones
+     */
+    private void initUploadSessions() {
+        if (connection == null) {
+            return;
+        }
+        cloudStoreOperations.setUploadSessionRepository(new SQLiteUploadSessionRepository(connection));
+        cloudStoreOperations.setPartManifestRepository(new SQLitePartManifestRepository(connection));
+        int aborted = cloudStoreOperations.abortStaleUploads();
+        if (aborted > 0) {
+            logger.info("Aborted {} abandoned multipart uploads", aborted);
+        }
+    }
+
+    /**
+     * Keep downloaded objects in a local cache indexed in the database
+     */
+    private void initDownloadCache() {
+        if (connection == null) {
+            return;
+        }
+        cloudStoreOperations.setDownloadCache(new DownloadCache(new SQLiteDownloadCacheRepository(connection),
+                Paths.get(FileUtil.DOWNLOAD_CACHE_DIR), cloudStoreOperations.getTransferConfig().getDownloadCacheMaxBytes()));
+    }
+
+    /**
+     * Run uploads and downloads from the durable transfer queue and resume
+     * the jobs left unfinished when the application last closed
+     */
+    private void initTransferQueue(S3CloudManagerImpl s3CloudManager) {
+        if (connection == null) {
+            return;
+        }
+        transferQueue = new TransferQueue(new SQLiteTransferJobRepository(connection), cachingFileStoreOperations,
+                cloudStoreOperations.getTransferConfig().getBatchConcurrency(), TransferOrder.PRIORITY);
+        s3CloudManager.setTransferQueue(transferQueue);
+        transferQueue.start();
+    }
+
     /**
      * Initializes the left-right split pane layout and embeds tree + table.
      */
@@ -189,49 +255,31 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
     }
 
     /**
-     * Initializes the left-side folder tree view.
+     * Initializes the left-side folder tree view. Sub folders are fetched
+     * from the storage when a folder is selected.
      */
     private void initFolderTree() {
-        File fileRoot = new File(FileUtil.STORAGE_DIR);
         rootTreeNode = createRootTreeNode();
-        createChildren(fileRoot, rootTreeNode);
         folderTree = new JTree(rootTreeNode, true);
-        folderTree.addTreeSelectionListener(new FolderTreeSelectionHandler(this));
+        folderTree.addTreeSelectionListener(new FolderTreeSelectionHandler(fileManager));
     }
 
     /**
-     * Reloads the folder tree by clearing and rebuilding it.
+     * Reloads the folder tree; folders are listed again when selected.
      */
     @Override
     public void updateFolderTree() {
-        File fileRoot = new File(FileUtil.STORAGE_DIR);
         DefaultTreeModel treeModel = (DefaultTreeModel) folderTree.getModel();
         rootTreeNode.removeAllChildren();
-        rootTreeNode.removeFromParent();
-        createChildren(fileRoot, rootTreeNode);
         treeModel.reload();
+        folderTree.clearSelection();
     }
 
     /**
      * Creates the root node for the folder tree view.
      */
     private DefaultMutableTreeNode createRootTreeNode() {
-        File root = new File(FileUtil.STORAGE_DIR);
-        return new DefaultMutableTreeNode(root);
-    }
-
-    /**
-     * Recursively adds subfolders to the folder tree view.
-     */
-    private void createChildren(File parent, DefaultMutableTreeNode parentNode) {
-        File[] files = FileSystemView.getFileSystemView().getFiles(parent, true);
-        for (File file : files) {
-            DefaultMutableTreeNode childNode = new DefaultMutableTreeNode(file.getName(), file.isDirectory());
-            parentNode.add(childNode);
-            if (file.isDirectory()) {
-                createChildren(file, childNode);
-            }
-        }
+        return new DefaultMutableTreeNode(FileUtil.STORAGE_DIR, true);
     }
 
     /**
@@ -247,6 +295,20 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
                 .build();
     }
 
+    /**
+     * Returns all files selected in the JTable in FileObject format.
+     */
+    @Override
+    public List<FileObject> getSelectedFiles() {
+        List<FileObject> selectedFiles = new ArrayList<>();
+        for (int selectedRow : fileTable.getSelectedRows()) {
+            selectedFiles.add(FileObject.builder()
+                    .setFileName((String) tableModel.getValueAt(selectedRow, 0))
+                    .build());
+        }
+        return selectedFiles;
+    }
+
     /**
      * Provides access to the file table for listeners or external access.
      */
@@ -297,6 +359,7 @@ public class CloudFileStorageUI extends JFrame implements BaseFileStorageUI {
 
             AwsS3Util.saveCredential(awsS3Credential);
             cloudStoreOperations.connectAwsS3Client(awsS3Credential);
+            cachingFileStoreOperations.invalidate();
 
             JOptionPane.showMessageDialog(this, "AWS credentials saved and encrypted.");
             logger.info("AWS credentials saved and encrypted");
@@ -1,5 +1,7 @@
 package app;
 
+import java.util.List;
+
 import storage.FileObject;
 
 /**
@@ -33,12 +35,41 @@ public interface FileManager {
 	 */
 	public void deleteSelectedFile(FileObject fileObject);
 
+	/**
+	 * Deletes all given files in bulk and refreshes the file list once.
+	 *
+	 * @param fileObjects file objects to delete
+	 */
+	public void deleteSelectedFiles(List<FileObject> fileObjects);
+
+	/**
+	 * Renames a file, or a folder with everything under it, in place.
+	 *
+	 * @param fileObject file or folder object to rename
+	 * @param newName new last path segment of the file or folder
+	 */
+	public void renameSelectedFile(FileObject fileObject, String newName);
+
 	/**
 	 * Lists all files and folders in the local storage directory and updates the UI
 	 * table view.
 	 */
 	public void listFiles();
 
+	/**
+	 * Lists the storage again, bypassing cached listings, and updates the UI
+	 * table view.
+	 */
+	public void refreshFiles();
+
+	/**
+	 * Lists a single folder level of the storage and updates the UI table view.
+	 *
+	 * @param prefix folder prefix ending with "/", or empty for the root folder
+	 * @return sub folders and files of the folder, empty if the listing failed
+	 */
+	public List<FileObject> listFolder(String prefix);
+
 	/**
 	 * Retrieves the absolute path of the selected file or folder from the UI table.
 	 *
@@ -46,6 +77,13 @@ public interface FileManager {
 	 */
 	public FileObject getSelectedFile();
 
+	/**
+	 * Retrieves all files selected in the UI table.
+	 *
+	 * @return the selected file objects, empty if nothing is selected
+	 */
+	public List<FileObject> getSelectedFiles();
+
 	/**
 	 *  Sync up files
 	 */
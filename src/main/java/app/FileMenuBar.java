@@ -1,10 +1,14 @@
 package app;
 
+import java.util.List;
+
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 
 import storage.FileObject;
+import util.FileUtil;
 
 /**
  * FileMenuBar defines the main menu bar with file actions, which are connected
@@ -31,6 +35,7 @@ public class FileMenuBar {
 
 		JMenuItem uploadToFolderItem = new JMenuItem("Upload");
 		JMenuItem deleteFileItem = new JMenuItem("Delete");
+		JMenuItem renameFileItem = new JMenuItem("Rename");
 		JMenuItem downloadFileItem = new JMenuItem("Download");
 		JMenuItem refreshItem = new JMenuItem("Refresh");
 	
@@ -50,8 +55,28 @@ public class FileMenuBar {
 		 * Delete selected file path
 		 */
 		deleteFileItem.addActionListener(e -> {
+			List<FileObject> fileObjects = fileManager.getSelectedFiles();
+			if (fileObjects.size() > 1) {
+				fileManager.deleteSelectedFiles(fileObjects);
+			} else {
+				fileManager.deleteSelectedFile(fileManager.getSelectedFile());
+			}
+		});
+
+		/**
+		 * Rename selected file or folder
+		 */
+		renameFileItem.addActionListener(e -> {
 			FileObject fileObject = fileManager.getSelectedFile();
-			fileManager.deleteSelectedFile(fileObject);
+			if (fileObject == null) {
+				fileManager.renameSelectedFile(null, null);
+				return;
+			}
+			String newName = JOptionPane.showInputDialog(parentUI != null ? parentUI.getComponent() : null,
+					"Enter new name:", FileUtil.folderName(fileObject.getFileName()));
+			if (newName != null) {
+				fileManager.renameSelectedFile(fileObject, newName.trim());
+			}
 		});
 
 		/**
@@ -64,10 +89,11 @@ public class FileMenuBar {
         /**
 		* Refresh file list
 	    */
-		refreshItem.addActionListener(e -> fileManager.listFiles());
+		refreshItem.addActionListener(e -> fileManager.refreshFiles());
 
 		fileMenu.add(uploadToFolderItem);
 		fileMenu.add(deleteFileItem);
+		fileMenu.add(renameFileItem);
 		fileMenu.add(downloadFileItem);
 		fileMenu.addSeparator();
 		fileMenu.add(refreshItem);
@@ -1,30 +1,41 @@
 package app;
 
 import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import handles.FileSyncHandle;
 import listeners.FileEventListener;
+import storage.BatchResult;
+import storage.CachingFileStoreOperations;
 import storage.FileObject;
 import storage.FileStoreException;
 import storage.FileStoreOperations;
+import storage.TransferJob;
+import storage.TransferJobListener;
+import storage.TransferPriority;
+import storage.TransferQueue;
 import util.FileEventExceptions;
 import util.FileUtil;
 
 /**
  * S3FileManagerImpl implements FileManager interface and uploads, deletes, and lists files/folders to/from AWS S3.
+ * With a transfer queue set, uploads and downloads are queued and run in the background.
  */
-public class S3CloudManagerImpl implements FileManager {
+public class S3CloudManagerImpl implements FileManager, TransferJobListener {
     private static final Logger logger = LogManager.getLogger(S3CloudManagerImpl.class);
     private final BaseFileStorageUI appUI;
     private final FileStoreOperations fileOperations;
     private FileEventListener fileEventListener;
     private final FileSyncHandle fileSyncHandle;
+    private TransferQueue transferQueue;
 
     public S3CloudManagerImpl(BaseFileStorageUI appUI, FileStoreOperations fileOperations) {
         this(appUI,fileOperations,null);
@@ -43,6 +54,18 @@ public class S3CloudManagerImpl implements FileManager {
         this.fileSyncHandle = fileSyncHandle;
     }
 
+    /**
+     * Queue uploads and downloads on the transfer queue instead of running
+     * them while the user waits. The manager is notified of finished jobs.
+     * @param transferQueue queue, or null to transfer synchronously
+     */
+    public void setTransferQueue(TransferQueue transferQueue) {
+        this.transferQueue = transferQueue;
+        if (transferQueue != null) {
+            transferQueue.setListener(this);
+        }
+    }
+
 
     @Override
     public void uploadFileToSelectedFolder() {
@@ -52,11 +75,15 @@ public class S3CloudManagerImpl implements FileManager {
     @Override
     public void uploadFileToSelectedFolder(String folderPath) {
         JFileChooser chooser = new JFileChooser();
+        chooser.setMultiSelectionEnabled(transferQueue != null);
 		int result = chooser.showOpenDialog(appUI.getComponent());
-		if (result == JFileChooser.APPROVE_OPTION) {
+		if (result == JFileChooser.APPROVE_OPTION && transferQueue != null) {
+            queueUploads(List.of(chooser.getSelectedFiles()));
+		} else if (result == JFileChooser.APPROVE_OPTION) {
 			try {
                 File selectedFile = chooser.getSelectedFile();
-                FileObject fileObject = this.fileOperations.save(selectedFile);
+                FileObject fileObject = TransferPriority.callWith(TransferPriority.INTERACTIVE,
+                        () -> this.fileOperations.save(selectedFile));
                 appUI.showAlertMessage("File upload completed");
                 listFiles();
                 if(fileEventListener != null){
@@ -93,6 +120,75 @@ public class S3CloudManagerImpl implements FileManager {
         }
     }
 
+    @Override
+    public void deleteSelectedFiles(List<FileObject> fileObjects) {
+        if (fileObjects == null || fileObjects.isEmpty()) {
+            appUI.showAlertMessage("No file selected.");
+            return;
+        }
+        try {
+            BatchResult batchResult = this.fileOperations.deleteAll(fileObjects);
+            if(fileEventListener != null && !batchResult.getCompleted().isEmpty()){
+                fileEventListener.onDeleteAll(batchResult.getCompleted());
+            }
+            if(batchResult.hasFailures()){
+                appUI.showAlertMessage(String.format("Failed to delete %d files", batchResult.getFailures().size()));
+            }
+            listFiles();
+        } catch (FileStoreException ex1) {
+           appUI.showAlertMessage("Error deleting files");
+           logger.error("Error deleteing files {}", ex1.getMessage());
+        } catch (FileEventExceptions ex2) {
+            logger.error("Files delete event error: {}", ex2.getMessage());
+        }
+    }
+
+    @Override
+    public void renameSelectedFile(FileObject fileObject, String newName) {
+        if (fileObject == null) {
+            appUI.showAlertMessage("No file selected.");
+            return;
+        }
+        if (newName == null || newName.isBlank() || newName.contains(FileUtil.FOLDER_DELIMITER)) {
+            appUI.showAlertMessage("Invalid name.");
+            return;
+        }
+        String sourceKey = fileObject.getFileName();
+        try {
+            Map<String, FileObject> renamed = new LinkedHashMap<>();
+            if (FileUtil.FOLDER_OBJECT_TYPE.equals(fileObject.getFileType())) {
+                String targetPrefix = FileUtil.parentPrefix(sourceKey) + newName + FileUtil.FOLDER_DELIMITER;
+                if (!this.fileOperations.listFolder(targetPrefix).isEmpty()) {
+                    appUI.showAlertMessage("A folder named " + newName + " already exists.");
+                    return;
+                }
+                BatchResult batchResult = this.fileOperations.renameFolder(sourceKey, targetPrefix);
+                for (FileObject moved : batchResult.getCompleted()) {
+                    renamed.put(sourceKey + moved.getFileName().substring(targetPrefix.length()), moved);
+                }
+                if (batchResult.hasFailures()) {
+                    appUI.showAlertMessage(String.format("Failed to move %d files", batchResult.getFailures().size()));
+                }
+            } else {
+                String targetKey = FileUtil.parentPrefix(sourceKey) + newName;
+                if (this.fileOperations.stat(targetKey) != null) {
+                    appUI.showAlertMessage("A file named " + newName + " already exists.");
+                    return;
+                }
+                renamed.put(sourceKey, this.fileOperations.move(sourceKey, targetKey));
+            }
+            if (fileEventListener != null && !renamed.isEmpty()) {
+                fileEventListener.onRename(renamed);
+            }
+            listFiles();
+        } catch (FileStoreException ex1) {
+            appUI.showAlertMessage("Error renaming file");
+            logger.error("Error renaming file {}", ex1.getMessage());
+        } catch (FileEventExceptions ex2) {
+            logger.error("File rename event error: {}", ex2.getMessage());
+        }
+    }
+
     @Override
     public void listFiles() {
         try {
@@ -104,11 +200,37 @@ public class S3CloudManagerImpl implements FileManager {
         }
     }
 
+    @Override
+    public void refreshFiles() {
+        if (fileOperations instanceof CachingFileStoreOperations cachingOperations) {
+            cachingOperations.invalidate();
+        }
+        listFiles();
+    }
+
+    @Override
+    public List<FileObject> listFolder(String prefix) {
+        try {
+            logger.info("Listing folder '{}' in S3", prefix);
+            List<FileObject> fileObjects = fileOperations.listFolder(prefix);
+            appUI.updateFileTable(fileObjects);
+            return fileObjects;
+        } catch (FileStoreException ex) {
+           logger.error("List folder errors: {}", ex.getMessage());
+           return List.of();
+        }
+    }
+
     @Override
     public FileObject getSelectedFile() {
         return appUI.getSelectedFile();
     }
 
+    @Override
+    public List<FileObject> getSelectedFiles() {
+        return appUI.getSelectedFiles();
+    }
+
     @Override
     public void syncFile() {
         try {
@@ -135,8 +257,15 @@ public class S3CloudManagerImpl implements FileManager {
               appUI.showAlertMessage("File is not selected");
               return;
             }
+            if(transferQueue != null){
+              transferQueue.enqueueDownload(fileObject, TransferPriority.INTERACTIVE);
+              appUI.showAlertMessage("File download queued");
+              return;
+            }
             logger.info("Start file download from cloud storage {} ",fileObject);
-            File downloadedFile = fileOperations.downloadFile(fileObject);
+            // user initiated, so scheduled ahead of bulk transfers
+            File downloadedFile = TransferPriority.callWith(TransferPriority.INTERACTIVE,
+                    () -> fileOperations.downloadFile(fileObject));
             if(downloadedFile != null){
               logger.info("File download from cloud storage completed {} ",fileObject);
               appUI.showAlertMessage("File download completed");
@@ -149,4 +278,46 @@ public class S3CloudManagerImpl implements FileManager {
              logger.error("Failed to download file, error {}", ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Queue the files for upload. A single file is an interactive transfer,
+     * many files are queued as a bulk batch.
+     * @param files
+     */
+    public void queueUploads(List<File> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        TransferPriority priority = files.size() == 1 ? TransferPriority.INTERACTIVE : TransferPriority.BULK;
+        transferQueue.enqueueUploads(files, priority);
+        appUI.showAlertMessage(files.size() == 1 ? "File upload queued"
+                : String.format("%d file uploads queued", files.size()));
+    }
+
+    @Override
+    public void onCompleted(TransferJob job, FileObject fileObject) {
+        if (job.getType() == TransferJob.Type.UPLOAD && fileEventListener != null) {
+            try {
+                fileEventListener.onSave(fileObject);
+            } catch (FileEventExceptions ex) {
+                logger.error("File Upload event error: {}", ex.getMessage());
+            }
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (job.getType() == TransferJob.Type.UPLOAD) {
+                listFiles();
+            }
+            if (job.getPriority() == TransferPriority.INTERACTIVE) {
+                appUI.showAlertMessage(job.getType() == TransferJob.Type.UPLOAD
+                        ? "File upload completed" : "File download completed");
+            }
+        });
+    }
+
+    @Override
+    public void onFailed(TransferJob job, FileStoreException ex) {
+        logger.error("Transfer of {} failed, error: {}", job.getKey(), ex.getMessage());
+        SwingUtilities.invokeLater(() -> appUI.showAlertMessage(
+                String.format("Transfer of %s failed: %n%s", job.getKey(), ex.getMessage())));
+    }
+}
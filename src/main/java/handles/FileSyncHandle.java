@@ -18,6 +18,16 @@ public interface FileSyncHandle {
      */
     public void syncFiles( List<FileObject> fileObjects);
 
+    /**
+     * Synchronizes a single file, reading its remote metadata with one
+     * stat request instead of listing the whole storage.
+     *
+     * @param fileName the name the file is stored under
+     * @return the remote file object, or null if the file does not exist remotely
+     * @throws FileStoreException if the remote lookup fails
+     */
+    public FileObject syncFile(String fileName) throws FileStoreException;
+
      /**
      * Resolves a conflict between two versions of a file using a selected strategy.
      *
@@ -86,7 +86,32 @@ public class S3LocalFileSyncHandle implements FileSyncHandle {
         }
     }
 
-  
+    /**
+     * Synchronizes one file using a single HEAD request via stat, so the
+     * cost does not grow with the size of the bucket. A file tracked locally
+     * but gone remotely is dropped from the metadata repository.
+     */
+    @Override
+    public FileObject syncFile(String fileName) throws FileStoreException {
+        FileObject remote = fileStoreOperations.stat(fileName);
+        FileObject local = fileMetadataRepository.findByName(fileName);
+        if (remote == null) {
+            if (local != null) {
+                logger.info("File {} no longer exists in cloud storage", fileName);
+                fileMetadataRepository.delete(fileName);
+            }
+            return null;
+        }
+        if (local == null) {
+            fileMetadataRepository.saveOrUpdate(remote);
+        } else if (isConflict(local, remote)) {
+            FileObject resolved = resolveConflict(local, remote);
+            fileMetadataRepository.saveOrUpdate(resolved);
+            conflictedFiles.add(remote);
+        }
+        return remote;
+    }
+
     /**
      * Conflict resolution strategy: keeps the most recently modified file.
      */
@@ -1,5 +1,8 @@
 package listeners;
 
+import java.util.List;
+import java.util.Map;
+
 import storage.FileObject;
 import util.FileEventExceptions;
 
@@ -33,4 +36,22 @@ public interface FileEventListener {
      * @throws FileEventExceptions if deletion fails or file is not found
      */
     public void onDelete(FileObject fileObject) throws FileEventExceptions;
+
+    /**
+     * Invoked when many files are deleted at once and their metadata should
+     * be removed in one batch.
+     *
+     * @param fileObjects the deleted file objects
+     * @throws FileEventExceptions if the batch deletion fails
+     */
+    public void onDeleteAll(List<FileObject> fileObjects) throws FileEventExceptions;
+
+    /**
+     * Invoked when files are moved or renamed and their metadata should
+     * follow them to the new names in one batch.
+     *
+     * @param renamed the moved file objects keyed by their old names
+     * @throws FileEventExceptions if the batch rename fails
+     */
+    public void onRename(Map<String, FileObject> renamed) throws FileEventExceptions;
 }
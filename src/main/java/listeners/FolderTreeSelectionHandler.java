@@ -1,34 +1,56 @@
 package listeners;
 
+import java.util.List;
+
+import javax.swing.JTree;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 
-import app.BaseFileStorageUI;
+import app.FileManager;
+import storage.FileObject;
 import util.FileUtil;
 
 /**
  * FolderTreeSelectionHandler handles selection changes in the JTree and updates the file table accordingly.
+ *
+ * Only the selected folder is listed, and its sub folders are added to the
+ * tree as child nodes, so the tree is loaded one level at a time.
  */
 public class FolderTreeSelectionHandler implements TreeSelectionListener {
-    private final BaseFileStorageUI fileStorageUI;
+    private final FileManager fileManager;
 
-    public FolderTreeSelectionHandler(BaseFileStorageUI fileStorageUI ) {
-        this.fileStorageUI = fileStorageUI;
+    public FolderTreeSelectionHandler(FileManager fileManager) {
+        this.fileManager = fileManager;
     }
 
     @Override
     public void valueChanged(TreeSelectionEvent e) {
-        TreePath path = e.getPath();
-        if (path != null) {
-            String filePath = FileUtil.createFilePath(path);
-            System.out.println("file Path created "+filePath);
-            //List<File> files = List.of(new File(filePath));
-            // List<FileObject> fileObjects = files.stream().map(f->{
-            //                                     return  FileObject.builder().build();
-            //                                 }).collect(Collectors.toList());
-            // Console.log(e)
-            //fileStorageUI.updateFileTable(fileObjects);
+        TreePath path = e.getNewLeadSelectionPath();
+        if (path == null) {
+            return;
+        }
+        String prefix = FileUtil.createObjectPrefix(path.getPath());
+        List<FileObject> fileObjects = fileManager.listFolder(prefix);
+        if (e.getSource() instanceof JTree tree
+                && path.getLastPathComponent() instanceof DefaultMutableTreeNode folderNode) {
+            updateChildFolders((DefaultTreeModel) tree.getModel(), folderNode, fileObjects);
+        }
+    }
+
+    /**
+     * Replace the child nodes of the folder with its listed sub folders
+     */
+    private void updateChildFolders(DefaultTreeModel treeModel, DefaultMutableTreeNode folderNode,
+                                    List<FileObject> fileObjects) {
+        folderNode.removeAllChildren();
+        for (FileObject fileObject : fileObjects) {
+            if (FileUtil.FOLDER_OBJECT_TYPE.equals(fileObject.getFileType())) {
+                folderNode.add(new DefaultMutableTreeNode(FileUtil.folderName(fileObject.getFileName()), true));
+            }
         }
+        treeModel.nodeStructureChanged(folderNode);
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,9 @@
 package listeners;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -65,4 +69,33 @@ public class SqlFileEventListener implements FileEventListener {
             throw new FileEventExceptions("Failed to delete file metadata", ex);
         }
     }
+
+    /**
+     * Handles deleting many files from the metadata store in one batch.
+     */
+    @Override
+    public void onDeleteAll(List<FileObject> fileObjects) throws FileEventExceptions {
+        try {
+            List<String> names = fileObjects.stream()
+                                            .map(FileObject::getFileName)
+                                            .collect(Collectors.toList());
+            fileMetadataRepository.deleteAll(names);
+        } catch (Exception ex) {
+            logger.error("Failed to delete files metadata, error: {}",ex.getMessage());
+            throw new FileEventExceptions("Failed to delete files metadata", ex);
+        }
+    }
+
+    /**
+     * Handles moving many files to new names in the metadata store in one batch.
+     */
+    @Override
+    public void onRename(Map<String, FileObject> renamed) throws FileEventExceptions {
+        try {
+            fileMetadataRepository.renameAll(renamed);
+        } catch (Exception ex) {
+            logger.error("Failed to rename files metadata, error: {}",ex.getMessage());
+            throw new FileEventExceptions("Failed to rename files metadata", ex);
+        }
+    }
 }
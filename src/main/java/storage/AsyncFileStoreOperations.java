@@ -0,0 +1,48 @@
+package storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous File Storage Operations interface.
+ * 
+ * Non-blocking counterpart of FileStoreOperations. Every operation returns
+ * immediately with a CompletableFuture, so callers can pipeline and compose
+ * storage operations (for example list while downloading) without managing
+ * threads themselves. Failures complete the future exceptionally with a
+ * FileStoreException.
+ */
+public interface AsyncFileStoreOperations {
+
+    /**
+     * Saves a single file to the storage system.
+     *
+     * @param file the file to be saved
+     * @return future completed with the saved file object
+     */
+    public CompletableFuture<FileObject> saveAsync(File file);
+
+    /**
+     * Downloads a file object from the storage system to the local directory.
+     *
+     * @param fileObject the file object to download
+     * @return future completed with the local file
+     */
+    public CompletableFuture<File> downloadFileAsync(FileObject fileObject);
+
+    /**
+     * Deletes a file from the storage system.
+     *
+     * @param fileObject the file object representing the file to be deleted
+     * @return future completed once the file is deleted
+     */
+    public CompletableFuture<Void> deleteAsync(FileObject fileObject);
+
+    /**
+     * Loads all files currently stored in the storage system.
+     *
+     * @return future completed with all file objects available in the storage
+     */
+    public CompletableFuture<List<FileObject>> loadAllAsync();
+}
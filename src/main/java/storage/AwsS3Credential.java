@@ -8,6 +8,8 @@ public class AwsS3Credential {
     private String secretKey;
     private String region;
     private String bucketName;
+    // Optional S3 compatible endpoint URL; null uses the AWS endpoint of the region
+    private String endpoint;
 
     public AwsS3Credential() {}
     
@@ -42,5 +44,11 @@ public class AwsS3Credential {
     public void setRegion(String region) {
         this.region = region;
     }
+    public String getEndpoint() {
+        return endpoint;
+    }
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
     
 }
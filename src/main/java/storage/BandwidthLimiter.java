@@ -0,0 +1,88 @@
+package storage;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * BandwidthLimiter is a token bucket capping the bytes per second shared by
+ * all transfers in one direction.
+ *
+ * Tokens refill continuously up to one second of bandwidth. A transfer may
+ * take more tokens than are available, leaving the bucket in debt that later
+ * transfers wait out, so large reads are never starved and the long run rate
+ * stays at the limit. Bulk transfers only get tokens while no interactive
+ * transfer is waiting. The limit can be changed at any time; 0 disables it.
+ */
+public class BandwidthLimiter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    private final Map<TransferPriority, Integer> waiting = new EnumMap<>(TransferPriority.class);
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond bandwidth limit, 0 for unlimited
+     */
+    public BandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    /**
+     * Change the limit; waiting transfers pick up the new rate immediately
+     * @param bytesPerSecond bandwidth limit, 0 for unlimited
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.tokens = Math.min(tokens, this.bytesPerSecond);
+        notifyAll();
+    }
+
+    /**
+     * @return bandwidth limit, 0 for unlimited
+     */
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Block until the bytes may be transferred.
+     *
+     * @param bytes number of bytes about to be transferred
+     * @param priority lane of the transfer
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire(long bytes, TransferPriority priority) throws InterruptedException {
+        if (bytes <= 0) {
+            return;
+        }
+        waiting.merge(priority, 1, Integer::sum);
+        try {
+            while (bytesPerSecond > 0) {
+                refill();
+                boolean yieldToInteractive = priority != TransferPriority.INTERACTIVE
+                        && waiting.getOrDefault(TransferPriority.INTERACTIVE, 0) > 0;
+                if (!yieldToInteractive && tokens > 0) {
+                    tokens -= bytes;
+                    return;
+                }
+                long waitMillis = yieldToInteractive ? MAX_WAIT_MILLIS
+                        : Math.min(MAX_WAIT_MILLIS, (long) Math.ceil(-tokens * 1000 / bytesPerSecond) + 1);
+                wait(Math.max(1, waitMillis));
+            }
+        } finally {
+            waiting.merge(priority, -1, Integer::sum);
+            notifyAll();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(bytesPerSecond, tokens + (double) (now - lastRefillNanos) * bytesPerSecond / NANOS_PER_SECOND);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,69 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchResult collects the outcome of a batch operation on many files.
+ * Each file either completes with a FileObject or fails with its own
+ * FileStoreException, so one bad file does not abort the whole batch.
+ *
+ * Results may be added concurrently by the worker threads of the batch.
+ */
+public class BatchResult {
+    private final List<FileObject> completed = new ArrayList<>();
+    private final Map<String, FileStoreException> failures = new LinkedHashMap<>();
+
+    /**
+     * Record a file that completed successfully.
+     *
+     * @param fileObject the resulting file object
+     */
+    public synchronized void addCompleted(FileObject fileObject) {
+        completed.add(fileObject);
+    }
+
+    /**
+     * Record a file that failed.
+     *
+     * @param name file name or object key that failed
+     * @param ex the failure cause
+     */
+    public synchronized void addFailure(String name, FileStoreException ex) {
+        failures.put(name, ex);
+    }
+
+    /**
+     * @return file objects of all completed files
+     */
+    public synchronized List<FileObject> getCompleted() {
+        return Collections.unmodifiableList(new ArrayList<>(completed));
+    }
+
+    /**
+     * @return failures keyed by file name or object key
+     */
+    public synchronized Map<String, FileStoreException> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    /**
+     * @return true if at least one file failed
+     */
+    public synchronized boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("BatchResult{");
+        sb.append("completed=").append(completed.size());
+        sb.append(", failures=").append(failures.keySet());
+        sb.append('}');
+        return sb.toString();
+    }
+}
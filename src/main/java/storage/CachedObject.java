@@ -0,0 +1,70 @@
+package storage;
+
+import java.util.Date;
+
+/**
+ * CachedObject is an entry of the download cache: a local copy of one
+ * version, identified by its ETag, of an object in the bucket.
+ */
+public class CachedObject {
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+    private final String cacheFile;
+    private final long fileSize;
+    private final String codec;
+    private final Date lastAccessDate;
+
+    public CachedObject(String bucketName, String key, String eTag, String cacheFile, long fileSize,
+                        String codec, Date lastAccessDate) {
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+        this.cacheFile = cacheFile;
+        this.fileSize = fileSize;
+        this.codec = codec;
+        this.lastAccessDate = lastAccessDate;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+    public String getKey() {
+        return key;
+    }
+    public String getETag() {
+        return eTag;
+    }
+    /**
+     * @return name of the cached copy inside the cache directory
+     */
+    public String getCacheFile() {
+        return cacheFile;
+    }
+    public long getFileSize() {
+        return fileSize;
+    }
+    /**
+     * @return codec the object is stored with, or null when stored as is
+     */
+    public String getCodec() {
+        return codec;
+    }
+    public Date getLastAccessDate() {
+        return lastAccessDate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CachedObject{");
+        sb.append("bucketName=").append(bucketName);
+        sb.append(", key=").append(key);
+        sb.append(", eTag=").append(eTag);
+        sb.append(", cacheFile=").append(cacheFile);
+        sb.append(", fileSize=").append(fileSize);
+        sb.append(", lastAccessDate=").append(lastAccessDate);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,252 @@
+package storage;
+
+import java.io.File;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * CachingFileStoreOperations keeps the result of loadAll in memory for a
+ * time to live, in front of another FileStoreOperations.
+ *
+ * Concurrent callers finding the listing expired share a single refresh
+ * (single-flight) instead of each listing the bucket. Saves and deletes made
+ * through this instance update the cached listing in place rather than
+ * expiring it. A save or delete finishing while a refresh is in flight marks
+ * the refreshed listing as already expired, since the listing may have been
+ * taken before the change. All other operations are passed through.
+ */
+public class CachingFileStoreOperations implements FileStoreOperations {
+    private static final Logger logger = LogManager.getLogger(CachingFileStoreOperations.class);
+
+    private final FileStoreOperations delegate;
+    private volatile Duration ttl;
+    private Map<String, FileObject> listing;
+    private List<FileObject> snapshot;
+    private long loadedAtNanos;
+    private long generation;
+    private CompletableFuture<List<FileObject>> refresh;
+
+    /**
+     * @param delegate the store listed and updated
+     * @param ttl how long a listing is served from memory
+     */
+    public CachingFileStoreOperations(FileStoreOperations delegate, Duration ttl) {
+        this.delegate = delegate;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @param ttl how long a listing is served from memory, zero to always list
+     */
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Drop the cached listing so the next loadAll lists the store again,
+     * e.g. when the user asks for a refresh or connects to another bucket.
+     */
+    public synchronized void invalidate() {
+        listing = null;
+        snapshot = null;
+        generation++;
+    }
+
+    /**
+     * Serve the cached listing while it is fresh, otherwise list the store
+     * once for all concurrent callers.
+     *
+     * @return unmodifiable list of the files in the store
+     */
+    @Override
+    public List<FileObject> loadAll() throws FileStoreException {
+        CompletableFuture<List<FileObject>> flight;
+        boolean owner = false;
+        long startGeneration;
+        synchronized (this) {
+            if (listing != null && System.nanoTime() - loadedAtNanos < ttl.toNanos()) {
+                return snapshot();
+            }
+            if (refresh == null) {
+                refresh = new CompletableFuture<>();
+                owner = true;
+            }
+            flight = refresh;
+            startGeneration = generation;
+        }
+        if (owner) {
+            refresh(flight, startGeneration);
+        }
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Listing interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof FileStoreException fileStoreException) {
+                throw fileStoreException;
+            }
+            throw new FileStoreException("Failed to list files", ex.getCause());
+        }
+    }
+
+    /**
+     * List the store and publish the result to the cache and to every
+     * caller waiting on the flight.
+     */
+    private void refresh(CompletableFuture<List<FileObject>> flight, long startGeneration) {
+        try {
+            List<FileObject> fileObjects = delegate.loadAll();
+            synchronized (this) {
+                listing = new LinkedHashMap<>();
+                snapshot = null;
+                for (FileObject fileObject : fileObjects) {
+                    listing.put(fileObject.getFileName(), fileObject);
+                }
+                // a change made during the listing may be missing from it
+                loadedAtNanos = generation == startGeneration ? System.nanoTime() : System.nanoTime() - ttl.toNanos();
+                refresh = null;
+                flight.complete(snapshot());
+            }
+            logger.info("Refreshed listing cache with {} files", fileObjects.size());
+        } catch (FileStoreException | RuntimeException ex) {
+            synchronized (this) {
+                refresh = null;
+            }
+            flight.completeExceptionally(ex);
+        }
+    }
+
+    @Override
+    public FileObject save(File file) throws FileStoreException {
+        FileObject fileObject = delegate.save(file);
+        put(List.of(fileObject));
+        return fileObject;
+    }
+
+    @Override
+    public FileObject save(String key, InputStream inputStream) throws FileStoreException {
+        FileObject fileObject = delegate.save(key, inputStream);
+        put(List.of(fileObject));
+        return fileObject;
+    }
+
+    @Override
+    public BatchResult saveAll(List<File> files) throws FileStoreException {
+        BatchResult batchResult = delegate.saveAll(files);
+        put(batchResult.getCompleted());
+        return batchResult;
+    }
+
+    @Override
+    public void delete(FileObject fileObject) throws FileStoreException {
+        delegate.delete(fileObject);
+        remove(List.of(fileObject));
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<FileObject> fileObjects) throws FileStoreException {
+        BatchResult batchResult = delegate.deleteAll(fileObjects);
+        remove(batchResult.getCompleted());
+        return batchResult;
+    }
+
+    @Override
+    public FileObject copy(String sourceKey, String targetKey) throws FileStoreException {
+        FileObject fileObject = delegate.copy(sourceKey, targetKey);
+        put(List.of(fileObject));
+        return fileObject;
+    }
+
+    @Override
+    public FileObject move(String sourceKey, String targetKey) throws FileStoreException {
+        FileObject fileObject = delegate.move(sourceKey, targetKey);
+        remove(List.of(FileObject.builder().setFileName(sourceKey).build()));
+        put(List.of(fileObject));
+        return fileObject;
+    }
+
+    @Override
+    public BatchResult renameFolder(String sourcePrefix, String targetPrefix) throws FileStoreException {
+        BatchResult batchResult = delegate.renameFolder(sourcePrefix, targetPrefix);
+        List<FileObject> sources = new ArrayList<>();
+        for (FileObject fileObject : batchResult.getCompleted()) {
+            String sourceKey = sourcePrefix + fileObject.getFileName().substring(targetPrefix.length());
+            sources.add(FileObject.builder().setFileName(sourceKey).build());
+        }
+        remove(sources);
+        put(batchResult.getCompleted());
+        return batchResult;
+    }
+
+    @Override
+    public List<FileObject> listFolder(String prefix) throws FileStoreException {
+        return delegate.listFolder(prefix);
+    }
+
+    @Override
+    public FileObject stat(String key) throws FileStoreException {
+        return delegate.stat(key);
+    }
+
+    @Override
+    public BatchResult statAll(Collection<String> keys) throws FileStoreException {
+        return delegate.statAll(keys);
+    }
+
+    @Override
+    public Stream<FileObject> streamAll(boolean prefetch) throws FileStoreException {
+        return delegate.streamAll(prefetch);
+    }
+
+    @Override
+    public File downloadFile(FileObject fileObject) throws FileStoreException {
+        return delegate.downloadFile(fileObject);
+    }
+
+    private synchronized void put(Collection<FileObject> fileObjects) {
+        generation++;
+        snapshot = null;
+        if (listing != null) {
+            for (FileObject fileObject : fileObjects) {
+                if (fileObject != null && fileObject.getFileName() != null) {
+                    listing.put(fileObject.getFileName(), fileObject);
+                }
+            }
+        }
+    }
+
+    private synchronized void remove(Collection<FileObject> fileObjects) {
+        generation++;
+        snapshot = null;
+        if (listing != null) {
+            for (FileObject fileObject : fileObjects) {
+                if (fileObject != null) {
+                    listing.remove(fileObject.getFileName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Unmodifiable copy of the listing, shared by callers until it changes.
+     */
+    private List<FileObject> snapshot() {
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(listing.values()));
+        }
+        return snapshot;
+    }
+}
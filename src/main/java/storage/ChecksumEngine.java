@@ -0,0 +1,224 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32C;
+
+/**
+ * ChecksumEngine computes S3 compatible checksums of local files: the size,
+ * the ETag S3 would report for the uploaded object and optionally the
+ * CRC32C of the content.
+ *
+ * Files above the multipart threshold are hashed part by part, each part on
+ * its own fork-join task reading memory-mapped windows of the file, so large
+ * files are hashed by all cores and bound by disk throughput. The multipart
+ * ETag is the MD5 of the part MD5s; the per-part CRC32C values are combined
+ * into the CRC32C of the whole file. Files at or below the threshold get
+ * the MD5 of the whole file, which cannot be split across threads.
+ */
+public class ChecksumEngine {
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+    // CRC32C (Castagnoli) polynomial, reversed
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Hash on the common fork-join pool.
+     */
+    public ChecksumEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool running one task per part
+     */
+    public ChecksumEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Compute the checksums of the file as it would be uploaded with the
+     * transfer settings.
+     *
+     * @param file local file
+     * @param transferConfig multipart threshold and part size
+     * @param crc32c true to also compute the CRC32C
+     * @return the checksums
+     * @throws IOException if the file cannot be read
+     */
+    public FileChecksum compute(File file, TransferConfig transferConfig, boolean crc32c) throws IOException {
+        long fileSize = file.length();
+        if (fileSize > transferConfig.getMultipartThreshold()) {
+            return compute(file, transferConfig.effectivePartSize(fileSize), crc32c);
+        }
+        return compute(file, 0, crc32c);
+    }
+
+    /**
+     * Compute the checksums of the file split into parts of the given size,
+     * as for a multipart upload with that part size.
+     *
+     * @param file local file
+     * @param partSize part size, or 0 to hash the file as a single PUT
+     * @param crc32c true to also compute the CRC32C
+     * @return the checksums
+     * @throws IOException if the file cannot be read
+     */
+    public FileChecksum compute(File file, long partSize, boolean crc32c) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            boolean multipart = partSize > 0;
+            long taskSize = multipart ? partSize : Math.max(fileSize, 1);
+            List<ForkJoinTask<PartDigest>> tasks = new ArrayList<>();
+            long offset = 0;
+            do {
+                long start = offset;
+                long length = Math.min(taskSize, fileSize - offset);
+                tasks.add(pool.submit(() -> digestPart(channel, start, length, crc32c)));
+                offset += length;
+            } while (offset < fileSize);
+
+            List<String> partMd5s = new ArrayList<>();
+            MessageDigest partDigests = newMd5();
+            Integer crc = null;
+            for (ForkJoinTask<PartDigest> task : tasks) {
+                PartDigest part = join(task);
+                partMd5s.add(HexFormat.of().formatHex(part.md5()));
+                partDigests.update(part.md5());
+                if (crc32c) {
+                    crc = crc == null ? part.crc32c() : combineCrc32c(crc, part.crc32c(), part.length());
+                }
+            }
+            String eTag = multipart
+                    ? HexFormat.of().formatHex(partDigests.digest()) + "-" + partMd5s.size()
+                    : partMd5s.get(0);
+            return new FileChecksum(fileSize, partSize, eTag, partMd5s, crc);
+        }
+    }
+
+    /**
+     * Describe a local file with its size, modification date and checksums,
+     * comparable with the file object of the uploaded copy.
+     *
+     * @param file local file
+     * @param transferConfig multipart threshold and part size
+     * @return file object with the ETag as checksum
+     * @throws IOException if the file cannot be read
+     */
+    public FileObject toFileObject(File file, TransferConfig transferConfig) throws IOException {
+        FileChecksum checksum = compute(file, transferConfig, false);
+        return FileObject.builder()
+                .setFileName(file.getName())
+                .setFilePath(file.getAbsolutePath())
+                .setFileSize(checksum.getFileSize())
+                .setLastModifiedDate(new Date(file.lastModified()))
+                .setCheckSum(checksum.getETag())
+                .build();
+    }
+
+    /**
+     * MD5 and CRC32C of one part, read in memory-mapped windows.
+     */
+    private static PartDigest digestPart(FileChannel channel, long offset, long length, boolean crc32c) {
+        MessageDigest md5 = newMd5();
+        CRC32C crc = crc32c ? new CRC32C() : null;
+        try {
+            for (long position = offset; position < offset + length; position += MAP_WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_WINDOW_SIZE, offset + length - position));
+                if (crc != null) {
+                    crc.update(window.duplicate());
+                }
+                md5.update(window);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new PartDigest(md5.digest(), crc != null ? (int) crc.getValue() : 0, length);
+    }
+
+    private static PartDigest join(ForkJoinTask<PartDigest> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * CRC32C of the concatenation of two blocks from the CRC32C of each and
+     * the length of the second, as zlib's crc32_combine does for CRC32.
+     */
+    static int combineCrc32c(int crc1, int crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        // operator for one zero bit
+        odd[0] = CRC32C_POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+        // apply length2 zero bytes to crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static int gf2MatrixTimes(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 algorithm not available", ex);
+        }
+    }
+
+    private record PartDigest(byte[] md5, int crc32c, long length) {}
+}
@@ -0,0 +1,153 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import util.ChecksumUtil;
+
+/**
+ * ChunkedAesGcm encrypts content client side as a sequence of independently
+ * authenticated AES-GCM chunks, so chunks can be encrypted and decrypted in
+ * parallel while the content streams to and from S3.
+ *
+ * Format: a header of the magic bytes "FSOE", a version byte, the plaintext
+ * chunk size and a random 8 byte nonce prefix, followed by one frame per
+ * chunk holding the ciphertext and its 16 byte tag. The 12 byte nonce of a
+ * chunk is the nonce prefix followed by the chunk index. The chunk index and
+ * a last chunk flag are authenticated as associated data, so reordered,
+ * dropped or truncated chunks fail to decrypt.
+ */
+public class ChunkedAesGcm {
+    // User metadata key holding the encryption scheme of a stored object
+    public static final String METADATA_KEY = "fso-encryption";
+    public static final String SCHEME = "aes-gcm-chunked-v1";
+    // User metadata key holding the keyed MAC of the plaintext ETag
+    public static final String SOURCE_MAC_METADATA_KEY = "fso-source-mac";
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private static final byte[] MAGIC = {'F', 'S', 'O', 'E'};
+    private static final byte VERSION = 1;
+    private static final int NONCE_PREFIX_BYTES = 8;
+    private static final int HEADER_BYTES = MAGIC.length + 1 + Integer.BYTES + NONCE_PREFIX_BYTES;
+    private static final int TAG_BYTES = 16;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final byte[] SOURCE_MAC_LABEL = "fso-source-etag:".getBytes(StandardCharsets.UTF_8);
+
+    private final SecretKey secretKey;
+    private final int chunkSize;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final int window = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * @param secretKey AES key
+     * @param chunkSize plaintext bytes per chunk
+     */
+    public ChunkedAesGcm(SecretKey secretKey, int chunkSize) {
+        this.secretKey = secretKey;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Encrypt the plaintext stream as it is read
+     * @param plaintext
+     * @return InputStream of the encrypted content
+     */
+    public InputStream encrypt(InputStream plaintext) {
+        byte[] noncePrefix = new byte[NONCE_PREFIX_BYTES];
+        RANDOM.nextBytes(noncePrefix);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .put(MAGIC)
+                .put(VERSION)
+                .putInt(chunkSize)
+                .put(noncePrefix);
+        InputStream frames = new ParallelChunkInputStream(plaintext, chunkSize,
+                (chunk, chunkIndex, lastChunk) -> crypt(Cipher.ENCRYPT_MODE, noncePrefix, chunk, chunkIndex, lastChunk),
+                pool, window);
+        return new SequenceInputStream(new ByteArrayInputStream(header.array()), frames);
+    }
+
+    /**
+     * Decrypt the encrypted stream as it is read; the key must match the one
+     * used for encryption
+     * @param encrypted
+     * @return InputStream of the plaintext
+     * @throws IOException if the header is missing or invalid
+     */
+    public InputStream decrypt(InputStream encrypted) throws IOException {
+        byte[] headerBytes = encrypted.readNBytes(HEADER_BYTES);
+        if (headerBytes.length < HEADER_BYTES || !Arrays.equals(headerBytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Content is not chunked AES-GCM encrypted");
+        }
+        ByteBuffer header = ByteBuffer.wrap(headerBytes, MAGIC.length, HEADER_BYTES - MAGIC.length);
+        if (header.get() != VERSION) {
+            throw new IOException("Unsupported chunked AES-GCM version");
+        }
+        int encryptedChunkSize = header.getInt();
+        byte[] noncePrefix = new byte[NONCE_PREFIX_BYTES];
+        header.get(noncePrefix);
+        return new ParallelChunkInputStream(encrypted, encryptedChunkSize + TAG_BYTES,
+                (frame, chunkIndex, lastChunk) -> crypt(Cipher.DECRYPT_MODE, noncePrefix, frame, chunkIndex, lastChunk),
+                pool, window);
+    }
+
+    /**
+     * Size of the encrypted content for a plaintext of the given size
+     * @param plaintextSize
+     * @return long
+     */
+    public long encryptedSize(long plaintextSize) {
+        long chunks = Math.max(1, (plaintextSize + chunkSize - 1) / chunkSize);
+        return HEADER_BYTES + plaintextSize + chunks * TAG_BYTES;
+    }
+
+    /**
+     * HMAC-SHA256 of the plaintext ETag under the encryption key. Stored
+     * instead of the ETag, it lets the key holder recognize unchanged
+     * files without the metadata revealing a hash of the plaintext.
+     * @param eTag ETag of the plaintext
+     * @return hex MAC
+     */
+    public String sourceMac(String eTag) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secretKey.getEncoded(), MAC_ALGORITHM));
+            mac.update(SOURCE_MAC_LABEL);
+            return HexFormat.of().formatHex(
+                    mac.doFinal(ChecksumUtil.normalizeETag(eTag).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to compute " + MAC_ALGORITHM, ex);
+        }
+    }
+
+    private byte[] crypt(int mode, byte[] noncePrefix, byte[] input, long chunkIndex, boolean lastChunk)
+            throws GeneralSecurityException {
+        byte[] nonce = ByteBuffer.allocate(NONCE_PREFIX_BYTES + Integer.BYTES)
+                .put(noncePrefix)
+                .putInt(Math.toIntExact(chunkIndex))
+                .array();
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, secretKey, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+        cipher.updateAAD(ByteBuffer.allocate(Long.BYTES + 1)
+                .putLong(chunkIndex)
+                .put((byte) (lastChunk ? 1 : 0))
+                .array());
+        return cipher.doFinal(input);
+    }
+}
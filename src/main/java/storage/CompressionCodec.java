@@ -0,0 +1,123 @@
+package storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * CompressionCodec lists the codecs the cloud store can apply to file content
+ * before upload. The codec of an object is recorded in its user metadata under
+ * METADATA_KEY so downloads know how to restore the original content.
+ *
+ * GZIP gives the better ratio; DEFLATE runs at the fastest compression level
+ * for throughput on large text files. Both are part of the JDK.
+ */
+public enum CompressionCodec {
+    NONE("none"),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    // User metadata key holding the codec name of a stored object
+    public static final String METADATA_KEY = "fso-codec";
+    // User metadata key holding the ETag of the uncompressed content
+    public static final String SOURCE_ETAG_METADATA_KEY = "fso-source-etag";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String codecName;
+
+    CompressionCodec(String codecName) {
+        this.codecName = codecName;
+    }
+
+    public String getCodecName() {
+        return codecName;
+    }
+
+    /**
+     * Wrap the output stream so that data written to it is compressed
+     * @param outputStream
+     * @return OutputStream
+     * @throws IOException
+     */
+    public OutputStream compress(OutputStream outputStream) throws IOException {
+        return switch (this) {
+            case NONE -> outputStream;
+            case GZIP -> new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(outputStream, new Deflater(Deflater.BEST_SPEED), BUFFER_SIZE);
+        };
+    }
+
+    /**
+     * Wrap the input stream so that data read from it is decompressed
+     * @param inputStream
+     * @return InputStream
+     * @throws IOException
+     */
+    public InputStream decompress(InputStream inputStream) throws IOException {
+        return switch (this) {
+            case NONE -> inputStream;
+            case GZIP -> new GZIPInputStream(inputStream, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(inputStream, new Inflater(), BUFFER_SIZE);
+        };
+    }
+
+    /**
+     * Codec for a name recorded in object metadata; unknown or missing names map to NONE
+     * @param codecName
+     * @return CompressionCodec
+     */
+    public static CompressionCodec fromName(String codecName) {
+        for (CompressionCodec codec : values()) {
+            if (codec.codecName.equalsIgnoreCase(codecName)) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Sniff the leading bytes of file content for the signatures of formats
+     * that are already compressed (archives, compressed streams, images,
+     * audio and video), which would not shrink any further.
+     *
+     * @param header the first bytes of the content, at least 12 for full detection
+     * @param length number of valid bytes in header
+     * @return true if the content is already compressed
+     */
+    public static boolean isAlreadyCompressed(byte[] header, int length) {
+        return startsWith(header, length, 0x1f, 0x8b)                         // gzip
+            || startsWith(header, length, 0x50, 0x4b, 0x03, 0x04)             // zip, jar, docx, xlsx
+            || startsWith(header, length, 'B', 'Z', 'h')                      // bzip2
+            || startsWith(header, length, 0xfd, '7', 'z', 'X', 'Z', 0x00)     // xz
+            || startsWith(header, length, 0x28, 0xb5, 0x2f, 0xfd)             // zstd
+            || startsWith(header, length, '7', 'z', 0xbc, 0xaf, 0x27, 0x1c)   // 7z
+            || startsWith(header, length, 'R', 'a', 'r', '!')                 // rar
+            || startsWith(header, length, 0x04, 0x22, 0x4d, 0x18)             // lz4
+            || startsWith(header, length, 0x89, 'P', 'N', 'G')                // png
+            || startsWith(header, length, 0xff, 0xd8, 0xff)                   // jpeg
+            || startsWith(header, length, 'G', 'I', 'F', '8')                 // gif
+            || startsWith(header, length, 'I', 'D', '3')                      // mp3
+            || startsWith(header, length, 'O', 'g', 'g', 'S')                 // ogg
+            || (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12
+                    && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') // webp
+            || (length >= 8 && header[4] == 'f' && header[5] == 't' && header[6] == 'y' && header[7] == 'p'); // mp4, mov, heic
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int index = 0; index < signature.length; index++) {
+            if ((header[index] & 0xff) != signature[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
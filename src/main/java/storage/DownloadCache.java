@@ -0,0 +1,169 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.db.DownloadCacheRepository;
+import util.FileUtil;
+
+/**
+ * DownloadCache keeps local copies of downloaded objects, keyed by bucket,
+ * key and ETag, within a byte budget.
+ *
+ * The index lives in SQLite so the cache survives restarts. When the cached
+ * copies exceed the budget, the least recently used ones are deleted. The
+ * cache does not decide whether a copy is still current; the cloud store
+ * checks that with a conditional GET on the cached ETag before using it.
+ *
+ * The cache never shares a file with local storage, so editing a downloaded
+ * file cannot change the bytes served for its ETag. Copies go through
+ * Files.copy, which on Linux uses copy_file_range and so clones the data
+ * instead of writing it on copy-on-write file systems.
+ */
+public class DownloadCache {
+    private static final Logger logger = LogManager.getLogger(DownloadCache.class);
+    private static final String CACHE_FILE_SUFFIX = ".cache";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final DownloadCacheRepository repository;
+    private final Path directory;
+    private volatile long maxBytes;
+
+    /**
+     * @param repository index of the cached copies
+     * @param directory directory holding the cached copies
+     * @param maxBytes byte budget of the cache, 0 disables caching
+     */
+    public DownloadCache(DownloadCacheRepository repository, Path directory, long maxBytes) {
+        this.repository = repository;
+        this.directory = directory;
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Change the byte budget, evicting entries above the new budget.
+     * @param maxBytes byte budget, 0 disables caching
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evict();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Find the cached copy of the object. An entry whose file is gone or
+     * changed size is dropped from the index.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     * @return the entry, or null if the object is not cached
+     */
+    public CachedObject find(String bucketName, String key) {
+        CachedObject entry = repository.findEntry(bucketName, key);
+        if (entry == null) {
+            return null;
+        }
+        Path cacheFile = directory.resolve(entry.getCacheFile());
+        if (!Files.isRegularFile(cacheFile) || cacheFile.toFile().length() != entry.getFileSize()) {
+            logger.info("Cached copy of {} is missing or modified, dropping entry", key);
+            repository.deleteEntry(bucketName, key);
+            deleteQuietly(cacheFile);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Copy the cached object to the target and mark it as recently used.
+     *
+     * @param entry the cached object
+     * @param target local destination file
+     * @return false if the cached copy could not be read, e.g. because it was just evicted
+     */
+    public boolean copyTo(CachedObject entry, Path target) {
+        Path tempPath = target.resolveSibling(target.getFileName() + TEMP_FILE_SUFFIX);
+        try {
+            Files.copy(directory.resolve(entry.getCacheFile()), tempPath, StandardCopyOption.REPLACE_EXISTING);
+            FileUtil.moveAtomically(tempPath, target);
+        } catch (IOException ex) {
+            logger.warn("Failed to copy cached {} error: {}", entry.getKey(), ex.getMessage());
+            deleteQuietly(tempPath);
+            return false;
+        }
+        repository.touch(entry.getBucketName(), entry.getKey(), new Date());
+        return true;
+    }
+
+    /**
+     * Add a copy of the downloaded file, replacing the copy of an older
+     * version of the object, and evict entries above the byte budget.
+     * Files larger than the whole budget are not cached.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     * @param eTag ETag of the downloaded version
+     * @param codec codec the object is stored with, or null
+     * @param source the downloaded file
+     * @throws IOException if the file cannot be copied into the cache
+     */
+    public void put(String bucketName, String key, String eTag, String codec, Path source) throws IOException {
+        long fileSize = Files.size(source);
+        if (fileSize > maxBytes) {
+            return;
+        }
+        Files.createDirectories(directory);
+        String cacheFile = UUID.randomUUID() + CACHE_FILE_SUFFIX;
+        Path tempPath = directory.resolve(cacheFile + TEMP_FILE_SUFFIX);
+        try {
+            Files.copy(source, tempPath);
+            FileUtil.moveAtomically(tempPath, directory.resolve(cacheFile));
+        } finally {
+            deleteQuietly(tempPath);
+        }
+        synchronized (this) {
+            CachedObject previous = repository.findEntry(bucketName, key);
+            repository.saveEntry(new CachedObject(bucketName, key, eTag, cacheFile, fileSize, codec, new Date()));
+            if (previous != null) {
+                deleteQuietly(directory.resolve(previous.getCacheFile()));
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Delete least recently used copies until the cache fits its budget.
+     */
+    private synchronized void evict() {
+        long totalSize = repository.totalSize();
+        if (totalSize <= maxBytes) {
+            return;
+        }
+        for (CachedObject entry : repository.findLeastRecentlyUsed()) {
+            if (totalSize <= maxBytes) {
+                break;
+            }
+            repository.deleteEntry(entry.getBucketName(), entry.getKey());
+            deleteQuietly(directory.resolve(entry.getCacheFile()));
+            totalSize -= entry.getFileSize();
+            logger.info("Evicted {} from the download cache", entry.getKey());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            logger.warn("Failed to delete {} error: {}", path, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package storage;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * FileChecksum holds the checksums of a local file in the form S3 reports
+ * them for the uploaded object, so local and remote state can be compared
+ * without downloading.
+ */
+public class FileChecksum {
+    private final long fileSize;
+    private final long partSize;
+    private final String eTag;
+    private final List<String> partMd5s;
+    private final Integer crc32c;
+
+    /**
+     * @param partSize part size the ETag was computed with, or 0 for a single PUT
+     * @param partMd5s hex MD5 of each part, in part number order
+     * @param crc32c CRC32C of the whole file, or null if not computed
+     */
+    public FileChecksum(long fileSize, long partSize, String eTag, List<String> partMd5s, Integer crc32c) {
+        this.fileSize = fileSize;
+        this.partSize = partSize;
+        this.eTag = eTag;
+        this.partMd5s = List.copyOf(partMd5s);
+        this.crc32c = crc32c;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+    /**
+     * @return part size the ETag was computed with, or 0 for a single PUT
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+    /**
+     * @return the ETag S3 reports for the file uploaded with the same part size
+     */
+    public String getETag() {
+        return eTag;
+    }
+    /**
+     * @return hex MD5 of the whole file, or null for a multipart ETag
+     */
+    public String getMd5() {
+        return partSize == 0 ? eTag : null;
+    }
+    public List<String> getPartMd5s() {
+        return partMd5s;
+    }
+    /**
+     * @return CRC32C of the whole file, or null if not computed
+     */
+    public Integer getCrc32c() {
+        return crc32c;
+    }
+
+    /**
+     * @return CRC32C encoded as S3 reports it in x-amz-checksum-crc32c, or null
+     */
+    public String getCrc32cBase64() {
+        return crc32c == null ? null : Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt(crc32c).array());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("FileChecksum{");
+        sb.append("fileSize=").append(fileSize);
+        sb.append(", partSize=").append(partSize);
+        sb.append(", eTag=").append(eTag);
+        sb.append(", crc32c=").append(getCrc32cBase64());
+        sb.append('}');
+        return sb.toString();
+    }
+}
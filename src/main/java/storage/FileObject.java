@@ -14,6 +14,8 @@ public class FileObject {
     private String filePath;
     private String checksum;
     private String version;
+    private String codec;
+    private String contentType;
 
     
     public String getFileName() {
@@ -66,6 +68,18 @@ public class FileObject {
     public void setVersion(String version) {
       this.version = version;
     }
+    public String getCodec() {
+      return codec;
+    }
+    public void setCodec(String codec) {
+      this.codec = codec;
+    }
+    public String getContentType() {
+      return contentType;
+    }
+    public void setContentType(String contentType) {
+      this.contentType = contentType;
+    }
     
 
     @Override
@@ -80,6 +94,8 @@ public class FileObject {
         sb.append(", filePath=").append(filePath);
         sb.append(", checkSum=").append(checksum);
         sb.append(", version=").append(version);
+        sb.append(", codec=").append(codec);
+        sb.append(", contentType=").append(contentType);
         sb.append('}');
         return sb.toString();
     }
@@ -136,6 +152,16 @@ public class FileObject {
            return this;
         }
 
+        public FileObjectBuilder setCodec(String codec) {
+           this.fileObject.setCodec(codec);
+           return this;
+        }
+
+        public FileObjectBuilder setContentType(String contentType) {
+           this.fileObject.setContentType(contentType);
+           return this;
+        }
+
         public FileObject build(){
           return fileObject;
         }
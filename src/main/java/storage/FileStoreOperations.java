@@ -1,7 +1,10 @@
 package storage;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Base File Storage Operations interface.
@@ -21,12 +24,26 @@ public interface FileStoreOperations {
     public FileObject save(File file) throws FileStoreException;
 
     /**
-     * Saves multiple files to the storage system.
+     * Saves the content of a stream of unknown length under the given key,
+     * uploading it while the stream is still being produced. The stream is
+     * read to its end but not closed.
+     *
+     * @param key the name to store the content under
+     * @param inputStream the content to be saved
+     * @return the saved file object
+     * @throws FileStoreException if reading the stream or the save operation fails
+     */
+    public FileObject save(String key, InputStream inputStream) throws FileStoreException;
+
+    /**
+     * Saves multiple files to the storage system. A failing file does not
+     * abort the batch; its error is reported in the returned result.
      *
      * @param files the list of files to be saved
-     * @throws FileStoreException if any of the file save operations fail
+     * @return per-file saved objects and failures
+     * @throws FileStoreException if the batch itself cannot be run
      */
-    public void saveAll(List<File> files) throws FileStoreException;
+    public BatchResult saveAll(List<File> files) throws FileStoreException;
 
     /**
      * Deletes a file from the storage system.
@@ -36,6 +53,51 @@ public interface FileStoreOperations {
      */
     public void delete(FileObject fileObject) throws FileStoreException;
 
+    /**
+     * Deletes many files from the storage system using as few requests as the
+     * backend allows. Failures are reported per file in the returned result.
+     *
+     * @param fileObjects the file objects to be deleted
+     * @return deleted file objects and failures keyed by file name
+     * @throws FileStoreException if the batch itself cannot be run
+     */
+    public BatchResult deleteAll(Collection<FileObject> fileObjects) throws FileStoreException;
+
+    /**
+     * Copies a file to another name inside the storage system without
+     * transferring its content through this machine.
+     *
+     * @param sourceKey the name of the file to copy
+     * @param targetKey the name of the copy, which must not exist yet
+     * @return the file object of the copy
+     * @throws FileStoreException if the source does not exist, the target exists or the copy fails
+     */
+    public FileObject copy(String sourceKey, String targetKey) throws FileStoreException;
+
+    /**
+     * Moves a file to another name inside the storage system: a copy
+     * followed by the deletion of the source.
+     *
+     * @param sourceKey the name of the file to move
+     * @param targetKey the new name, which must not exist yet
+     * @return the file object under its new name
+     * @throws FileStoreException if the source does not exist, the target exists or the move fails
+     */
+    public FileObject move(String sourceKey, String targetKey) throws FileStoreException;
+
+    /**
+     * Moves every file under a folder prefix to another prefix, keeping the
+     * paths below the prefix. Files are moved concurrently and a failing
+     * file does not abort the batch.
+     *
+     * @param sourcePrefix folder prefix ending with "/"
+     * @param targetPrefix new folder prefix ending with "/", which must not hold any file yet
+     * @return moved file objects under their new names, and failures keyed by old name
+     * @throws FileStoreException if the folder cannot be listed, the target folder is not empty
+     *         or the prefixes are invalid
+     */
+    public BatchResult renameFolder(String sourcePrefix, String targetPrefix) throws FileStoreException;
+
     /**
      * Loads all files currently stored in the storage system.
      *
@@ -44,6 +106,49 @@ public interface FileStoreOperations {
      */
     public List<FileObject> loadAll() throws FileStoreException;
 
+    /**
+     * Lists a single folder level: the sub folders directly under the prefix,
+     * as file objects of type folder, followed by the files directly under it.
+     *
+     * @param prefix folder prefix ending with "/", or empty for the root folder
+     * @return sub folders and files of the folder
+     * @throws FileStoreException if the listing fails
+     */
+    public List<FileObject> listFolder(String prefix) throws FileStoreException;
+
+    /**
+     * Reads the metadata of a single file without listing the storage:
+     * size, checksum (ETag), version, content type and last modified date.
+     *
+     * @param key the name the file is stored under
+     * @return the file object, or null if no such file exists
+     * @throws FileStoreException if the lookup fails
+     */
+    public FileObject stat(String key) throws FileStoreException;
+
+    /**
+     * Reads the metadata of many files, looking them up concurrently. A
+     * failed lookup is reported for its key without discarding the others.
+     *
+     * @param keys the names the files are stored under
+     * @return file objects of the files found, in key order, and the lookups
+     *         that failed; missing files appear in neither
+     * @throws FileStoreException if the batch is interrupted
+     */
+    public BatchResult statAll(Collection<String> keys) throws FileStoreException;
+
+    /**
+     * Lazily streams all files in the storage system. Pages of the listing are
+     * fetched as the stream is consumed, so callers can start processing the
+     * first page while later pages are still being fetched.
+     * The returned stream should be closed when the caller stops early.
+     *
+     * @param prefetch true to fetch pages ahead of the consumer in the background
+     * @return stream of file objects available in the storage
+     * @throws FileStoreException if the listing cannot be started
+     */
+    public Stream<FileObject> streamAll(boolean prefetch) throws FileStoreException;
+
     /**
      * Down a fileobject from the cloud storage to local directory 
      * @param fileObject
@@ -0,0 +1,86 @@
+package storage;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FolderListingCache keeps the most recently used folder listings, keyed by
+ * prefix, for a limited time.
+ *
+ * Entries are evicted least recently used first once the cache is full.
+ * Writes under a prefix invalidate the listing of that folder and of every
+ * parent folder, because a new key can also add a new sub folder entry to
+ * the parents.
+ */
+public class FolderListingCache {
+    private final Map<String, CachedListing> listings;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    /**
+     * @param maxEntries maximum number of cached folders, 0 disables the cache
+     * @param ttl how long a listing stays valid
+     */
+    public FolderListingCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.listings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedListing> eldest) {
+                return size() > FolderListingCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the cached listing of the prefix, or null if absent or expired
+     * @param prefix
+     * @return List
+     */
+    public synchronized List<FileObject> get(String prefix) {
+        CachedListing cachedListing = listings.get(prefix);
+        if (cachedListing == null) {
+            return null;
+        }
+        if (System.nanoTime() - cachedListing.cachedAtNanos() > ttl.toNanos()) {
+            listings.remove(prefix);
+            return null;
+        }
+        return cachedListing.fileObjects();
+    }
+
+    /**
+     * Cache the listing of the prefix
+     * @param prefix
+     * @param fileObjects
+     */
+    public synchronized void put(String prefix, List<FileObject> fileObjects) {
+        if (maxEntries > 0) {
+            listings.put(prefix, new CachedListing(List.copyOf(fileObjects), System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drop the listings of the folder holding the key and of all its parents
+     * @param key object key that was written or deleted
+     */
+    public synchronized void invalidate(String key) {
+        int separator = key.lastIndexOf('/', key.endsWith("/") ? key.length() - 2 : key.length() - 1);
+        while (separator >= 0) {
+            listings.remove(key.substring(0, separator + 1));
+            separator = key.lastIndexOf('/', separator - 1);
+        }
+        listings.remove("");
+    }
+
+    /**
+     * Drop all cached listings
+     */
+    public synchronized void clear() {
+        listings.clear();
+    }
+
+    private record CachedListing(List<FileObject> fileObjects, long cachedAtNanos) {}
+}
@@ -0,0 +1,144 @@
+package storage;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * HedgedGet issues GET and range requests with a deadline and hedging.
+ *
+ * The SDK returns from getObject once the response headers arrive, so the
+ * time getObject takes is the time to first byte. When a request has not
+ * returned by the p95 of recent requests, a duplicate request is sent and
+ * whichever returns first is used; the content of the slower one is aborted.
+ * Hedging starts once the latency tracker has enough samples, and costs at
+ * most about 5% extra requests. A request that has not returned within the
+ * request timeout fails with a retryable timeout.
+ */
+public class HedgedGet {
+    private static final Logger logger = LogManager.getLogger(HedgedGet.class);
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final Executor REQUEST_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-get-", 0).factory());
+
+    private final AmazonS3 s3Client;
+    private final LatencyTracker latencyTracker;
+    private final Duration requestTimeout;
+    private final boolean hedgingEnabled;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param latencyTracker latencies of earlier requests, shared between downloads
+     * @param requestTimeout deadline for the first byte of a request
+     * @param hedgingEnabled false to only apply the deadline
+     */
+    public HedgedGet(AmazonS3 s3Client, LatencyTracker latencyTracker, Duration requestTimeout,
+                     boolean hedgingEnabled) {
+        this.s3Client = s3Client;
+        this.latencyTracker = latencyTracker;
+        this.requestTimeout = requestTimeout;
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * GET the object, hedging the request when it is slower than usual.
+     *
+     * @param request the GET or range request
+     * @return the object, or null when an ETag constraint was not met
+     * @throws AmazonClientException if both requests fail or the deadline passes
+     */
+    public S3Object getObject(GetObjectRequest request) {
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        CompletableFuture<S3Object> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        send(request, winner, pending);
+        long hedgeDelay = hedgingEnabled ? latencyTracker.percentile(HEDGE_PERCENTILE) : -1;
+        try {
+            if (hedgeDelay >= 0) {
+                try {
+                    return winner.get(Math.min(hedgeDelay, remainingMillis(deadline)), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ex) {
+                    if (remainingMillis(deadline) > 0 && pending.incrementAndGet() > 1) {
+                        logger.info("Hedging GET of {} after {} ms", request.getKey(), hedgeDelay);
+                        send((GetObjectRequest) request.clone(), winner, pending);
+                    }
+                }
+            }
+            return winner.get(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // late responses are closed when they arrive
+            winner.completeExceptionally(ex);
+            throw new ClientExecutionTimeoutException(String.format(
+                    "GET of %s did not respond within %d ms", request.getKey(), requestTimeout.toMillis()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            winner.completeExceptionally(ex);
+            throw new AbortedException("GET interrupted: " + request.getKey(), ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof AmazonClientException clientException) {
+                throw clientException;
+            }
+            throw new SdkClientException("GET failed: " + request.getKey(), ex.getCause());
+        }
+    }
+
+    /**
+     * Send the request on its own thread. The first response completes the
+     * winner; a response arriving after that is aborted. The winner fails
+     * only once every request sent has failed.
+     */
+    private void send(GetObjectRequest request, CompletableFuture<S3Object> winner, AtomicInteger pending) {
+        long start = System.nanoTime();
+        CompletableFuture.supplyAsync(() -> s3Client.getObject(request), REQUEST_EXECUTOR)
+                .whenComplete((s3Object, error) -> {
+                    if (error == null) {
+                        latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        if (!winner.complete(s3Object)) {
+                            abort(s3Object);
+                        }
+                    } else if (pending.decrementAndGet() == 0) {
+                        winner.completeExceptionally(error.getCause() != null ? error.getCause() : error);
+                    }
+                });
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Drop the connection of a response that lost the race, or whose
+     * content is no longer needed, instead of reading its content to the end.
+     */
+    static void abort(S3Object s3Object) {
+        if (s3Object == null) {
+            return;
+        }
+        S3ObjectInputStream content = s3Object.getObjectContent();
+        if (content != null) {
+            content.abort();
+        }
+        try {
+            s3Object.close();
+        } catch (Exception ex) {
+            logger.debug("Failed to close hedged response: {}", ex.getMessage());
+        }
+    }
+}
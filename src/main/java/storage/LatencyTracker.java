@@ -0,0 +1,65 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * LatencyTracker keeps a sliding window of recent request latencies and
+ * reports percentiles over it, e.g. the p95 time to first byte used to
+ * decide when a read is hedged.
+ */
+public class LatencyTracker {
+    public static final int DEFAULT_WINDOW = 256;
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    private final long[] samples;
+    private final int minSamples;
+    private int count;
+    private int next;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * @param window number of most recent samples kept
+     * @param minSamples samples needed before percentiles are reported
+     */
+    public LatencyTracker(int window, int minSamples) {
+        this.samples = new long[Math.max(1, window)];
+        this.minSamples = Math.max(1, Math.min(minSamples, samples.length));
+    }
+
+    /**
+     * Record the latency of a completed request.
+     *
+     * @param millis latency in milliseconds
+     */
+    public synchronized void record(long millis) {
+        samples[next] = Math.max(0, millis);
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Latency below which the given fraction of recent requests completed.
+     *
+     * @param percentile between 0 and 100
+     * @return latency in milliseconds, or -1 while there are too few samples
+     */
+    public synchronized long percentile(double percentile) {
+        if (count < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    /**
+     * @return number of samples in the window
+     */
+    public synchronized int getSampleCount() {
+        return count;
+    }
+}
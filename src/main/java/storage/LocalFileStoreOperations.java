@@ -0,0 +1,494 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import util.FileUtil;
+
+/**
+ * LocalFileStoreOperations implements FileStoreOperations on a local
+ * directory, such as a mounted NAS share. Object keys map to paths below the
+ * root directory, with "/" separating folders.
+ *
+ * Files are copied with FileChannel.transferTo, which lets the kernel move
+ * the bytes without copying them through the Java heap, into a temporary
+ * file that is then moved into place, so readers never see a partial file.
+ * Batches run concurrently on virtual threads, bounded by
+ * TransferConfig.batchConcurrency. Moves and folder renames are file system
+ * renames. Listings walk the tree once and take size and modification date
+ * from the attributes read during the walk.
+ */
+public class LocalFileStoreOperations implements FileStoreOperations {
+    private static final Logger logger = LogManager.getLogger(LocalFileStoreOperations.class);
+    private static final String TEMP_FILE_SUFFIX = ".fso-tmp";
+
+    private final Path rootDirectory;
+    private TransferConfig transferConfig = new TransferConfig();
+
+    /**
+     * @param rootDirectory directory holding the stored files, created if missing
+     */
+    public LocalFileStoreOperations(String rootDirectory) {
+        this(Paths.get(rootDirectory));
+    }
+
+    /**
+     * @param rootDirectory directory holding the stored files, created if missing
+     */
+    public LocalFileStoreOperations(Path rootDirectory) {
+        this.rootDirectory = rootDirectory.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.rootDirectory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create storage directory " + rootDirectory, ex);
+        }
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    public TransferConfig getTransferConfig() {
+        return transferConfig;
+    }
+
+    public void setTransferConfig(TransferConfig transferConfig) {
+        this.transferConfig = transferConfig;
+    }
+
+    /**
+     * Copy the file into the root directory under its name.
+     *
+     * @param file file to store
+     * @throws FileStoreException if the file cannot be copied
+     */
+    @Override
+    public FileObject save(File file) throws FileStoreException {
+        if (file == null || !file.isFile()) {
+            throw new FileStoreException("File not found: " + file);
+        }
+        Path target = resolve(file.getName());
+        try {
+            if (!Files.exists(target) || !Files.isSameFile(file.toPath(), target)) {
+                copyFile(file.toPath(), target);
+            }
+            return toFileObject(target, Files.readAttributes(target, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            logger.error("Failed to save {} error: {}", file.getName(), ex.getMessage());
+            throw new FileStoreException("Failed to save file: " + file.getName(), ex);
+        }
+    }
+
+    /**
+     * Write the stream to the key through a temporary file.
+     *
+     * @param key key to store the content under
+     * @param inputStream content to store; read to its end but not closed
+     * @throws FileStoreException if the content cannot be written
+     */
+    @Override
+    public FileObject save(String key, InputStream inputStream) throws FileStoreException {
+        Path target = resolve(key);
+        Path tempPath = tempPath(target);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.copy(inputStream, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            FileUtil.moveAtomically(tempPath, target);
+            return toFileObject(target, Files.readAttributes(target, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            deleteQuietly(tempPath);
+            logger.error("Failed to save {} error: {}", key, ex.getMessage());
+            throw new FileStoreException("Failed to save file: " + key, ex);
+        }
+    }
+
+    /**
+     * Copy all files concurrently on virtual threads, at most
+     * TransferConfig.batchConcurrency at once.
+     *
+     * @param files files to store
+     * @return stored files and failures keyed by file name
+     * @throws FileStoreException if the batch is interrupted
+     */
+    @Override
+    public BatchResult saveAll(List<File> files) throws FileStoreException {
+        BatchResult batchResult = new BatchResult();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (File file : files) {
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        batchResult.addCompleted(save(file));
+                    } catch (FileStoreException ex) {
+                        batchResult.addFailure(file.getName(), ex);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Batch save interrupted", ex);
+        }
+        return batchResult;
+    }
+
+    /**
+     * Delete the file and any folders left empty by its removal.
+     *
+     * @param fileObject file to delete
+     * @throws FileStoreException if the file cannot be deleted
+     */
+    @Override
+    public void delete(FileObject fileObject) throws FileStoreException {
+        if (fileObject == null || fileObject.getFileName() == null || fileObject.getFileName().isEmpty()) return;
+        Path path = resolve(fileObject.getFileName());
+        try {
+            Files.deleteIfExists(path);
+            deleteEmptyParents(path);
+        } catch (IOException ex) {
+            logger.error("Failed to delete {} error: {}", fileObject.getFileName(), ex.getMessage());
+            throw new FileStoreException("Failed to delete file: " + fileObject.getFileName(), ex);
+        }
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<FileObject> fileObjects) throws FileStoreException {
+        BatchResult batchResult = new BatchResult();
+        for (FileObject fileObject : fileObjects) {
+            try {
+                delete(fileObject);
+                batchResult.addCompleted(fileObject);
+            } catch (FileStoreException ex) {
+                batchResult.addFailure(fileObject.getFileName(), ex);
+            }
+        }
+        return batchResult;
+    }
+
+    @Override
+    public FileObject copy(String sourceKey, String targetKey) throws FileStoreException {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        if (!Files.isRegularFile(source)) {
+            throw new FileStoreException("File not found: " + sourceKey);
+        }
+        if (source.equals(target)) {
+            throw new FileStoreException("Cannot copy file onto itself: " + sourceKey);
+        }
+        if (Files.exists(target)) {
+            throw new FileStoreException("File already exists: " + targetKey);
+        }
+        try {
+            copyFile(source, target);
+            return toFileObject(target, Files.readAttributes(target, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            logger.error("Failed to copy {} to {} error: {}", sourceKey, targetKey, ex.getMessage());
+            throw new FileStoreException("Failed to copy file: " + sourceKey, ex);
+        }
+    }
+
+    @Override
+    public FileObject move(String sourceKey, String targetKey) throws FileStoreException {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        if (!Files.isRegularFile(source)) {
+            throw new FileStoreException("File not found: " + sourceKey);
+        }
+        if (Files.exists(target)) {
+            throw new FileStoreException("File already exists: " + targetKey);
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            FileUtil.moveAtomically(source, target);
+            deleteEmptyParents(source);
+            return toFileObject(target, Files.readAttributes(target, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            logger.error("Failed to move {} to {} error: {}", sourceKey, targetKey, ex.getMessage());
+            throw new FileStoreException("Failed to move file: " + sourceKey, ex);
+        }
+    }
+
+    /**
+     * Rename the folder with a single file system rename.
+     */
+    @Override
+    public BatchResult renameFolder(String sourcePrefix, String targetPrefix) throws FileStoreException {
+        if (sourcePrefix == null || targetPrefix == null || !sourcePrefix.endsWith(FileUtil.FOLDER_DELIMITER)
+                || !targetPrefix.endsWith(FileUtil.FOLDER_DELIMITER)) {
+            throw new FileStoreException("Folder prefixes must end with " + FileUtil.FOLDER_DELIMITER);
+        }
+        if (targetPrefix.startsWith(sourcePrefix) || sourcePrefix.startsWith(targetPrefix)) {
+            throw new FileStoreException("Cannot move folder " + sourcePrefix + " to " + targetPrefix);
+        }
+        Path source = resolve(sourcePrefix);
+        Path target = resolve(targetPrefix);
+        if (!Files.isDirectory(source)) {
+            throw new FileStoreException("Folder not found: " + sourcePrefix);
+        }
+        if (Files.exists(target)) {
+            throw new FileStoreException("Folder already exists: " + targetPrefix);
+        }
+        BatchResult batchResult = new BatchResult();
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target);
+            deleteEmptyParents(source);
+            walk(target).forEach(batchResult::addCompleted);
+        } catch (IOException ex) {
+            logger.error("Failed to move folder {} to {} error: {}", sourcePrefix, targetPrefix, ex.getMessage());
+            throw new FileStoreException("Failed to move folder: " + sourcePrefix, ex);
+        }
+        return batchResult;
+    }
+
+    /**
+     * List every file below the root directory with a single tree walk.
+     */
+    @Override
+    public List<FileObject> loadAll() throws FileStoreException {
+        try {
+            return walk(rootDirectory);
+        } catch (IOException ex) {
+            logger.error("Failed to list {} error: {}", rootDirectory, ex.getMessage());
+            throw new FileStoreException("Failed to list files", ex);
+        }
+    }
+
+    @Override
+    public List<FileObject> listFolder(String prefix) throws FileStoreException {
+        String folderPrefix = prefix == null ? "" : prefix;
+        Path folder = folderPrefix.isEmpty() ? rootDirectory : resolve(folderPrefix);
+        List<FileObject> folders = new ArrayList<>();
+        List<FileObject> files = new ArrayList<>();
+        if (!Files.isDirectory(folder)) {
+            return files;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    folders.add(FileObject.builder()
+                            .setFileName(folderPrefix + entry.getFileName() + FileUtil.FOLDER_DELIMITER)
+                            .setBucketName(rootDirectory.toString())
+                            .setFileType(FileUtil.FOLDER_OBJECT_TYPE)
+                            .build());
+                } else if (attributes.isRegularFile() && !isTempFile(entry)) {
+                    files.add(toFileObject(entry, attributes));
+                }
+            }
+        } catch (IOException ex) {
+            logger.error("Failed to list folder {} error: {}", folderPrefix, ex.getMessage());
+            throw new FileStoreException("Failed to list folder: " + folderPrefix, ex);
+        }
+        folders.sort(Comparator.comparing(FileObject::getFileName));
+        files.sort(Comparator.comparing(FileObject::getFileName));
+        folders.addAll(files);
+        return folders;
+    }
+
+    @Override
+    public FileObject stat(String key) throws FileStoreException {
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? toFileObject(path, attributes) : null;
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw new FileStoreException("Failed to read file attributes: " + key, ex);
+        }
+    }
+
+    @Override
+    public BatchResult statAll(Collection<String> keys) throws FileStoreException {
+        BatchResult batchResult = new BatchResult();
+        for (String key : new LinkedHashSet<>(keys)) {
+            try {
+                FileObject fileObject = stat(key);
+                if (fileObject != null) {
+                    batchResult.addCompleted(fileObject);
+                }
+            } catch (FileStoreException ex) {
+                batchResult.addFailure(key, ex);
+            }
+        }
+        return batchResult;
+    }
+
+    /**
+     * Stream the files below the root directory as the tree is walked.
+     * The prefetch flag has no effect on a local directory.
+     */
+    @Override
+    public Stream<FileObject> streamAll(boolean prefetch) throws FileStoreException {
+        try {
+            return Files.find(rootDirectory, Integer.MAX_VALUE,
+                            (path, attributes) -> attributes.isRegularFile() && !isTempFile(path))
+                    .map(path -> {
+                        try {
+                            return toFileObject(path, Files.readAttributes(path, BasicFileAttributes.class));
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+        } catch (IOException ex) {
+            throw new FileStoreException("Failed to list files", ex);
+        }
+    }
+
+    /**
+     * Copy the stored file to the local download directory.
+     */
+    @Override
+    public File downloadFile(FileObject fileObject) throws FileStoreException {
+        Path source = resolve(fileObject.getFileName());
+        Path downloadPath = Paths.get(FileUtil.LOCAL_STORAGE_DIR, fileObject.getFileName());
+        try {
+            copyFile(source, downloadPath);
+            return downloadPath.toFile();
+        } catch (IOException ex) {
+            logger.error("Failed to download {} error: {}", fileObject.getFileName(), ex.getMessage());
+            throw new FileStoreException("Failed to download file: " + fileObject.getFileName(), ex);
+        }
+    }
+
+    /**
+     * Copy with FileChannel.transferTo into a temporary file next to the
+     * target, then move it into place.
+     */
+    private void copyFile(Path source, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path tempPath = tempPath(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        } catch (IOException ex) {
+            deleteQuietly(tempPath);
+            throw ex;
+        }
+        FileUtil.moveAtomically(tempPath, target);
+    }
+
+    /**
+     * Walk the tree once, taking file attributes from the walk itself.
+     */
+    private List<FileObject> walk(Path start) throws IOException {
+        List<FileObject> fileObjects = new ArrayList<>();
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && !isTempFile(file)) {
+                    fileObjects.add(toFileObject(file, attributes));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                logger.warn("Skipping unreadable {} error: {}", file, ex.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return fileObjects;
+    }
+
+    /**
+     * Map a key to a path below the root directory, rejecting keys that
+     * would escape it.
+     */
+    private Path resolve(String key) throws FileStoreException {
+        if (key == null || key.isEmpty()) {
+            throw new FileStoreException("Empty file key");
+        }
+        Path path = rootDirectory.resolve(key).normalize();
+        if (!path.startsWith(rootDirectory) || path.equals(rootDirectory)) {
+            throw new FileStoreException("Invalid file key: " + key);
+        }
+        return path;
+    }
+
+    private String keyOf(Path path) {
+        return rootDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private FileObject toFileObject(Path path, BasicFileAttributes attributes) {
+        return FileObject.builder()
+                .setFileName(keyOf(path))
+                .setFilePath(path.toString())
+                .setBucketName(rootDirectory.toString())
+                .setFileSize(attributes.size())
+                .setLastModifiedDate(new Date(attributes.lastModifiedTime().toMillis()))
+                .setVersion("1")
+                .build();
+    }
+
+    /**
+     * Remove folders emptied by a delete or move, up to the root directory.
+     */
+    private void deleteEmptyParents(Path path) {
+        Path parent = path.getParent();
+        while (parent != null && !parent.equals(rootDirectory) && parent.startsWith(rootDirectory)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(parent)) {
+                if (entries.iterator().hasNext()) {
+                    return;
+                }
+            } catch (IOException ex) {
+                return;
+            }
+            if (!parent.toFile().delete()) {
+                return;
+            }
+            parent = parent.getParent();
+        }
+    }
+
+    private static Path tempPath(Path target) {
+        return target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + TEMP_FILE_SUFFIX);
+    }
+
+    private static boolean isTempFile(Path path) {
+        return path.getFileName().toString().endsWith(TEMP_FILE_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            logger.warn("Failed to delete {} error: {}", path, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * ParallelChunkInputStream reads its source in fixed size chunks, transforms
+ * the chunks concurrently on an executor and returns the transformed bytes in
+ * the original chunk order.
+ *
+ * At most window chunks are read ahead of the consumer, so memory is bounded
+ * by window times the chunk size while every core can work on a chunk.
+ */
+public class ParallelChunkInputStream extends InputStream {
+    private final InputStream source;
+    private final int chunkSize;
+    private final ChunkTransform transform;
+    private final Executor executor;
+    private final int window;
+    private final Deque<CompletableFuture<byte[]>> pendingChunks = new ArrayDeque<>();
+    private byte[] lookahead;
+    private long nextChunkIndex;
+    private boolean sourceExhausted;
+    private byte[] current = new byte[0];
+    private int position;
+
+    /**
+     * Transformation applied to each chunk.
+     */
+    @FunctionalInterface
+    public interface ChunkTransform {
+        /**
+         * @param chunk chunk content; shorter than the chunk size only for the last chunk
+         * @param chunkIndex 0-based position of the chunk in the stream
+         * @param lastChunk true for the final chunk of the stream
+         * @return the transformed chunk
+         * @throws Exception if the chunk cannot be transformed
+         */
+        byte[] apply(byte[] chunk, long chunkIndex, boolean lastChunk) throws Exception;
+    }
+
+    /**
+     * @param source stream to read chunks from; closed with this stream
+     * @param chunkSize size of each source chunk
+     * @param transform transformation applied to every chunk
+     * @param executor executor running the transformations
+     * @param window maximum number of chunks in flight
+     */
+    public ParallelChunkInputStream(InputStream source, int chunkSize, ChunkTransform transform,
+                                    Executor executor, int window) {
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.transform = transform;
+        this.executor = executor;
+        this.window = Math.max(1, window);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int bytesRead = read(single, 0, 1);
+        return bytesRead < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (position == current.length) {
+            if (!nextTransformedChunk()) {
+                return -1;
+            }
+        }
+        int bytesRead = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, bytesRead);
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pendingChunks.forEach(future -> future.cancel(false));
+        pendingChunks.clear();
+        source.close();
+    }
+
+    /**
+     * Keep the window filled and wait for the oldest chunk in flight.
+     *
+     * @return false once every chunk has been returned
+     */
+    private boolean nextTransformedChunk() throws IOException {
+        fillWindow();
+        CompletableFuture<byte[]> next = pendingChunks.pollFirst();
+        if (next == null) {
+            return false;
+        }
+        try {
+            current = next.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            throw cause instanceof IOException ioException ? ioException
+                    : new IOException("Failed to transform chunk: " + cause.getMessage(), cause);
+        }
+        position = 0;
+        return true;
+    }
+
+    private void fillWindow() throws IOException {
+        while (!sourceExhausted && pendingChunks.size() < window) {
+            if (nextChunkIndex == 0 && lookahead == null) {
+                lookahead = readChunk();
+                if (lookahead == null) {
+                    // an empty source still produces one, empty, last chunk
+                    lookahead = new byte[0];
+                }
+            }
+            byte[] chunk = lookahead;
+            lookahead = chunk.length < chunkSize ? null : readChunk();
+            boolean lastChunk = lookahead == null;
+            long chunkIndex = nextChunkIndex++;
+            pendingChunks.addLast(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transform.apply(chunk, chunkIndex, lastChunk);
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor));
+            sourceExhausted = lastChunk;
+        }
+    }
+
+    /**
+     * Read the next chunk, shorter only at the end of the source.
+     *
+     * @return the chunk, or null at the end of the source
+     */
+    private byte[] readChunk() throws IOException {
+        byte[] chunk = source.readNBytes(chunkSize);
+        if (chunk.length == 0) {
+            return null;
+        }
+        return chunk.length == chunkSize ? chunk : Arrays.copyOf(chunk, chunk.length);
+    }
+}
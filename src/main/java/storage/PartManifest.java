@@ -0,0 +1,84 @@
+package storage;
+
+import java.util.List;
+
+/**
+ * PartManifest records how an object was last uploaded in parts: its ETag,
+ * size, part size and the MD5 of every part. A later upload of a modified
+ * version of the file compares its parts against the manifest and copies the
+ * unchanged ones server-side instead of sending them again.
+ */
+public class PartManifest {
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+    private final long objectSize;
+    private final long partSize;
+    private final List<String> partHashes;
+
+    /**
+     * @param partHashes hex MD5 of each part, in part number order
+     */
+    public PartManifest(String bucketName, String key, String eTag, long objectSize, long partSize,
+                        List<String> partHashes) {
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+        this.objectSize = objectSize;
+        this.partSize = partSize;
+        this.partHashes = List.copyOf(partHashes);
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+    public String getKey() {
+        return key;
+    }
+    /**
+     * @return ETag of the object the parts belong to
+     */
+    public String getETag() {
+        return eTag;
+    }
+    public long getObjectSize() {
+        return objectSize;
+    }
+    public long getPartSize() {
+        return partSize;
+    }
+    public List<String> getPartHashes() {
+        return partHashes;
+    }
+
+    /**
+     * @param partNumber 1-based part number
+     * @return hex MD5 of the part, or null if the object has no such part
+     */
+    public String getPartHash(int partNumber) {
+        return partNumber >= 1 && partNumber <= partHashes.size() ? partHashes.get(partNumber - 1) : null;
+    }
+
+    /**
+     * @param partNumber 1-based part number
+     * @return length in bytes of the part in the object
+     */
+    public long getPartLength(int partNumber) {
+        long offset = (partNumber - 1) * partSize;
+        return Math.max(0, Math.min(partSize, objectSize - offset));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PartManifest{");
+        sb.append("bucketName=").append(bucketName);
+        sb.append(", key=").append(key);
+        sb.append(", eTag=").append(eTag);
+        sb.append(", objectSize=").append(objectSize);
+        sb.append(", partSize=").append(partSize);
+        sb.append(", parts=").append(partHashes.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package storage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+
+/**
+ * PartUploads holds the shutdown and abort steps of multipart uploads
+ * shared by S3MultipartUploader, S3StreamUploader and S3ObjectCopier. Part
+ * requests are retried by RetryPolicy like every other request.
+ */
+final class PartUploads {
+    private static final Logger logger = LogManager.getLogger(PartUploads.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private PartUploads() {
+    }
+
+    /**
+     * Cancel queued parts and wait for parts already in flight, so no part
+     * request reaches S3 after the upload is aborted or reported as failed.
+     * Call it before restoring the interrupt flag, or the wait returns at once.
+     */
+    static void stop(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Part uploads still running after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Abort the multipart upload so the uploaded parts are discarded.
+     */
+    static void abort(AmazonS3 s3Client, String bucketName, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to abort multipart upload {} error: {}", uploadId, ex.getMessage());
+        }
+    }
+}
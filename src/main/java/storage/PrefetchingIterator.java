@@ -0,0 +1,90 @@
+package storage;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * PrefetchingIterator drains a source iterator on a background thread into a
+ * bounded queue, so the next elements are already in flight while the consumer
+ * processes the current one. The queue capacity bounds how far the producer
+ * may run ahead.
+ *
+ * @param <T> element type
+ */
+public class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Thread producer;
+    private Object nextItem;
+
+    /**
+     * Starts fetching immediately.
+     *
+     * @param source iterator to drain; only touched by the producer thread
+     * @param capacity maximum number of elements buffered ahead of the consumer
+     */
+    public PrefetchingIterator(Iterator<T> source, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.producer = Thread.ofVirtual().name("prefetch-producer").start(() -> produce(source));
+    }
+
+    private void produce(Iterator<T> source) {
+        try {
+            try {
+                while (source.hasNext()) {
+                    queue.put(source.next());
+                }
+                queue.put(END);
+            } catch (RuntimeException | Error ex) {
+                // forward errors too, or the consumer would block on take() forever
+                queue.put(new Failure(ex));
+            }
+        } catch (InterruptedException ex) {
+            // consumer closed the iterator
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextItem == null) {
+            try {
+                nextItem = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for prefetched element", ex);
+            }
+        }
+        if (nextItem instanceof Failure failure) {
+            if (failure.cause() instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) failure.cause();
+        }
+        return nextItem != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = (T) nextItem;
+        nextItem = null;
+        return item;
+    }
+
+    /**
+     * Stop the producer thread and drop any buffered elements.
+     */
+    @Override
+    public void close() {
+        producer.interrupt();
+        queue.clear();
+    }
+
+    private record Failure(Throwable cause) {}
+}
@@ -0,0 +1,144 @@
+package storage;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+
+/**
+ * RetryPolicy retries S3 requests that failed with throttling, a 5xx
+ * response or a transient client error, sleeping a jittered exponential
+ * backoff between attempts ("full jitter": a random delay up to the doubled
+ * base delay, capped at the maximum delay), so clients backing off from a
+ * throttled bucket do not retry in lock step.
+ *
+ * Other errors, such as access denied or not found, are thrown at once.
+ * Only idempotent requests with repeatable content should be retried.
+ */
+public class RetryPolicy {
+    private static final Logger logger = LogManager.getLogger(RetryPolicy.class);
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(429, 500, 502, 503, 504);
+    private static final Set<String> THROTTLING_ERROR_CODES = Set.of(
+            "SlowDown", "Throttling", "ThrottlingException", "RequestLimitExceeded", "RequestTimeout");
+
+    private final int maxRetries;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Duration requestTimeout;
+
+    /**
+     * S3 request run by the retry policy
+     */
+    @FunctionalInterface
+    public interface S3Call<T> {
+        T call();
+    }
+
+    /**
+     * @param maxRetries retries after the first attempt
+     * @param baseDelay backoff before the first retry, doubled for each further retry
+     * @param maxDelay upper bound of the backoff
+     * @param requestTimeout deadline of a single attempt
+     */
+    public RetryPolicy(int maxRetries, Duration baseDelay, Duration maxDelay, Duration requestTimeout) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Create the policy from the retry settings of the transfer config
+     * @param transferConfig
+     * @return RetryPolicy
+     */
+    public static RetryPolicy from(TransferConfig transferConfig) {
+        return new RetryPolicy(transferConfig.getMaxRequestRetries(), transferConfig.getRetryBaseDelay(),
+                transferConfig.getRetryMaxDelay(), transferConfig.getRequestTimeout());
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Apply the per attempt deadline to a request whose response is read
+     * completely by the client, such as HEAD or DELETE. The SDK aborts the
+     * attempt once the deadline passes.
+     * @param request
+     * @return the request
+     */
+    public <R extends AmazonWebServiceRequest> R withDeadline(R request) {
+        request.setSdkClientExecutionTimeout((int) Math.min(Integer.MAX_VALUE, requestTimeout.toMillis()));
+        return request;
+    }
+
+    /**
+     * Run the call, retrying retryable failures with backoff.
+     * @param operation description of the request for logging
+     * @param call the request
+     * @return the result of the call
+     * @throws AmazonClientException the error of the last attempt, or a non retryable error
+     */
+    public <T> T execute(String operation, S3Call<T> call) {
+        int attempt = 0;
+        while (true) {
+            try {
+                return call.call();
+            } catch (AmazonClientException ex) {
+                if (attempt >= maxRetries || !isRetryable(ex)) {
+                    throw ex;
+                }
+                long delay = backoffMillis(attempt++);
+                logger.warn("Retrying {} in {} ms (attempt {}) error: {}", operation, delay, attempt, ex.getMessage());
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Whether the error is throttling, a 5xx response or a transient
+     * client side error such as a timeout or connection reset.
+     * @param ex
+     * @return boolean
+     */
+    public static boolean isRetryable(AmazonClientException ex) {
+        if (ex instanceof AbortedException || ex instanceof MultiObjectDeleteException) {
+            return false;
+        }
+        if (ex instanceof AmazonServiceException serviceException) {
+            return RETRYABLE_STATUS_CODES.contains(serviceException.getStatusCode())
+                    || (serviceException.getErrorCode() != null
+                            && THROTTLING_ERROR_CODES.contains(serviceException.getErrorCode()));
+        }
+        return ex.isRetryable();
+    }
+
+    /**
+     * Random delay between zero and the exponential backoff of the attempt.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Retry interrupted", ex);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * S3AsyncCloudStoreOperations runs the blocking S3 cloud store operations on
+ * a dedicated executor and exposes them as CompletableFutures.
+ * 
+ * Each operation runs on its own virtual thread, and a semaphore bounds how many
+ * requests are in flight against S3 at once; further operations wait their turn.
+ */
+public class S3AsyncCloudStoreOperations implements AsyncFileStoreOperations, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(S3AsyncCloudStoreOperations.class);
+    private final FileStoreOperations fileStoreOperations;
+    private final ExecutorService executor;
+    private final Semaphore inFlightPermits;
+
+    /**
+     * @param fileStoreOperations blocking S3 cloud store operations to delegate to
+     * @param maxInFlight maximum number of operations running at once
+     */
+    public S3AsyncCloudStoreOperations(FileStoreOperations fileStoreOperations, int maxInFlight) {
+        this.fileStoreOperations = fileStoreOperations;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-async-", 0).factory());
+        this.inFlightPermits = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    @Override
+    public CompletableFuture<FileObject> saveAsync(File file) {
+        return submit(() -> fileStoreOperations.save(file));
+    }
+
+    @Override
+    public CompletableFuture<File> downloadFileAsync(FileObject fileObject) {
+        return submit(() -> fileStoreOperations.downloadFile(fileObject));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(FileObject fileObject) {
+        return submit(() -> {
+            fileStoreOperations.delete(fileObject);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<FileObject>> loadAllAsync() {
+        return submit(fileStoreOperations::loadAll);
+    }
+
+    /**
+     * Stop accepting operations; operations already submitted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run the operation on the executor once an in-flight permit is available.
+     * After close() the future fails with a FileStoreException.
+     */
+    private <T> CompletableFuture<T> submit(FileStoreCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(call, future));
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new FileStoreException("Async file store operations are closed", ex));
+        }
+        return future;
+    }
+
+    private <T> void run(FileStoreCall<T> call, CompletableFuture<T> future) {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new FileStoreException("Operation interrupted", ex));
+            return;
+        }
+        try {
+            future.complete(call.call());
+        } catch (FileStoreException ex) {
+            future.completeExceptionally(ex);
+        } catch (RuntimeException ex) {
+            logger.error("Async file store operation failed {}", ex.getMessage());
+            future.completeExceptionally(new FileStoreException("Async file store operation failed", ex));
+        } finally {
+            inFlightPermits.release();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileStoreCall<T> {
+        T call() throws FileStoreException;
+    }
+}
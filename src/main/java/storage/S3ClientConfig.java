@@ -0,0 +1,131 @@
+package storage;
+
+import java.time.Duration;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+
+/**
+ * S3ClientConfig holds the HTTP connection settings used when building
+ * AmazonS3 clients (connection pool size, timeouts, keep-alive and
+ * connection time to live).
+ *
+ * The SDK default of 50 pooled connections caps the number of concurrent
+ * part uploads, ranged downloads and batch requests, so the default here is
+ * sized for the transfer concurrency settings in TransferConfig.
+ */
+public class S3ClientConfig {
+    private int maxConnections = 128;
+    private Duration connectionTimeout = Duration.ofSeconds(10);
+    private Duration socketTimeout = Duration.ofSeconds(50);
+    private boolean tcpKeepAlive = true;
+    private Duration connectionTtl = Duration.ofMinutes(5);
+    private boolean requestMetricsEnabled = true;
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = Math.max(1, maxConnections);
+    }
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+    public void setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+    public void setSocketTimeout(Duration socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+    public void setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+    public Duration getConnectionTtl() {
+        return connectionTtl;
+    }
+    public void setConnectionTtl(Duration connectionTtl) {
+        this.connectionTtl = connectionTtl;
+    }
+    public boolean isRequestMetricsEnabled() {
+        return requestMetricsEnabled;
+    }
+    public void setRequestMetricsEnabled(boolean requestMetricsEnabled) {
+        this.requestMetricsEnabled = requestMetricsEnabled;
+    }
+
+    /**
+     * Build the SDK client configuration from these settings. The SDK's own
+     * retries are disabled: RetryPolicy retries every call, and stacking the
+     * two would multiply the attempts and stretch past the request deadline.
+     * @return ClientConfiguration
+     */
+    public ClientConfiguration toClientConfiguration() {
+        return new ClientConfiguration()
+                .withRetryPolicy(PredefinedRetryPolicies.NO_RETRY_POLICY)
+                .withMaxErrorRetry(0)
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout((int) connectionTimeout.toMillis())
+                .withSocketTimeout((int) socketTimeout.toMillis())
+                .withTcpKeepAlive(tcpKeepAlive)
+                .withConnectionTTL(connectionTtl == null ? -1 : connectionTtl.toMillis());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("S3ClientConfig{");
+        sb.append("maxConnections=").append(maxConnections);
+        sb.append(", connectionTimeout=").append(connectionTimeout);
+        sb.append(", socketTimeout=").append(socketTimeout);
+        sb.append(", tcpKeepAlive=").append(tcpKeepAlive);
+        sb.append(", connectionTtl=").append(connectionTtl);
+        sb.append(", requestMetricsEnabled=").append(requestMetricsEnabled);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public static S3ClientConfigBuilder builder() {
+        return new S3ClientConfigBuilder();
+    }
+
+    /**
+     * Builder for S3ClientConfig
+     */
+    public static class S3ClientConfigBuilder {
+        private final S3ClientConfig clientConfig = new S3ClientConfig();
+
+        public S3ClientConfigBuilder setMaxConnections(int maxConnections) {
+            clientConfig.setMaxConnections(maxConnections);
+            return this;
+        }
+        public S3ClientConfigBuilder setConnectionTimeout(Duration connectionTimeout) {
+            clientConfig.setConnectionTimeout(connectionTimeout);
+            return this;
+        }
+        public S3ClientConfigBuilder setSocketTimeout(Duration socketTimeout) {
+            clientConfig.setSocketTimeout(socketTimeout);
+            return this;
+        }
+        public S3ClientConfigBuilder setTcpKeepAlive(boolean tcpKeepAlive) {
+            clientConfig.setTcpKeepAlive(tcpKeepAlive);
+            return this;
+        }
+        public S3ClientConfigBuilder setConnectionTtl(Duration connectionTtl) {
+            clientConfig.setConnectionTtl(connectionTtl);
+            return this;
+        }
+        public S3ClientConfigBuilder setRequestMetricsEnabled(boolean requestMetricsEnabled) {
+            clientConfig.setRequestMetricsEnabled(requestMetricsEnabled);
+            return this;
+        }
+        public S3ClientConfig build() {
+            return clientConfig;
+        }
+    }
+}
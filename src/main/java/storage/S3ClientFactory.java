@@ -0,0 +1,167 @@
+package storage;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+
+/**
+ * S3ClientFactory builds AmazonS3 clients with the configured connection pool
+ * and timeouts, and shares one client per credential, region and endpoint.
+ *
+ * Each AmazonS3 client owns an HTTP connection pool, so clients are reference
+ * counted: acquire hands out the cached client for a credential and release
+ * shuts the client down once nobody uses it any more.
+ */
+public class S3ClientFactory {
+    private static final Logger logger = LogManager.getLogger(S3ClientFactory.class);
+    private static final S3ClientFactory DEFAULT_FACTORY = new S3ClientFactory(new S3ClientConfig());
+
+    private final S3ClientConfig clientConfig;
+    private final S3RequestMetrics requestMetrics = new S3RequestMetrics();
+    private final Map<ClientKey, PooledClient> clients = new HashMap<>();
+    private final Map<AmazonS3, ClientKey> clientKeys = new IdentityHashMap<>();
+
+    /**
+     * @param clientConfig connection settings for the clients built by this factory
+     */
+    public S3ClientFactory(S3ClientConfig clientConfig) {
+        this.clientConfig = clientConfig;
+    }
+
+    /**
+     * Return the factory shared by the application
+     * @return S3ClientFactory
+     */
+    public static S3ClientFactory getDefault() {
+        return DEFAULT_FACTORY;
+    }
+
+    /**
+     * Return the client for the credential's access key, region and endpoint,
+     * building it on first use. Every acquire must be paired with a release.
+     *
+     * @param s3Credential AWS credential object
+     * @return AmazonS3 client
+     * @throws AmazonS3Exception if the client cannot be built
+     */
+    public synchronized AmazonS3 acquire(AwsS3Credential s3Credential) throws AmazonS3Exception {
+        ClientKey clientKey = new ClientKey(s3Credential.getAccessKey(), s3Credential.getSecretKey(),
+                s3Credential.getRegion(), s3Credential.getEndpoint());
+        PooledClient pooledClient = clients.get(clientKey);
+        if (pooledClient == null) {
+            pooledClient = new PooledClient(createClient(s3Credential));
+            clients.put(clientKey, pooledClient);
+            clientKeys.put(pooledClient.client, clientKey);
+            logger.info("Created AWS S3 client for region {} with {}", s3Credential.getRegion(), clientConfig);
+        }
+        pooledClient.references++;
+        return pooledClient.client;
+    }
+
+    /**
+     * Give back a client obtained from acquire and shut it down when it is
+     * no longer in use. Clients not built by this factory are ignored.
+     *
+     * @param s3Client client to release, may be null
+     */
+    public synchronized void release(AmazonS3 s3Client) {
+        ClientKey clientKey = s3Client == null ? null : clientKeys.get(s3Client);
+        if (clientKey == null) {
+            return;
+        }
+        PooledClient pooledClient = clients.get(clientKey);
+        if (--pooledClient.references > 0) {
+            return;
+        }
+        clients.remove(clientKey);
+        clientKeys.remove(s3Client);
+        s3Client.shutdown();
+        logger.info("Shut down AWS S3 client for region {}", clientKey.region());
+    }
+
+    /**
+     * Shut down every client built by this factory
+     */
+    public synchronized void shutdown() {
+        clients.values().forEach(pooledClient -> pooledClient.client.shutdown());
+        clients.clear();
+        clientKeys.clear();
+    }
+
+    /**
+     * @return number of clients currently open
+     */
+    public synchronized int getOpenClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * @return request metrics of all clients built by this factory
+     */
+    public S3RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    public S3ClientConfig getClientConfig() {
+        return clientConfig;
+    }
+
+    /**
+     * Creates and configures the AmazonS3 client using credentials.
+     */
+    protected AmazonS3 createClient(AwsS3Credential s3Credential) throws AmazonS3Exception {
+        try {
+            BasicAWSCredentials awsCreds = new BasicAWSCredentials(
+                    s3Credential.getAccessKey(),
+                    s3Credential.getSecretKey()
+            );
+            AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                    .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
+                    .withClientConfiguration(clientConfig.toClientConfiguration());
+            if (s3Credential.getEndpoint() != null && !s3Credential.getEndpoint().isBlank()) {
+                builder.withEndpointConfiguration(
+                        new EndpointConfiguration(s3Credential.getEndpoint(), s3Credential.getRegion()))
+                       .withPathStyleAccessEnabled(true);
+            } else {
+                builder.withRegion(s3Credential.getRegion());
+            }
+            if (clientConfig.isRequestMetricsEnabled()) {
+                builder.withMetricsCollector(requestMetrics);
+            }
+            return builder.build();
+        } catch (Exception ex) {
+            logger.error("Failed to create AWS credentials. Error {}" , ex.getMessage());
+            throw new AmazonS3Exception("Failed to create AWS S3 client", ex);
+        }
+    }
+
+    /**
+     * Cache key; toString leaves out the secret key
+     */
+    private record ClientKey(String accessKey, String secretKey, String region, String endpoint) {
+        @Override
+        public String toString() {
+            return "ClientKey{accessKey=" + accessKey + ", region=" + region + ", endpoint=" + endpoint + "}";
+        }
+    }
+
+    private static class PooledClient {
+        private final AmazonS3 client;
+        private int references;
+
+        private PooledClient(AmazonS3 client) {
+            this.client = Objects.requireNonNull(client);
+        }
+    }
+}
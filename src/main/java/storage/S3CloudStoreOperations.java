@@ -1,35 +1,55 @@
 package storage;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.SecretKey;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.event.ProgressListener;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
-import com.amazonaws.services.s3.model.GetObjectRequest;
-import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
-import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectSummary;
 
 import handles.S3ClientHandle;
+import storage.db.FileMetadataRepository;
+import storage.db.PartManifestRepository;
+import storage.db.UploadSessionRepository;
 import util.AwsS3Util;
+import util.ChecksumUtil;
 import util.FileUtil;
 
 /**
@@ -42,8 +62,25 @@ import util.FileUtil;
  */
 public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHandle {
     private static final Logger logger = LogManager.getLogger(S3CloudStoreOperations.class);
+    // S3 accepts at most 1000 keys per DeleteObjects request
+    private static final int MAX_DELETE_KEYS = 1000;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int PIPE_BUFFER_SIZE = 256 * 1024;
     private AmazonS3 s3Client;
     private AwsS3Credential awsS3Credential;
+    private TransferConfig transferConfig = new TransferConfig();
+    private UploadSessionRepository uploadSessionRepository;
+    private PartManifestRepository partManifestRepository;
+    private FileMetadataRepository fileMetadataRepository;
+    private SecretKey encryptionKey;
+    private DownloadCache downloadCache;
+    private final TransferScheduler transferScheduler = new TransferScheduler(
+            transferConfig.getUploadBytesPerSecond(), transferConfig.getDownloadBytesPerSecond());
+    private final S3ClientFactory clientFactory;
+    private FolderListingCache folderListingCache = createFolderListingCache(transferConfig);
+    private RetryPolicy retryPolicy = RetryPolicy.from(transferConfig);
+    private final LatencyTracker latencyTracker = new LatencyTracker();
+    private final ChecksumEngine checksumEngine = new ChecksumEngine();
 
     /**
      * Default constructor; attempts to initialize with stored credentials.
@@ -58,7 +95,18 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
      * @param awsS3Credential AWS credentials including access key, secret key, region, and bucket name
      */
     public S3CloudStoreOperations(AwsS3Credential awsS3Credential) {
+        this(awsS3Credential, S3ClientFactory.getDefault());
+    }
+
+    /**
+     * Constructor with explicit credentials and client factory.
+     * 
+     * @param awsS3Credential AWS credentials including access key, secret key, region, and bucket name
+     * @param clientFactory factory providing pooled AmazonS3 clients
+     */
+    public S3CloudStoreOperations(AwsS3Credential awsS3Credential, S3ClientFactory clientFactory) {
         this.awsS3Credential = awsS3Credential;
+        this.clientFactory = clientFactory;
         init();
     }
 
@@ -71,6 +119,7 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     public S3CloudStoreOperations(AmazonS3 s3Client, AwsS3Credential awsS3Credential) {
         this.s3Client = s3Client;
         this.awsS3Credential = awsS3Credential;
+        this.clientFactory = S3ClientFactory.getDefault();
     }
 
     /**
@@ -90,7 +139,12 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     }
 
     /**
-     * Upload a single file to S3.
+     * Upload a single file to S3. Files larger than the configured multipart
+     * threshold are split into parts and uploaded concurrently. With
+     * skipUnchangedUploads set, files whose content already matches the
+     * remote object are not sent again. When a
+     * compression codec is configured, compressible files are compressed
+     * on the way up.
      * 
      * @param file file to upload
      * @throws FileStoreException on failure or credential error
@@ -98,8 +152,28 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     @Override
     public FileObject save(File file) throws FileStoreException {
         try {
+            CompressionCodec codec = compressionCodecFor(file);
+            boolean encrypt = transferConfig.isClientSideEncryption();
+            boolean transform = codec != CompressionCodec.NONE || encrypt;
+            String localETag = transferConfig.isSkipUnchangedUploads() ? computeLocalETag(file) : null;
+            if (transferConfig.isSkipUnchangedUploads() && localETag != null) {
+                FileObject unchanged = findUnchangedRemote(file, localETag, encrypt);
+                if (unchanged != null) {
+                    logger.info("Skipping upload of unchanged file {}", file.getName());
+                    return unchanged;
+                }
+            }
+            if (transform) {
+                return saveTransformed(file, codec, encrypt, localETag);
+            }
+            if (file.length() > transferConfig.getMultipartThreshold()) {
+                return saveMultipart(file);
+            }
             PutObjectRequest request = new PutObjectRequest(awsS3Credential.getBucketName(), file.getName(), file);
-            PutObjectResult objectResult = s3Client.putObject(request);
+            request.setGeneralProgressListener(throttlingListener());
+            PutObjectResult objectResult = retryPolicy.execute("PUT " + file.getName(),
+                    () -> s3Client.putObject(request));
+            folderListingCache.invalidate(file.getName());
             Date modifiedDate = (objectResult != null && objectResult.getMetadata() != null && 
                                  objectResult.getMetadata().getLastModified() != null)? 
                                  objectResult.getMetadata().getLastModified() : new Date();
@@ -112,16 +186,292 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
                             .setLastModifiedDate(modifiedDate)
                             .setBucketName(awsS3Credential.getBucketName())
                             .setFilePath(file.getAbsolutePath())
-                            .setFileSize(file.getFreeSpace())
+                            .setFileSize(file.length())
                             .setVersion(version)
                             .setCheckSum(checkSum)
                             .build();
-        } catch (NullPointerException | AmazonServiceException ex) {
+        } catch (NullPointerException | AmazonClientException ex) {
             logger.error("Failed to save data to S3 cloud storage {}" , ex.getMessage());
             throw new FileStoreException("Failed to save AWS S3 object. Check your credentials", ex);
         }
     }
 
+    /**
+     * Upload a stream of unknown length in parts from a bounded buffer pool,
+     * see S3StreamUploader.
+     * 
+     * @param key object key to store the content under
+     * @param inputStream content to upload; read to its end but not closed
+     * @throws FileStoreException on failure or credential error
+     */
+    @Override
+    public FileObject save(String key, InputStream inputStream) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        FileObject fileObject;
+        if (transferConfig.isClientSideEncryption()) {
+            fileObject = streamUploader().upload(awsS3Credential.getBucketName(), key,
+                    createCipher().encrypt(inputStream), Map.of(ChunkedAesGcm.METADATA_KEY, ChunkedAesGcm.SCHEME));
+        } else {
+            fileObject = streamUploader().upload(awsS3Credential.getBucketName(), key, inputStream);
+        }
+        folderListingCache.invalidate(key);
+        return fileObject;
+    }
+
+    /**
+     * Compute the S3 compatible ETag of the local file, with the same part
+     * size a plain upload would use, hashing the parts in parallel.
+     * 
+     * @return the ETag, or null if the file cannot be read
+     */
+    private String computeLocalETag(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return checksumEngine.compute(file, transferConfig, false).getETag();
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Unable to compute checksum of {}, uploading. Error {}", file.getName(), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the bucket already holds the file content by comparing
+     * the local ETag with the checksum tracked in file metadata, falling back
+     * to a HEAD request. Compressed objects are matched on the ETag of their
+     * source content recorded in user metadata, encrypted objects on its
+     * keyed MAC, see ChunkedAesGcm.sourceMac.
+     * 
+     * @param requireEncrypted only accept a remote object stored with client side encryption
+     * @return the remote file object when unchanged, otherwise null
+     * @throws FileStoreException if the encryption key cannot be loaded
+     */
+    private FileObject findUnchangedRemote(File file, String localETag, boolean requireEncrypted)
+            throws FileStoreException {
+        String bucketName = awsS3Credential.getBucketName();
+        if (fileMetadataRepository != null && !requireEncrypted) {
+            FileObject tracked = fileMetadataRepository.findByName(file.getName());
+            if (tracked != null && Objects.equals(bucketName, tracked.getBucketName())
+                    && ChecksumUtil.eTagMatches(localETag, tracked.getChecksum())) {
+                return tracked;
+            }
+        }
+        ObjectMetadata metadata;
+        try {
+            metadata = headObject(file.getName());
+        } catch (AmazonClientException ex) {
+            // e.g. a 403 when the credentials may put but not read objects
+            logger.warn("Unable to check remote copy of {}, uploading. Error {}", file.getName(), ex.getMessage());
+            return null;
+        }
+        if (metadata != null && requireEncrypted) {
+            if (!ChunkedAesGcm.SCHEME.equals(metadata.getUserMetaDataOf(ChunkedAesGcm.METADATA_KEY))
+                    || !createCipher().sourceMac(localETag)
+                            .equals(metadata.getUserMetaDataOf(ChunkedAesGcm.SOURCE_MAC_METADATA_KEY))) {
+                return null;
+            }
+            FileObject fileObject = toFileObject(file.getName(), metadata);
+            fileObject.setFilePath(file.getAbsolutePath());
+            return fileObject;
+        }
+        if (metadata != null && (ChecksumUtil.eTagMatches(localETag, metadata.getETag())
+                || ChecksumUtil.eTagMatches(localETag,
+                        metadata.getUserMetaDataOf(CompressionCodec.SOURCE_ETAG_METADATA_KEY)))) {
+            FileObject fileObject = toFileObject(file.getName(), metadata);
+            fileObject.setFilePath(file.getAbsolutePath());
+            return fileObject;
+        }
+        return null;
+    }
+
+    /**
+     * HEAD the object, retrying retryable failures.
+     * 
+     * @return the object metadata, or null if the object does not exist
+     */
+    private ObjectMetadata headObject(String key) {
+        try {
+            return retryPolicy.execute("HEAD " + key, () -> s3Client.getObjectMetadata(
+                    retryPolicy.withDeadline(new GetObjectMetadataRequest(awsS3Credential.getBucketName(), key))));
+        } catch (AmazonS3Exception ex) {
+            if (ex.getStatusCode() != HTTP_NOT_FOUND) {
+                throw ex;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Map the metadata returned by a HEAD request to a file object.
+     */
+    private FileObject toFileObject(String key, ObjectMetadata metadata) {
+        return FileObject.builder()
+                        .setFileName(key)
+                        .setLastModifiedDate(metadata.getLastModified())
+                        .setBucketName(awsS3Credential.getBucketName())
+                        .setFileSize(metadata.getContentLength())
+                        .setVersion(metadata.getVersionId() != null? metadata.getVersionId(): "1")
+                        .setCheckSum(metadata.getETag())
+                        .setCodec(metadata.getUserMetaDataOf(CompressionCodec.METADATA_KEY))
+                        .setContentType(metadata.getContentType())
+                        .build();
+    }
+
+    /**
+     * Codec to store the file with: the configured codec for files of at
+     * least compressionMinSize bytes whose content is not already compressed.
+     */
+    private CompressionCodec compressionCodecFor(File file) {
+        CompressionCodec codec = transferConfig.getCompressionCodec();
+        if (codec == CompressionCodec.NONE || !file.isFile() || file.length() < transferConfig.getCompressionMinSize()) {
+            return CompressionCodec.NONE;
+        }
+        byte[] header = new byte[16];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int length = inputStream.readNBytes(header, 0, header.length);
+            return CompressionCodec.isAlreadyCompressed(header, length) ? CompressionCodec.NONE : codec;
+        } catch (IOException ex) {
+            logger.warn("Unable to read {}, uploading uncompressed. Error {}", file.getName(), ex.getMessage());
+            return CompressionCodec.NONE;
+        }
+    }
+
+    /**
+     * Compress and/or encrypt the file while uploading it through the stream
+     * uploader, so the transformed content never touches disk. Compression
+     * runs on a producer thread writing into a pipe; a failing producer closes
+     * the reading end of the pipe, which makes the upload fail and abort
+     * instead of storing truncated content. Encryption is applied last, in
+     * parallel chunks, see ChunkedAesGcm.
+     */
+    private FileObject saveTransformed(File file, CompressionCodec codec, boolean encrypt, String sourceETag)
+            throws FileStoreException {
+        Map<String, String> userMetadata = new HashMap<>();
+        if (codec != CompressionCodec.NONE) {
+            userMetadata.put(CompressionCodec.METADATA_KEY, codec.getCodecName());
+        }
+        if (encrypt) {
+            userMetadata.put(ChunkedAesGcm.METADATA_KEY, ChunkedAesGcm.SCHEME);
+        }
+        if (sourceETag != null && encrypt) {
+            userMetadata.put(ChunkedAesGcm.SOURCE_MAC_METADATA_KEY, createCipher().sourceMac(sourceETag));
+        } else if (sourceETag != null) {
+            userMetadata.put(CompressionCodec.SOURCE_ETAG_METADATA_KEY, sourceETag);
+        }
+        Thread producer = null;
+        InputStream content = null;
+        try {
+            if (codec != CompressionCodec.NONE) {
+                PipedInputStream compressedInput = new PipedInputStream(PIPE_BUFFER_SIZE);
+                PipedOutputStream compressedOutput = new PipedOutputStream(compressedInput);
+                content = compressedInput;
+                producer = Thread.ofVirtual().name("compress-" + file.getName()).start(() -> {
+                    try (InputStream inputStream = new FileInputStream(file)) {
+                        OutputStream outputStream = codec.compress(compressedOutput);
+                        inputStream.transferTo(outputStream);
+                        outputStream.close();
+                    } catch (IOException ex) {
+                        logger.error("Failed to compress {} error: {}", file.getName(), ex.getMessage());
+                        closeQuietly(compressedInput);
+                    }
+                });
+            } else {
+                content = new FileInputStream(file);
+            }
+            if (encrypt) {
+                content = createCipher().encrypt(content);
+            }
+            FileObject stored = streamUploader()
+                    .upload(awsS3Credential.getBucketName(), file.getName(), content, userMetadata);
+            if (producer != null) {
+                producer.join();
+            }
+            folderListingCache.invalidate(file.getName());
+            logger.info("Uploaded {} with codec {}{} ({} of {} bytes)", file.getName(), codec.getCodecName(),
+                    encrypt ? " and client side encryption" : "", stored.getFileSize(), file.length());
+            return FileObject.builder()
+                            .setFileName(file.getName())
+                            .setLastModifiedDate(stored.getLastModifiedDate())
+                            .setBucketName(stored.getBucketName())
+                            .setFilePath(file.getAbsolutePath())
+                            .setFileSize(file.length())
+                            .setVersion(stored.getVersion())
+                            .setCheckSum(stored.getChecksum())
+                            .setCodec(codec != CompressionCodec.NONE ? codec.getCodecName() : null)
+                            .build();
+        } catch (IOException ex) {
+            throw new FileStoreException("Failed to prepare file for upload: " + file.getName(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Upload interrupted: " + file.getName(), ex);
+        } finally {
+            if (content != null) {
+                closeQuietly(content);
+            }
+        }
+    }
+
+    /**
+     * Chunked AES-GCM cipher using the application encryption key.
+     */
+    private ChunkedAesGcm createCipher() throws FileStoreException {
+        return new ChunkedAesGcm(encryptionKey(true), transferConfig.getEncryptionChunkSize());
+    }
+
+    /**
+     * Return the client side encryption key, loading the key file managed by
+     * AwsS3Util on first use.
+     * 
+     * @param required throw when the key is not available instead of returning null
+     */
+    private synchronized SecretKey encryptionKey(boolean required) throws FileStoreException {
+        if (encryptionKey == null) {
+            try {
+                encryptionKey = AwsS3Util.loadEncryptionKey(AwsS3Util.ENCRYPTION_KEY_FILE);
+            } catch (IOException ex) {
+                if (required) {
+                    throw new FileStoreException("Client side encryption key not available", ex);
+                }
+                logger.warn("Client side encryption key not available {}", ex.getMessage());
+            }
+        }
+        return encryptionKey;
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close stream {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Upload a large file through the multipart upload engine.
+     */
+    private FileObject saveMultipart(File file) throws FileStoreException {
+        S3MultipartUploader uploader = new S3MultipartUploader(s3Client, transferConfig, uploadSessionRepository);
+        uploader.setProgressListener(throttlingListener());
+        uploader.setRetryPolicy(retryPolicy);
+        uploader.setPartManifestRepository(partManifestRepository);
+        CompleteMultipartUploadResult result = uploader.upload(awsS3Credential.getBucketName(), file.getName(), file);
+        folderListingCache.invalidate(file.getName());
+        String version = (result != null && result.getVersionId() != null)? result.getVersionId(): "1";
+        String checkSum = (result != null)? result.getETag(): "";
+        return FileObject.builder()
+                        .setFileName(file.getName())
+                        .setLastModifiedDate(new Date())
+                        .setBucketName(awsS3Credential.getBucketName())
+                        .setFilePath(file.getAbsolutePath())
+                        .setFileSize(file.length())
+                        .setVersion(version)
+                        .setCheckSum(checkSum)
+                        .build();
+    }
+
     /**
      * Delete a file object from the S3 bucket.
      * 
@@ -132,7 +482,13 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     public void delete(FileObject fileObject) throws FileStoreException {
         if (fileObject == null || fileObject.getFileName().isEmpty()) return;
         try {
-            s3Client.deleteObject(awsS3Credential.getBucketName(), fileObject.getFileName());
+            DeleteObjectRequest request = retryPolicy.withDeadline(
+                    new DeleteObjectRequest(awsS3Credential.getBucketName(), fileObject.getFileName()));
+            retryPolicy.execute("DELETE " + fileObject.getFileName(), () -> {
+                s3Client.deleteObject(request);
+                return null;
+            });
+            folderListingCache.invalidate(fileObject.getFileName());
         } catch (AmazonServiceException ex) {
             logger.error("Failed to delete file on AWS S3 cloud storage {}" , ex.getMessage());
             throw new FileStoreException("Failed to remove AWS S3 object. Check your credentials", ex);
@@ -140,45 +496,436 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     }
 
     /**
-     * Recursively upload all files the S3 bucket.
+     * Delete many objects with multi-object DeleteObjects requests of up to
+     * 1000 keys each. The chunks run concurrently, bounded by
+     * TransferConfig.batchConcurrency, and per-key errors are reported in the result.
+     * 
+     * @param fileObjects objects representing the S3 files
+     * @return deleted objects and failures keyed by object key
+     * @throws FileStoreException if the batch is interrupted or the client is not configured
+     */
+    @Override
+    public BatchResult deleteAll(Collection<FileObject> fileObjects) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        List<FileObject> deletable = fileObjects.stream()
+                .filter(fileObject -> fileObject != null && fileObject.getFileName() != null
+                        && !fileObject.getFileName().isEmpty())
+                .collect(Collectors.toList());
+        BatchResult batchResult = new BatchResult();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int start = 0; start < deletable.size(); start += MAX_DELETE_KEYS) {
+                List<FileObject> chunk = deletable.subList(start, Math.min(start + MAX_DELETE_KEYS, deletable.size()));
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        deleteChunk(chunk, batchResult);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Batch delete interrupted", ex);
+        }
+        if (batchResult.hasFailures()) {
+            logger.error("Batch delete finished with failures {}", batchResult);
+        }
+        return batchResult;
+    }
+
+    /**
+     * Delete one chunk of at most 1000 keys with a single DeleteObjects request.
+     */
+    private void deleteChunk(List<FileObject> chunk, BatchResult batchResult) {
+        DeleteObjectsRequest request = new DeleteObjectsRequest(awsS3Credential.getBucketName())
+                .withKeys(chunk.stream().map(FileObject::getFileName).toArray(String[]::new))
+                .withQuiet(true);
+        retryPolicy.withDeadline(request);
+        Map<String, FileStoreException> errors = new HashMap<>();
+        try {
+            retryPolicy.execute("DELETE " + chunk.size() + " objects", () -> s3Client.deleteObjects(request));
+        } catch (MultiObjectDeleteException ex) {
+            for (MultiObjectDeleteException.DeleteError error : ex.getErrors()) {
+                errors.put(error.getKey(), new FileStoreException(
+                        String.format("Failed to remove AWS S3 object %s: %s", error.getKey(), error.getMessage())));
+            }
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to delete files on AWS S3 cloud storage {}" , ex.getMessage());
+            for (FileObject fileObject : chunk) {
+                errors.put(fileObject.getFileName(), new FileStoreException("Failed to remove AWS S3 object", ex));
+            }
+        }
+        for (FileObject fileObject : chunk) {
+            FileStoreException error = errors.get(fileObject.getFileName());
+            if (error == null) {
+                folderListingCache.invalidate(fileObject.getFileName());
+                batchResult.addCompleted(fileObject);
+            } else {
+                batchResult.addFailure(fileObject.getFileName(), error);
+            }
+        }
+    }
+
+    /**
+     * Copy an object server-side, see S3ObjectCopier. Objects over 5 GB are
+     * copied as a multipart copy.
+     * 
+     * @param sourceKey key of the object to copy
+     * @param targetKey key of the copy
+     * @return the copy
+     * @throws FileStoreException if the source does not exist, the target exists, on failure or credential error
+     */
+    @Override
+    public FileObject copy(String sourceKey, String targetKey) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        if (Objects.equals(sourceKey, targetKey)) {
+            throw new FileStoreException("Cannot copy AWS S3 object onto itself: " + sourceKey);
+        }
+        ObjectMetadata metadata;
+        try {
+            metadata = headObject(sourceKey);
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to read metadata of {} error: {}", sourceKey, ex.getMessage());
+            throw new FileStoreException("Failed to read AWS S3 object metadata: " + sourceKey, ex);
+        }
+        if (metadata == null) {
+            throw new FileStoreException("AWS S3 object not found: " + sourceKey);
+        }
+        // CopyObject silently replaces an existing target
+        if (stat(targetKey) != null) {
+            throw new FileStoreException("AWS S3 object already exists: " + targetKey);
+        }
+        return copyObject(sourceKey, targetKey, metadata);
+    }
+
+    /**
+     * Copy an object server-side, then delete the source.
+     * 
+     * @param sourceKey key of the object to move
+     * @param targetKey new key of the object
+     * @return the object under its new key
+     * @throws FileStoreException if the source does not exist, the target exists, on failure or credential error
+     */
+    @Override
+    public FileObject move(String sourceKey, String targetKey) throws FileStoreException {
+        FileObject target = copy(sourceKey, targetKey);
+        delete(FileObject.builder().setFileName(sourceKey).build());
+        return target;
+    }
+
+    /**
+     * Move every object under the source prefix with server-side copies on
+     * virtual threads, at most TransferConfig.batchConcurrency at once, then
+     * delete the copied sources with multi-object deletes. Only objects over
+     * 5 GB need a HEAD request for their metadata; the listing supplies the
+     * size of the others.
+     * 
+     * @param sourcePrefix folder prefix ending with "/"
+     * @param targetPrefix new folder prefix ending with "/"
+     * @return moved objects under their new keys, and failures keyed by old key
+     * @throws FileStoreException on invalid prefixes, a non empty target folder, listing failure,
+     *         interruption or credential error
+     */
+    @Override
+    public BatchResult renameFolder(String sourcePrefix, String targetPrefix) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        if (sourcePrefix == null || targetPrefix == null || !sourcePrefix.endsWith(FileUtil.FOLDER_DELIMITER)
+                || !targetPrefix.endsWith(FileUtil.FOLDER_DELIMITER)) {
+            throw new FileStoreException("Folder prefixes must end with " + FileUtil.FOLDER_DELIMITER);
+        }
+        if (targetPrefix.startsWith(sourcePrefix) || sourcePrefix.startsWith(targetPrefix)) {
+            throw new FileStoreException("Cannot move folder " + sourcePrefix + " to " + targetPrefix);
+        }
+        if (folderHasObjects(targetPrefix)) {
+            throw new FileStoreException("AWS S3 folder already exists: " + targetPrefix);
+        }
+        List<FileObject> sources;
+        S3ObjectListing listing = new S3ObjectListing(s3Client, awsS3Credential.getBucketName(), sourcePrefix,
+                transferConfig.getListPageSize());
+        listing.setRetryPolicy(retryPolicy);
+        try (Stream<FileObject> fileObjects = listing.stream(transferConfig.getListPrefetchPages())) {
+            sources = fileObjects.collect(Collectors.toList());
+        } catch (AmazonServiceException ex) {
+            logger.error("Failed to list folder {} on AWS S3 cloud storage {}", sourcePrefix, ex.getMessage());
+            throw new FileStoreException("Failed to list AWS S3 folder: " + sourcePrefix, ex);
+        }
+
+        Map<String, FileObject> copied = new ConcurrentHashMap<>();
+        BatchResult batchResult = new BatchResult();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FileObject source : sources) {
+                String targetKey = targetPrefix + source.getFileName().substring(sourcePrefix.length());
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        copied.put(source.getFileName(), copyListed(source, targetKey));
+                    } catch (FileStoreException ex) {
+                        batchResult.addFailure(source.getFileName(), ex);
+                    } catch (RuntimeException ex) {
+                        batchResult.addFailure(source.getFileName(),
+                                new FileStoreException("Failed to copy AWS S3 object: " + source.getFileName(), ex));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Folder rename interrupted", ex);
+        }
+
+        List<FileObject> copiedSources = sources.stream()
+                .filter(source -> copied.containsKey(source.getFileName()))
+                .collect(Collectors.toList());
+        BatchResult deleted = deleteAll(copiedSources);
+        for (FileObject source : copiedSources) {
+            FileStoreException error = deleted.getFailures().get(source.getFileName());
+            if (error == null) {
+                batchResult.addCompleted(copied.get(source.getFileName()));
+            } else {
+                batchResult.addFailure(source.getFileName(), new FileStoreException(
+                        "Copied to " + copied.get(source.getFileName()).getFileName() + " but failed to remove source", error));
+            }
+        }
+        folderListingCache.invalidate(sourcePrefix);
+        folderListingCache.invalidate(targetPrefix);
+        logger.info("Moved {} of {} objects from {} to {}", batchResult.getCompleted().size(), sources.size(),
+                sourcePrefix, targetPrefix);
+        return batchResult;
+    }
+
+    /**
+     * Whether any object, other than the folder marker itself, exists under
+     * the prefix, with a listing of a single key per page.
+     */
+    private boolean folderHasObjects(String prefix) throws FileStoreException {
+        S3ObjectListing listing = new S3ObjectListing(s3Client, awsS3Credential.getBucketName(), prefix, 1);
+        listing.setRetryPolicy(retryPolicy);
+        try (Stream<FileObject> fileObjects = listing.stream(0)) {
+            return fileObjects.findAny().isPresent();
+        } catch (AmazonServiceException ex) {
+            logger.error("Failed to list folder {} on AWS S3 cloud storage {}", prefix, ex.getMessage());
+            throw new FileStoreException("Failed to list AWS S3 folder: " + prefix, ex);
+        }
+    }
+
+    /**
+     * Copy an object found in a listing, reading its metadata only when the
+     * copy needs it.
+     */
+    private FileObject copyListed(FileObject source, String targetKey) throws FileStoreException {
+        ObjectMetadata metadata;
+        if (source.getFileSize() > S3ObjectCopier.MAX_SINGLE_COPY_SIZE) {
+            metadata = headObject(source.getFileName());
+            if (metadata == null) {
+                throw new FileStoreException("AWS S3 object not found: " + source.getFileName());
+            }
+        } else {
+            metadata = new ObjectMetadata();
+            metadata.setContentLength(source.getFileSize());
+            metadata.setHeader("ETag", source.getChecksum());
+        }
+        return copyObject(source.getFileName(), targetKey, metadata);
+    }
+
+    private FileObject copyObject(String sourceKey, String targetKey, ObjectMetadata metadata) throws FileStoreException {
+        CopyObjectResult result = new S3ObjectCopier(s3Client, transferConfig, retryPolicy)
+                .copy(awsS3Credential.getBucketName(), sourceKey, targetKey, metadata);
+        folderListingCache.invalidate(targetKey);
+        FileObject target = toFileObject(targetKey, metadata);
+        target.setChecksum(result.getETag());
+        target.setVersion(result.getVersionId() != null ? result.getVersionId() : "1");
+        target.setLastModifiedDate(result.getLastModifiedDate() != null ? result.getLastModifiedDate() : new Date());
+        return target;
+    }
+
+    /**
+     * Read the metadata of one object with a single HEAD request.
+     * 
+     * @param key object key
+     * @return the object, or null if it does not exist
+     * @throws FileStoreException on failure or credential error
+     */
+    @Override
+    public FileObject stat(String key) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        try {
+            ObjectMetadata metadata = headObject(key);
+            return metadata == null ? null : toFileObject(key, metadata);
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to read metadata of {} error: {}", key, ex.getMessage());
+            throw new FileStoreException("Failed to read AWS S3 object metadata: " + key, ex);
+        }
+    }
+
+    /**
+     * HEAD many objects concurrently on virtual threads, at most
+     * TransferConfig.batchConcurrency at once.
+     * 
+     * @param keys object keys
+     * @return objects found, in key order, and the keys whose HEAD failed;
+     *         missing objects appear in neither
+     * @throws FileStoreException if the batch is interrupted
+     */
+    @Override
+    public BatchResult statAll(Collection<String> keys) throws FileStoreException {
+        Map<String, FileObject> fileObjects = new ConcurrentHashMap<>();
+        Map<String, FileStoreException> errors = new ConcurrentHashMap<>();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String key : new LinkedHashSet<>(keys)) {
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        FileObject fileObject = stat(key);
+                        if (fileObject != null) {
+                            fileObjects.put(key, fileObject);
+                        }
+                    } catch (FileStoreException ex) {
+                        errors.put(key, ex);
+                    } catch (RuntimeException ex) {
+                        errors.put(key, new FileStoreException("Failed to read AWS S3 object metadata: " + key, ex));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Batch metadata lookup interrupted", ex);
+        }
+        BatchResult batchResult = new BatchResult();
+        for (String key : new LinkedHashSet<>(keys)) {
+            if (fileObjects.containsKey(key)) {
+                batchResult.addCompleted(fileObjects.get(key));
+            } else if (errors.containsKey(key)) {
+                batchResult.addFailure(key, errors.get(key));
+            }
+        }
+        return batchResult;
+    }
+
+    /**
+     * Upload all files to the S3 bucket concurrently on virtual threads.
+     * At most TransferConfig.batchConcurrency uploads are in flight at once,
+     * and they share bandwidth in the bulk lane.
      * 
      * @param files list of files to upload
-     * @throws FileStoreException on failure
+     * @return per-file uploaded objects and failures
+     * @throws FileStoreException if the batch is interrupted
      */
     @Override
-    public void  saveAll(List<File> files) throws FileStoreException {
-        for (File file : files) {
-            if (file.isFile()) {
-                save(file);
+    public BatchResult saveAll(List<File> files) throws FileStoreException {
+        BatchResult batchResult = new BatchResult();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        batchResult.addCompleted(TransferPriority.callWith(TransferPriority.BULK, () -> save(file)));
+                    } catch (FileStoreException ex) {
+                        batchResult.addFailure(file.getName(), ex);
+                    } catch (RuntimeException ex) {
+                        batchResult.addFailure(file.getName(), new FileStoreException("Failed to save " + file.getName(), ex));
+                    } finally {
+                        permits.release();
+                    }
+                });
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Batch upload interrupted", ex);
         }
+        if (batchResult.hasFailures()) {
+            logger.error("Batch upload finished with failures {}", batchResult);
+        }
+        return batchResult;
     }
 
     /**
-     * Load and list all files from the S3 bucket.
+     * Load and list all files from the S3 bucket, following the listing
+     * continuation token across pages.
      * 
      * @return list of FileObject representations from the bucket
      * @throws FileStoreException on failure
      */
     @Override
     public List<FileObject> loadAll() throws FileStoreException {
-        try {
-            ListObjectsV2Result result = s3Client.listObjectsV2(awsS3Credential.getBucketName());
-            List<S3ObjectSummary> objects = result.getObjectSummaries();
-            return objects.stream().map(object -> FileObject.builder()
-                    .setFileName(object.getKey())
-                    .setBucketName(object.getBucketName())
-                    .setFileSize(object.getSize())
-                    .setLastModifiedDate(object.getLastModified())
-                    .setCheckSum(object.getETag())
-                    .build()).collect(Collectors.toList());
-
+        try (Stream<FileObject> fileObjects = streamAll(true)) {
+            return fileObjects.collect(Collectors.toList());
         } catch (NullPointerException | AmazonServiceException ex) {
             logger.error("Failed load files AWS S3 cloud storage {}" , ex.getMessage());
             throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.", ex);
         }
     }
 
+    /**
+     * List one folder level with a "/" delimited listing. Recent listings are
+     * served from a per-prefix cache, which writes through this instance
+     * invalidate.
+     * 
+     * @param prefix folder prefix ending with "/", or empty for the bucket root
+     * @return sub folders followed by the files directly under the prefix
+     * @throws FileStoreException on failure or credential error
+     */
+    @Override
+    public List<FileObject> listFolder(String prefix) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        String folderPrefix = prefix == null ? "" : prefix;
+        List<FileObject> cached = folderListingCache.get(folderPrefix);
+        if (cached != null) {
+            return cached;
+        }
+        S3ObjectListing listing = new S3ObjectListing(s3Client, awsS3Credential.getBucketName(),
+                folderPrefix.isEmpty() ? null : folderPrefix, transferConfig.getListPageSize(), FileUtil.FOLDER_DELIMITER);
+        listing.setRetryPolicy(retryPolicy);
+        try (Stream<FileObject> fileObjects = listing.stream(0)) {
+            List<FileObject> folderListing = fileObjects.collect(Collectors.toList());
+            folderListingCache.put(folderPrefix, folderListing);
+            return folderListing;
+        } catch (AmazonServiceException ex) {
+            logger.error("Failed to list folder {} on AWS S3 cloud storage {}", folderPrefix, ex.getMessage());
+            throw new FileStoreException("Failed to list AWS S3 folder: " + folderPrefix, ex);
+        }
+    }
+
+    /**
+     * Lazily stream all files from the S3 bucket one listing page at a time.
+     * Service errors while fetching later pages are thrown as AmazonServiceException
+     * from the stream.
+     * 
+     * @param prefetch true to fetch listing pages ahead of the consumer
+     * @return stream of FileObject representations from the bucket
+     * @throws FileStoreException if the client is not configured
+     */
+    @Override
+    public Stream<FileObject> streamAll(boolean prefetch) throws FileStoreException {
+        if (s3Client == null || awsS3Credential == null) {
+            throw new FileStoreException("AWS Credentials error. Ensure credentials are configured correctly.");
+        }
+        S3ObjectListing listing = new S3ObjectListing(s3Client, awsS3Credential.getBucketName(), null,
+                transferConfig.getListPageSize());
+        listing.setRetryPolicy(retryPolicy);
+        return listing.stream(prefetch ? transferConfig.getListPrefetchPages() : 0);
+    }
+
     /**
      * Loads credentials and connects to AWS S3.
      * 
@@ -197,7 +944,8 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     }
 
     /**
-     * Connects using provided AWS credentials.
+     * Connects using provided AWS credentials. The client comes from the
+     * client factory and the previously connected client is released.
      * 
      * @param s3Credential user-provided credential object
      * @return connected AmazonS3 client
@@ -205,12 +953,153 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     @Override
     public AmazonS3 connectAwsS3Client(AwsS3Credential s3Credential) throws AmazonS3Exception {
         if (s3Credential != null) {
+            AmazonS3 previousClient = s3Client;
+            this.s3Client = clientFactory.acquire(s3Credential);
             this.awsS3Credential = s3Credential;
-            this.s3Client = createAmazonS3Client(awsS3Credential);
+            clientFactory.release(previousClient);
         }
         return s3Client;
     }
 
+    /**
+     * Release the connected client back to the client factory.
+     */
+    public void disconnect() {
+        clientFactory.release(s3Client);
+        s3Client = null;
+    }
+
+    /**
+     * Return the transfer settings used for uploads and downloads.
+     */
+    public TransferConfig getTransferConfig() {
+        return transferConfig;
+    }
+
+    /**
+     * Replace the transfer settings used for uploads and downloads.
+     * 
+     * @param transferConfig part size, threshold and concurrency settings
+     */
+    public void setTransferConfig(TransferConfig transferConfig) {
+        this.transferConfig = transferConfig;
+        this.folderListingCache = createFolderListingCache(transferConfig);
+        this.retryPolicy = RetryPolicy.from(transferConfig);
+        if (downloadCache != null) {
+            downloadCache.setMaxBytes(transferConfig.getDownloadCacheMaxBytes());
+        }
+        transferScheduler.setUploadBytesPerSecond(transferConfig.getUploadBytesPerSecond());
+        transferScheduler.setDownloadBytesPerSecond(transferConfig.getDownloadBytesPerSecond());
+    }
+
+    /**
+     * Keep downloaded objects in the download cache. A cached object is
+     * only downloaded again when a conditional GET finds it changed.
+     * 
+     * @param downloadCache cache, or null to always download
+     */
+    public void setDownloadCache(DownloadCache downloadCache) {
+        this.downloadCache = downloadCache;
+        if (downloadCache != null) {
+            downloadCache.setMaxBytes(transferConfig.getDownloadCacheMaxBytes());
+        }
+    }
+
+    /**
+     * Add the downloaded file to the download cache under the ETag of the
+     * downloaded version. A failure only costs the next download a transfer.
+     */
+    private void cacheDownload(String bucketName, String key, S3ObjectDownloader downloader, File downloadFile) {
+        ObjectMetadata metadata = downloader.getObjectMetadata();
+        if (downloadCache == null || metadata == null || metadata.getETag() == null) {
+            return;
+        }
+        String codec = downloader.getCodec() == CompressionCodec.NONE ? null : downloader.getCodec().getCodecName();
+        try {
+            downloadCache.put(bucketName, key, metadata.getETag(), codec, downloadFile.toPath());
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Failed to cache download of {} error: {}", key, ex.getMessage());
+        }
+    }
+
+    /**
+     * Return the scheduler applying the bandwidth limits; its limits can be
+     * changed at runtime while transfers are running.
+     */
+    public TransferScheduler getTransferScheduler() {
+        return transferScheduler;
+    }
+
+    /**
+     * Throttling listener for transfers started by the calling thread, in the
+     * lane of its TransferPriority.
+     */
+    private ProgressListener throttlingListener() {
+        return transferScheduler.progressListener(TransferPriority.current());
+    }
+
+    private S3StreamUploader streamUploader() {
+        S3StreamUploader uploader = new S3StreamUploader(s3Client, transferConfig);
+        uploader.setProgressListener(throttlingListener());
+        uploader.setRetryPolicy(retryPolicy);
+        return uploader;
+    }
+
+    private static FolderListingCache createFolderListingCache(TransferConfig transferConfig) {
+        return new FolderListingCache(transferConfig.getFolderCacheMaxEntries(), transferConfig.getFolderCacheTtl());
+    }
+
+    /**
+     * Persist multipart upload sessions so interrupted large uploads resume
+     * after a restart instead of starting over.
+     * 
+     * @param uploadSessionRepository session store, or null to disable resuming
+     */
+    public void setUploadSessionRepository(UploadSessionRepository uploadSessionRepository) {
+        this.uploadSessionRepository = uploadSessionRepository;
+    }
+
+    /**
+     * Record part hashes of multipart uploads so modified large files are
+     * uploaded as a delta of their previous version.
+     * 
+     * @param partManifestRepository part manifest store, may be null
+     */
+    public void setPartManifestRepository(PartManifestRepository partManifestRepository) {
+        this.partManifestRepository = partManifestRepository;
+    }
+
+    /**
+     * Use tracked file metadata to detect unchanged files without a HEAD request.
+     * 
+     * @param fileMetadataRepository file metadata store, may be null
+     */
+    public void setFileMetadataRepository(FileMetadataRepository fileMetadataRepository) {
+        this.fileMetadataRepository = fileMetadataRepository;
+    }
+
+    /**
+     * Use the given key for client side encryption instead of the key file
+     * managed by AwsS3Util.
+     * 
+     * @param encryptionKey AES key
+     */
+    public synchronized void setEncryptionKey(SecretKey encryptionKey) {
+        this.encryptionKey = encryptionKey;
+    }
+
+    /**
+     * Abort persisted multipart uploads older than TransferConfig.staleUploadMaxAge.
+     * 
+     * @return number of abandoned uploads aborted
+     */
+    public int abortStaleUploads() {
+        if (s3Client == null || uploadSessionRepository == null) {
+            return 0;
+        }
+        return new S3MultipartUploader(s3Client, transferConfig, uploadSessionRepository).abortStaleSessions();
+    }
+
     /**
      * Return the currently connected AmazonS3 client instance.
      */
@@ -228,58 +1117,46 @@ public class S3CloudStoreOperations implements FileStoreOperations, S3ClientHand
     }
 
     /**
-     * Creates and configures the AmazonS3 client using credentials.
-     * 
-     * @param s3Credential AWS credential object
-     * @return AmazonS3 client
-     * @throws AmazonS3Exception on failure
-     */
-    private AmazonS3 createAmazonS3Client(AwsS3Credential s3Credential) throws AmazonS3Exception {
-        try {
-            BasicAWSCredentials awsCreds = new BasicAWSCredentials(
-                    s3Credential.getAccessKey(),
-                    s3Credential.getSecretKey()
-            );
-            return AmazonS3ClientBuilder.standard()
-                    .withRegion(s3Credential.getRegion())
-                    .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
-                    .build();
-        } catch (Exception ex) {
-            logger.error("Failed to create AWS credentials. Error {}" , ex.getMessage());
-            throw new AmazonS3Exception("Failed to create AWS S3 client", ex);
-        }
-    }
-
-    /**
-     * Download S3 object to local directory
+     * Download S3 object to local directory. Large objects are fetched as
+     * concurrent byte ranges, see S3ObjectDownloader.
      */
     @Override
     public File downloadFile(FileObject fileObject) throws FileStoreException {
       try {          
             String filename = fileObject.getFileName();
-            S3Object s3object = s3Client.getObject(new GetObjectRequest(awsS3Credential.getBucketName(),filename));
             if(!Files.exists(Paths.get(FileUtil.LOCAL_STORAGE_DIR))) {
             	FileUtil.createFileDirectory(FileUtil.LOCAL_STORAGE_DIR);
             }
             Path downloadPath = Paths.get(FileUtil.LOCAL_STORAGE_DIR, filename);
-            File downloadFile = downloadPath.toFile();    
-            try (OutputStream outputStream = new FileOutputStream(downloadFile)) {
-                //ensure the parent directory folder is created
-                downloadFile.getParentFile().mkdirs();
-                // Create local file
-                try (InputStream inputStream = s3object.getObjectContent()) {
-                    byte[] buffer = new byte[1024];
-                    int bytesRead;
-                    while ((bytesRead = inputStream.read(buffer)) > 0) {
-                        outputStream.write(buffer, 0, bytesRead);
+            String bucketName = awsS3Credential.getBucketName();
+            S3ObjectDownloader downloader = new S3ObjectDownloader(s3Client, transferConfig, encryptionKey(false));
+            downloader.setProgressListener(throttlingListener());
+            downloader.setRetryPolicy(retryPolicy);
+            downloader.setLatencyTracker(latencyTracker);
+            File downloadFile = null;
+            CachedObject cached = downloadCache == null ? null : downloadCache.find(bucketName, filename);
+            if (cached != null) {
+                downloadFile = downloader.downloadIfModified(bucketName, filename, cached.getETag(), downloadPath);
+                if (downloadFile == null && downloadCache.copyTo(cached, downloadPath)) {
+                    logger.info("Download of unchanged {} served from the download cache", filename);
+                    if (cached.getCodec() != null) {
+                        fileObject.setCodec(cached.getCodec());
                     }
+                    return downloadPath.toFile();
                 }
             }
-            logger.info("Download successful:{} " + downloadFile.getAbsolutePath());
+            if (downloadFile == null) {
+                downloadFile = downloader.download(bucketName, filename, downloadPath);
+            }
+            cacheDownload(bucketName, filename, downloader, downloadFile);
+            if (downloader.getCodec() != CompressionCodec.NONE) {
+                fileObject.setCodec(downloader.getCodec().getCodecName());
+            }
+            logger.info("Download successful: {}", downloadFile.getAbsolutePath());
             return downloadFile;
         } catch (Exception ex) {
-            logger.error("Failed to create AWS credentials. Error {}" , ex.getMessage());
-            throw new FileStoreException();
+            logger.error("Failed to download AWS S3 object. Error {}" , ex.getMessage());
+            throw new FileStoreException("Failed to download AWS S3 object", ex);
         }
     }
 }
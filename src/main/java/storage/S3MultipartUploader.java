@@ -0,0 +1,432 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import storage.db.PartManifestRepository;
+import storage.db.UploadSessionRepository;
+import util.ChecksumUtil;
+
+/**
+ * S3MultipartUploader splits a large local file into parts and uploads the
+ * parts concurrently on a bounded thread pool using the S3 multipart upload API.
+ *
+ * Each part is retried independently. Without a session repository a failed
+ * upload is aborted so no orphaned parts are left billed in the bucket. With a
+ * session repository the upload id and completed parts are persisted, and a
+ * later save of the same file lists the parts already on S3 and only uploads
+ * the missing ones. Sessions that are never finished are aborted by
+ * abortStaleSessions once they exceed the configured age.
+ *
+ * With a part manifest repository, the part hashes of every completed upload
+ * are recorded. A later upload of the same key reuses the recorded part size,
+ * hashes the local parts in one parallel pass with ChecksumEngine and has S3
+ * copy the unchanged parts from the previous object with UploadPartCopy, so
+ * only changed parts are sent.
+ * Copies are conditional on the previous object's ETag; a part whose source
+ * has changed or disappeared is uploaded instead.
+ */
+public class S3MultipartUploader {
+    private static final Logger logger = LogManager.getLogger(S3MultipartUploader.class);
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_PRECONDITION_FAILED = 412;
+
+    private final AmazonS3 s3Client;
+    private final TransferConfig transferConfig;
+    private final UploadSessionRepository sessionRepository;
+    private final ChecksumEngine checksumEngine = new ChecksumEngine();
+    private PartManifestRepository manifestRepository;
+    private ProgressListener progressListener = ProgressListener.NOOP;
+    private RetryPolicy retryPolicy;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig part size, concurrency and retry settings
+     */
+    public S3MultipartUploader(AmazonS3 s3Client, TransferConfig transferConfig) {
+        this(s3Client, transferConfig, null);
+    }
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig part size, concurrency and retry settings
+     * @param sessionRepository store for resumable upload sessions, may be null
+     */
+    public S3MultipartUploader(AmazonS3 s3Client, TransferConfig transferConfig,
+                               UploadSessionRepository sessionRepository) {
+        this.s3Client = s3Client;
+        this.transferConfig = transferConfig;
+        this.sessionRepository = sessionRepository;
+        this.retryPolicy = RetryPolicy.from(transferConfig);
+    }
+
+    /**
+     * @param retryPolicy policy retrying failed requests
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Attach a progress listener, such as the bandwidth throttling listener
+     * of TransferScheduler, to every request transferring content.
+     *
+     * @param progressListener listener, or null for none
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener == null ? ProgressListener.NOOP : progressListener;
+    }
+
+    /**
+     * Record part hashes of completed uploads and reuse unchanged parts of
+     * the previous object on the next upload of the same key.
+     *
+     * @param manifestRepository store for part manifests, or null to upload every part
+     */
+    public void setPartManifestRepository(PartManifestRepository manifestRepository) {
+        this.manifestRepository = manifestRepository;
+    }
+
+    /**
+     * Upload the file as a multipart upload and complete it, resuming a
+     * previously interrupted session for the same file when one exists.
+     *
+     * @param bucketName target bucket
+     * @param key target object key
+     * @param file local file to upload
+     * @return the complete multipart upload result holding the final ETag
+     * @throws FileStoreException if any part fails after retries or the upload cannot be completed
+     */
+    public CompleteMultipartUploadResult upload(String bucketName, String key, File file) throws FileStoreException {
+        long fileSize = file.length();
+        Map<Integer, PartETag> uploadedParts = new TreeMap<>();
+        UploadSession session = resumeSession(bucketName, key, file, uploadedParts);
+        PartManifest manifest = findManifest(bucketName, key, fileSize);
+        if (session == null) {
+            session = startSession(bucketName, key, file,
+                    manifest != null ? manifest.getPartSize() : transferConfig.effectivePartSize(fileSize));
+        }
+        String uploadId = session.getUploadId();
+        long partSize = session.getPartSize();
+        PartManifest previous = manifest != null && manifest.getPartSize() == partSize ? manifest : null;
+        List<String> partHashes = previous != null ? hashParts(file, partSize) : List.of();
+
+        ExecutorService executor = Executors.newFixedThreadPool(transferConfig.getUploadConcurrency());
+        try {
+            List<Future<PartETag>> futures = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < fileSize; offset += partSize, partNumber++) {
+                if (uploadedParts.containsKey(partNumber)) {
+                    continue;
+                }
+                UploadPartRequest partRequest = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withFile(file)
+                        .withFileOffset(offset)
+                        .withPartSize(Math.min(partSize, fileSize - offset));
+                partRequest.setGeneralProgressListener(progressListener);
+                if (previous != null) {
+                    futures.add(executor.submit(() -> reuseOrUploadPart(partRequest, previous, partHashes)));
+                } else {
+                    futures.add(executor.submit(() -> uploadPart(partRequest)));
+                }
+            }
+
+            for (Future<PartETag> future : futures) {
+                PartETag partETag = future.get();
+                uploadedParts.put(partETag.getPartNumber(), partETag);
+            }
+            CompleteMultipartUploadRequest completeRequest = new CompleteMultipartUploadRequest(bucketName, key,
+                    uploadId, new ArrayList<>(uploadedParts.values()));
+            CompleteMultipartUploadResult result = retryPolicy.execute("COMPLETE " + key,
+                    () -> s3Client.completeMultipartUpload(completeRequest));
+            if (sessionRepository != null) {
+                sessionRepository.deleteSession(uploadId);
+            }
+            saveManifest(bucketName, key, fileSize, partSize, result, uploadedParts, partHashes);
+            logger.info("Completed multipart upload {} for {} with {} parts", uploadId, key, uploadedParts.size());
+            return result;
+        } catch (InterruptedException ex) {
+            // restore the flag only once the parts have stopped, or awaitTermination would not wait
+            PartUploads.stop(executor);
+            abortUnlessResumable(bucketName, key, uploadId);
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Multipart upload interrupted: " + key, ex);
+        } catch (ExecutionException ex) {
+            PartUploads.stop(executor);
+            abortUnlessResumable(bucketName, key, uploadId);
+            logger.error("Multipart upload part failed for {} error: {}", key, ex.getCause().getMessage());
+            throw new FileStoreException("Failed to upload part of AWS S3 object: " + key, ex.getCause());
+        } catch (AmazonClientException ex) {
+            abortUnlessResumable(bucketName, key, uploadId);
+            logger.error("Failed to complete multipart upload for {} error: {}", key, ex.getMessage());
+            throw new FileStoreException("Failed to complete AWS S3 multipart upload: " + key, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Abort every persisted session created longer ago than the configured
+     * stale upload age, discarding its parts on S3.
+     *
+     * @return number of sessions aborted
+     */
+    public int abortStaleSessions() {
+        if (sessionRepository == null) {
+            return 0;
+        }
+        Date cutOff = new Date(System.currentTimeMillis() - transferConfig.getStaleUploadMaxAge().toMillis());
+        int aborted = 0;
+        for (UploadSession session : sessionRepository.findSessionsCreatedBefore(cutOff)) {
+            logger.info("Aborting abandoned multipart upload {}", session);
+            PartUploads.abort(s3Client, session.getBucketName(), session.getKey(), session.getUploadId());
+            sessionRepository.deleteSession(session.getUploadId());
+            aborted++;
+        }
+        return aborted;
+    }
+
+    /**
+     * Initiate a new multipart upload and persist it as a session.
+     */
+    private UploadSession startSession(String bucketName, String key, File file, long partSize) {
+        long fileSize = file.length();
+        String uploadId = retryPolicy.execute("INITIATE " + key, () -> s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, key))).getUploadId();
+        UploadSession session = new UploadSession(uploadId, bucketName, key, file.getAbsolutePath(), fileSize,
+                file.lastModified(), partSize, new Date());
+        if (sessionRepository != null) {
+            sessionRepository.saveSession(session);
+        }
+        logger.info("Started multipart upload {} for {} ({} bytes, part size {})", uploadId, key, fileSize, partSize);
+        return session;
+    }
+
+    /**
+     * Look up a persisted session for the file and collect the parts S3 already
+     * holds for it. Sessions for a file that changed since, or whose upload no
+     * longer exists on S3, are discarded.
+     *
+     * @return the resumable session, or null if a new upload must be started
+     */
+    private UploadSession resumeSession(String bucketName, String key, File file,
+                                        Map<Integer, PartETag> uploadedParts) {
+        if (sessionRepository == null) {
+            return null;
+        }
+        UploadSession session = sessionRepository.findSession(bucketName, key, file.getAbsolutePath());
+        if (session == null) {
+            return null;
+        }
+        if (session.getFileSize() != file.length() || session.getFileLastModified() != file.lastModified()) {
+            logger.info("Local file changed since upload {} started, starting over", session.getUploadId());
+            PartUploads.abort(s3Client, bucketName, key, session.getUploadId());
+            sessionRepository.deleteSession(session.getUploadId());
+            return null;
+        }
+        try {
+            uploadedParts.putAll(listUploadedParts(session));
+        } catch (AmazonS3Exception ex) {
+            if (ex.getStatusCode() != HTTP_NOT_FOUND) {
+                throw ex;
+            }
+            logger.info("Multipart upload {} no longer exists, starting over", session.getUploadId());
+            sessionRepository.deleteSession(session.getUploadId());
+            return null;
+        }
+        logger.info("Resuming multipart upload {} for {} with {} parts already uploaded",
+                session.getUploadId(), key, uploadedParts.size());
+        return session;
+    }
+
+    /**
+     * List all parts S3 holds for the session, following part listing pages.
+     */
+    private Map<Integer, PartETag> listUploadedParts(UploadSession session) {
+        Map<Integer, PartETag> parts = new TreeMap<>();
+        ListPartsRequest request = new ListPartsRequest(session.getBucketName(), session.getKey(), session.getUploadId());
+        PartListing partListing;
+        do {
+            partListing = retryPolicy.execute("LIST PARTS " + session.getKey(), () -> s3Client.listParts(request));
+            for (PartSummary part : partListing.getParts()) {
+                parts.put(part.getPartNumber(), new PartETag(part.getPartNumber(), part.getETag()));
+            }
+            request.setPartNumberMarker(partListing.getNextPartNumberMarker());
+        } while (partListing.isTruncated());
+        return parts;
+    }
+
+    /**
+     * Find the manifest of the previous upload of the key, if delta uploads
+     * are enabled and its part size can also split the new file.
+     */
+    private PartManifest findManifest(String bucketName, String key, long fileSize) {
+        if (manifestRepository == null || !transferConfig.isDeltaUploads()) {
+            return null;
+        }
+        PartManifest manifest = manifestRepository.findManifest(bucketName, key);
+        if (manifest == null || manifest.getPartSize() < TransferConfig.MIN_PART_SIZE
+                || (fileSize + manifest.getPartSize() - 1) / manifest.getPartSize() > TransferConfig.MAX_PARTS) {
+            return null;
+        }
+        return manifest;
+    }
+
+    /**
+     * Record the part hashes of the completed object. Parts not hashed
+     * locally are recorded with the ETag S3 returned for them, which is the
+     * MD5 of the part unless the bucket encrypts with KMS keys.
+     */
+    private void saveManifest(String bucketName, String key, long fileSize, long partSize,
+                              CompleteMultipartUploadResult result, Map<Integer, PartETag> uploadedParts,
+                              List<String> partHashes) {
+        if (manifestRepository == null || result == null || result.getETag() == null) {
+            return;
+        }
+        List<String> hashes = new ArrayList<>();
+        for (PartETag partETag : uploadedParts.values()) {
+            int index = partETag.getPartNumber() - 1;
+            String hash = index < partHashes.size() ? partHashes.get(index) : null;
+            hashes.add(hash != null ? hash : ChecksumUtil.normalizeETag(partETag.getETag()));
+        }
+        try {
+            manifestRepository.saveManifest(new PartManifest(bucketName, key, result.getETag(), fileSize, partSize, hashes));
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to record parts of {} error: {}", key, ex.getMessage());
+        }
+    }
+
+    /**
+     * Hash every part of the file in one parallel pass, for comparison with
+     * the previous manifest and for the manifest of the new object.
+     *
+     * @return hex MD5 of each part, or an empty list if the file cannot be read
+     */
+    private List<String> hashParts(File file, long partSize) {
+        try {
+            return checksumEngine.compute(file, partSize, false).getPartMd5s();
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Unable to hash parts of {}, uploading every part. Error {}", file.getName(), ex.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Copy the part server-side from the previous object when its local
+     * hash is unchanged, otherwise upload it.
+     */
+    private PartETag reuseOrUploadPart(UploadPartRequest partRequest, PartManifest previous,
+                                       List<String> partHashes) {
+        int partNumber = partRequest.getPartNumber();
+        long offset = partRequest.getFileOffset();
+        long length = partRequest.getPartSize();
+        String previousHash = previous.getPartHash(partNumber);
+        String hash = partNumber <= partHashes.size() ? partHashes.get(partNumber - 1) : null;
+        if (previousHash != null && previous.getPartLength(partNumber) == length) {
+            if (previousHash.equals(hash)) {
+                CopyPartRequest copyRequest = new CopyPartRequest()
+                        .withSourceBucketName(previous.getBucketName())
+                        .withSourceKey(previous.getKey())
+                        .withDestinationBucketName(partRequest.getBucketName())
+                        .withDestinationKey(partRequest.getKey())
+                        .withUploadId(partRequest.getUploadId())
+                        .withPartNumber(partNumber)
+                        .withFirstByte(offset)
+                        .withLastByte(offset + length - 1)
+                        .withMatchingETagConstraint(previous.getETag());
+                PartETag partETag = copyPart(copyRequest);
+                if (partETag != null) {
+                    return partETag;
+                }
+                logger.info("Previous version of {} changed, uploading part {}", partRequest.getKey(), partNumber);
+            }
+        }
+        return uploadPart(partRequest);
+    }
+
+    /**
+     * Copy a part from the previous object, retrying transient errors, and
+     * record it in the session store.
+     *
+     * @return the part, or null if the previous object no longer matches
+     */
+    private PartETag copyPart(CopyPartRequest copyRequest) {
+        retryPolicy.withDeadline(copyRequest);
+        CopyPartResult result = retryPolicy.execute(
+                "COPY PART " + copyRequest.getPartNumber() + " of upload " + copyRequest.getUploadId(), () -> {
+                    try {
+                        return s3Client.copyPart(copyRequest);
+                    } catch (AmazonS3Exception ex) {
+                        if (ex.getStatusCode() == HTTP_NOT_FOUND || ex.getStatusCode() == HTTP_PRECONDITION_FAILED) {
+                            return null;
+                        }
+                        throw ex;
+                    }
+                });
+        if (result == null) {
+            return null;
+        }
+        PartETag partETag = result.getPartETag();
+        if (sessionRepository != null) {
+            sessionRepository.savePart(copyRequest.getUploadId(), partETag.getPartNumber(), partETag.getETag());
+        }
+        return partETag;
+    }
+
+    /**
+     * Upload a single part, retrying transient client and service errors,
+     * and record it in the session store.
+     */
+    private PartETag uploadPart(UploadPartRequest partRequest) {
+        retryPolicy.withDeadline(partRequest);
+        PartETag partETag = retryPolicy.execute(
+                "UPLOAD PART " + partRequest.getPartNumber() + " of upload " + partRequest.getUploadId(),
+                () -> s3Client.uploadPart(partRequest).getPartETag());
+        if (sessionRepository != null) {
+            sessionRepository.savePart(partRequest.getUploadId(), partETag.getPartNumber(), partETag.getETag());
+        }
+        return partETag;
+    }
+
+    /**
+     * Keep persisted sessions for a later resume; abort untracked uploads.
+     */
+    private void abortUnlessResumable(String bucketName, String key, String uploadId) {
+        if (sessionRepository != null) {
+            logger.info("Keeping multipart upload {} for {} to resume later", uploadId, key);
+            return;
+        }
+        PartUploads.abort(s3Client, bucketName, key, uploadId);
+    }
+}
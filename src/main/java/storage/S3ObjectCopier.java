@@ -0,0 +1,180 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+
+/**
+ * S3ObjectCopier copies objects inside S3 without moving their content
+ * through this machine.
+ *
+ * Objects up to 5 GB, the CopyObject limit, are copied with a single
+ * CopyObject request, which keeps their metadata. Larger objects are copied
+ * as a multipart upload whose parts are UploadPartCopy requests for byte
+ * ranges of the source, issued concurrently. The source metadata is passed
+ * to the new upload since multipart copies do not carry it over.
+ */
+public class S3ObjectCopier {
+    private static final Logger logger = LogManager.getLogger(S3ObjectCopier.class);
+    /** Largest object S3 copies with a single CopyObject request */
+    public static final long MAX_SINGLE_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+    /** Part size of multipart copies; server-side parts can be large */
+    public static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+
+    private final AmazonS3 s3Client;
+    private final TransferConfig transferConfig;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig concurrency settings
+     * @param retryPolicy retry and deadline policy for every request
+     */
+    public S3ObjectCopier(AmazonS3 s3Client, TransferConfig transferConfig, RetryPolicy retryPolicy) {
+        this.s3Client = s3Client;
+        this.transferConfig = transferConfig;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Copy the object to the target key.
+     *
+     * @param bucketName bucket of source and target
+     * @param sourceKey key of the object to copy
+     * @param targetKey key of the copy
+     * @param sourceMetadata metadata of the source, as returned by a HEAD request
+     * @return ETag and version id of the copy
+     * @throws FileStoreException if the copy fails
+     */
+    public CopyObjectResult copy(String bucketName, String sourceKey, String targetKey, ObjectMetadata sourceMetadata)
+            throws FileStoreException {
+        long size = sourceMetadata.getContentLength();
+        try {
+            if (size <= MAX_SINGLE_COPY_SIZE) {
+                CopyObjectRequest request = retryPolicy.withDeadline(
+                        new CopyObjectRequest(bucketName, sourceKey, bucketName, targetKey));
+                return retryPolicy.execute("COPY " + sourceKey, () -> s3Client.copyObject(request));
+            }
+            return copyMultipart(bucketName, sourceKey, targetKey, sourceMetadata);
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to copy {} to {} error: {}", sourceKey, targetKey, ex.getMessage());
+            throw new FileStoreException("Failed to copy AWS S3 object: " + sourceKey, ex);
+        }
+    }
+
+    /**
+     * Copy an object over 5 GB as a multipart upload of server-side part copies.
+     */
+    private CopyObjectResult copyMultipart(String bucketName, String sourceKey, String targetKey,
+                                           ObjectMetadata sourceMetadata) throws FileStoreException {
+        long size = sourceMetadata.getContentLength();
+        long partSize = Math.max(COPY_PART_SIZE, transferConfig.effectivePartSize(size));
+        ObjectMetadata targetMetadata = uploadMetadata(sourceMetadata);
+        String uploadId = retryPolicy.execute("INITIATE COPY " + targetKey, () -> s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, targetKey, targetMetadata))).getUploadId();
+        String sourceETag = sourceMetadata.getETag();
+        Semaphore permits = new Semaphore(transferConfig.getBatchConcurrency());
+        List<Future<PartETag>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                CopyPartRequest partRequest = new CopyPartRequest()
+                        .withSourceBucketName(bucketName)
+                        .withSourceKey(sourceKey)
+                        .withDestinationBucketName(bucketName)
+                        .withDestinationKey(targetKey)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withFirstByte(offset)
+                        .withLastByte(Math.min(offset + partSize, size) - 1);
+                if (sourceETag != null) {
+                    partRequest.withMatchingETagConstraint(sourceETag);
+                }
+                permits.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return copyPart(partRequest);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<PartETag> partETags = new ArrayList<>();
+            for (Future<PartETag> future : futures) {
+                partETags.add(future.get());
+            }
+            CompleteMultipartUploadResult completed = retryPolicy.execute("COMPLETE COPY " + targetKey,
+                    () -> s3Client.completeMultipartUpload(
+                            new CompleteMultipartUploadRequest(bucketName, targetKey, uploadId, partETags)));
+            logger.info("Copied {} to {} in {} parts", sourceKey, targetKey, partETags.size());
+            CopyObjectResult result = new CopyObjectResult();
+            result.setETag(completed.getETag());
+            result.setVersionId(completed.getVersionId());
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            PartUploads.abort(s3Client, bucketName, targetKey, uploadId);
+            throw new FileStoreException("Multipart copy interrupted: " + sourceKey, ex);
+        } catch (ExecutionException ex) {
+            PartUploads.abort(s3Client, bucketName, targetKey, uploadId);
+            throw new FileStoreException("Failed to copy part of AWS S3 object: " + sourceKey, ex.getCause());
+        } catch (AmazonClientException ex) {
+            PartUploads.abort(s3Client, bucketName, targetKey, uploadId);
+            throw ex;
+        }
+    }
+
+    private PartETag copyPart(CopyPartRequest partRequest) throws FileStoreException {
+        retryPolicy.withDeadline(partRequest);
+        CopyPartResult result = retryPolicy.execute("COPY PART " + partRequest.getPartNumber() + " " + partRequest.getSourceKey(),
+                () -> s3Client.copyPart(partRequest));
+        if (result == null) {
+            throw new FileStoreException("Source changed during multipart copy: " + partRequest.getSourceKey());
+        }
+        return result.getPartETag();
+    }
+
+    /**
+     * Metadata for the new upload: the source's user metadata and content
+     * headers, without the headers describing the stored source object.
+     */
+    private static ObjectMetadata uploadMetadata(ObjectMetadata sourceMetadata) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setUserMetadata(sourceMetadata.getUserMetadata());
+        if (sourceMetadata.getContentType() != null) {
+            metadata.setContentType(sourceMetadata.getContentType());
+        }
+        if (sourceMetadata.getContentEncoding() != null) {
+            metadata.setContentEncoding(sourceMetadata.getContentEncoding());
+        }
+        if (sourceMetadata.getContentDisposition() != null) {
+            metadata.setContentDisposition(sourceMetadata.getContentDisposition());
+        }
+        if (sourceMetadata.getCacheControl() != null) {
+            metadata.setCacheControl(sourceMetadata.getCacheControl());
+        }
+        if (sourceMetadata.getSSEAlgorithm() != null) {
+            metadata.setSSEAlgorithm(sourceMetadata.getSSEAlgorithm());
+        }
+        return metadata;
+    }
+}
@@ -0,0 +1,719 @@
+package storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.SecretKey;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import util.FileUtil;
+
+/**
+ * S3ObjectDownloader copies S3 objects into local files.
+ *
+ * The first GET of a download asks for the first byte range, and the object
+ * size in its Content-Range chooses the mode without a HEAD request. Small
+ * objects are streamed through that GET and at most one more. Objects above
+ * the ranged download threshold are split into byte ranges that are fetched
+ * concurrently and written at their offsets into a preallocated file with
+ * positional FileChannel writes.
+ *
+ * Content is written to a .part file tagged with the object ETag and moved
+ * atomically into place once complete, so an interrupted download never
+ * leaves a truncated file under the final name. A later download of the
+ * same version continues from the .part file: a streamed download from its
+ * length, a ranged download with the ranges not yet recorded in its ranges
+ * file. Partial downloads of other versions are deleted. Objects stored
+ * encrypted or compressed, as recorded in their user metadata, are decrypted
+ * and decompressed while they stream into a temporary file, which is moved
+ * into place once decoding succeeded.
+ *
+ * Requests are retried by the retry policy, and GETs are sent through
+ * HedgedGet so a request stuck before its first byte is hedged or times out.
+ *
+ * An instance downloads one object at a time.
+ */
+public class S3ObjectDownloader {
+    private static final Logger logger = LogManager.getLogger(S3ObjectDownloader.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final String PART_SUFFIX = ".part";
+    private static final String RANGES_SUFFIX = ".ranges";
+    private static final String DECODING_SUFFIX = ".decoding";
+    private static final String UNKNOWN_ETAG = "noetag";
+
+    private final AmazonS3 s3Client;
+    private final TransferConfig transferConfig;
+    private final SecretKey encryptionKey;
+    private ObjectMetadata objectMetadata;
+    private ProgressListener progressListener = ProgressListener.NOOP;
+    private RetryPolicy retryPolicy;
+    private LatencyTracker latencyTracker = new LatencyTracker();
+    private HedgedGet hedgedGet;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig range size, threshold and concurrency settings
+     */
+    public S3ObjectDownloader(AmazonS3 s3Client, TransferConfig transferConfig) {
+        this(s3Client, transferConfig, null);
+    }
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig range size, threshold and concurrency settings
+     * @param encryptionKey key for objects stored with client side encryption, may be null
+     */
+    public S3ObjectDownloader(AmazonS3 s3Client, TransferConfig transferConfig, SecretKey encryptionKey) {
+        this.s3Client = s3Client;
+        this.transferConfig = transferConfig;
+        this.encryptionKey = encryptionKey;
+        this.retryPolicy = RetryPolicy.from(transferConfig);
+        this.hedgedGet = createHedgedGet();
+    }
+
+    /**
+     * @param retryPolicy policy retrying failed requests
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        this.hedgedGet = createHedgedGet();
+    }
+
+    /**
+     * Share request latencies with other downloads so the hedging delay
+     * reflects recent requests of the whole store.
+     *
+     * @param latencyTracker latencies of earlier requests
+     */
+    public void setLatencyTracker(LatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+        this.hedgedGet = createHedgedGet();
+    }
+
+    /**
+     * Attach a progress listener, such as the bandwidth throttling listener
+     * of TransferScheduler, to every request transferring content.
+     *
+     * @param progressListener listener, or null for none
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener == null ? ProgressListener.NOOP : progressListener;
+    }
+
+    /**
+     * Download the object to the target path, choosing ranged or single
+     * stream mode from the object size reported by the first GET.
+     *
+     * @param bucketName source bucket
+     * @param key source object key
+     * @param target local destination file
+     * @return the downloaded file
+     * @throws IOException if the object cannot be read or written locally
+     */
+    public File download(String bucketName, String key, Path target) throws IOException {
+        File parent = target.toFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        objectMetadata = null;
+        File downloaded = resumePart(bucketName, key, target, findPartFile(target));
+        if (downloaded == null) {
+            downloaded = downloadObject(new GetObjectRequest(bucketName, key), target);
+        }
+        if (downloaded == null) {
+            throw new IOException("S3 object not found: " + key);
+        }
+        return downloaded;
+    }
+
+    /**
+     * Download the object only when its ETag no longer matches the given
+     * one. The first GET carries If-None-Match, so an unchanged object
+     * costs a 304 response without content; a changed one continues like
+     * download(), ranged and resumable. A .part file left by an earlier
+     * attempt at another version is resumed first.
+     *
+     * @param bucketName source bucket
+     * @param key source object key
+     * @param eTag ETag of the version already held locally
+     * @param target local destination file
+     * @return the downloaded file, or null if the object is unchanged
+     * @throws IOException if the object cannot be read or written locally
+     */
+    public File downloadIfModified(String bucketName, String key, String eTag, Path target) throws IOException {
+        File parent = target.toFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        objectMetadata = null;
+        Path existingPart = findPartFile(target);
+        if (existingPart != null && !fileTag(eTag).equals(partFileETag(target, existingPart))) {
+            File downloaded = resumePart(bucketName, key, target, existingPart);
+            if (downloaded != null) {
+                return downloaded;
+            }
+        }
+        return downloadObject(new GetObjectRequest(bucketName, key).withNonmatchingETagConstraint(eTag), target);
+    }
+
+    /**
+     * Resume the .part file from its recorded ranges, or from its length
+     * when it was streamed.
+     *
+     * @return the downloaded file, or null if there is no part or the object changed
+     */
+    private File resumePart(String bucketName, String key, Path target, Path partPath) throws IOException {
+        if (partPath == null) {
+            return null;
+        }
+        return Files.exists(rangesFilePath(partPath))
+                ? resumeRanged(bucketName, key, target, partPath)
+                : resumeStream(bucketName, key, target, partPath);
+    }
+
+    /**
+     * Return the metadata of the last downloaded object, or null if unknown.
+     */
+    public ObjectMetadata getObjectMetadata() {
+        return objectMetadata;
+    }
+
+    /**
+     * Codec the last downloaded object was stored with.
+     */
+    public CompressionCodec getCodec() {
+        return objectMetadata == null ? CompressionCodec.NONE
+                : CompressionCodec.fromName(objectMetadata.getUserMetaDataOf(CompressionCodec.METADATA_KEY));
+    }
+
+    /**
+     * Whether the last downloaded object was stored with client side encryption.
+     */
+    public boolean isEncrypted() {
+        return objectMetadata != null
+                && ChunkedAesGcm.SCHEME.equals(objectMetadata.getUserMetaDataOf(ChunkedAesGcm.METADATA_KEY));
+    }
+
+    /**
+     * Whether the last downloaded object was stored encrypted or compressed.
+     */
+    private boolean isEncoded() {
+        return getCodec() != CompressionCodec.NONE || isEncrypted();
+    }
+
+    /**
+     * Decrypt and decompress the object while it streams into a temporary
+     * file, which is moved into place only once decoding succeeded, so a
+     * failure never leaves stored content under the final name. Chunks are
+     * decrypted in parallel. When the first response holds only the first
+     * range, the rest of the object is requested once that range is read.
+     * Decoded downloads do not resume, as a partial plaintext does not map
+     * back to an offset in the stored object.
+     */
+    private File downloadDecoded(String bucketName, String key, String eTag, S3Object first, Path target)
+            throws IOException {
+        CompressionCodec codec = getCodec();
+        boolean encrypted = isEncrypted();
+        if (encrypted && encryptionKey == null) {
+            HedgedGet.abort(first);
+            throw new IOException("Encryption key required to decrypt " + target.getFileName());
+        }
+        Long[] contentRange = first.getObjectMetadata().getContentRange();
+        long objectSize = first.getObjectMetadata().getInstanceLength();
+        InputStream stored = first.getObjectContent();
+        if (contentRange != null && contentRange[1] + 1 < objectSize) {
+            stored = new SequenceInputStream(stored, openRangeOnRead(bucketName, key, eTag, contentRange[1] + 1));
+        }
+        Path decodedPath = decodedFilePath(target, eTag);
+        try (InputStream content = stored;
+             InputStream inputStream = codec.decompress(encrypted
+                     ? new ChunkedAesGcm(encryptionKey, transferConfig.getEncryptionChunkSize()).decrypt(content)
+                     : content);
+             OutputStream outputStream = Files.newOutputStream(decodedPath)) {
+            inputStream.transferTo(outputStream);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(decodedPath);
+            throw ex;
+        }
+        FileUtil.moveAtomically(decodedPath, target);
+        logger.info("Decoded {} (codec {}, encrypted {})", target.getFileName(), codec.getCodecName(), encrypted);
+        return target.toFile();
+    }
+
+    /**
+     * Stream of the object from the offset whose GET, pinned to the ETag, is
+     * sent on the first read, once the content before it has been consumed.
+     */
+    private InputStream openRangeOnRead(String bucketName, String key, String eTag, long start) {
+        return new InputStream() {
+            private InputStream rest;
+
+            @Override
+            public int read() throws IOException {
+                return rest().read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return rest().read(buffer, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (rest != null) {
+                    rest.close();
+                }
+            }
+
+            private InputStream rest() throws IOException {
+                if (rest == null) {
+                    S3Object s3object = getObject(rangeRequest(bucketName, key, eTag).withRange(start));
+                    if (s3object == null) {
+                        throw new IOException("S3 object changed during download: " + key);
+                    }
+                    rest = s3object.getObjectContent();
+                }
+                return rest;
+            }
+        };
+    }
+
+    /**
+     * Send the first GET of a download and write the object from its
+     * response into a .part file tagged with the object's ETag. With ranged
+     * downloads enabled the first GET asks for the first range only; the
+     * object size in its Content-Range decides between fetching the remaining
+     * ranges concurrently and streaming the rest with one more GET, so no
+     * HEAD request is needed.
+     *
+     * @return the downloaded file, or null when an ETag constraint of the request was not met
+     */
+    private File downloadObject(GetObjectRequest request, Path target) throws IOException {
+        S3Object first = getFirstRange(request);
+        if (first == null) {
+            return null;
+        }
+        objectMetadata = first.getObjectMetadata();
+        String eTag = objectMetadata.getETag();
+        deleteStaleParts(target, eTag);
+        if (isEncoded()) {
+            return downloadDecoded(request.getBucketName(), request.getKey(), eTag, first, target);
+        }
+        Long[] contentRange = objectMetadata.getContentRange();
+        long objectSize = objectMetadata.getInstanceLength();
+        if (contentRange != null && objectSize > transferConfig.getRangedDownloadThreshold()) {
+            return downloadRanged(request.getBucketName(), request.getKey(), eTag, objectSize, first, target);
+        }
+        Path partPath = partFilePath(target, eTag);
+        writeStream(first, partPath, false);
+        if (contentRange != null && contentRange[1] + 1 < objectSize) {
+            S3Object rest = getObject(rangeRequest(request.getBucketName(), request.getKey(), eTag)
+                    .withRange(contentRange[1] + 1));
+            if (rest == null) {
+                throw new IOException("S3 object changed during download: " + request.getKey());
+            }
+            writeStream(rest, partPath, true);
+        }
+        FileUtil.moveAtomically(partPath, target);
+        return target.toFile();
+    }
+
+    /**
+     * GET the first range of the object, or the whole object when ranged
+     * downloads are disabled. An empty object has no first range; its 416
+     * response is answered with a plain GET.
+     */
+    private S3Object getFirstRange(GetObjectRequest request) {
+        request.setGeneralProgressListener(progressListener);
+        if (transferConfig.getDownloadConcurrency() <= 1) {
+            return getObject(request);
+        }
+        GetObjectRequest firstRange = ((GetObjectRequest) request.clone())
+                .withRange(0, transferConfig.getDownloadRangeSize() - 1);
+        try {
+            return getObject(firstRange);
+        } catch (AmazonS3Exception ex) {
+            if (ex.getStatusCode() != HTTP_RANGE_NOT_SATISFIABLE) {
+                throw ex;
+            }
+            return getObject(request);
+        }
+    }
+
+    /**
+     * GET request for a range of the object pinned to the given ETag.
+     */
+    private GetObjectRequest rangeRequest(String bucketName, String key, String eTag) {
+        GetObjectRequest request = new GetObjectRequest(bucketName, key);
+        request.setGeneralProgressListener(progressListener);
+        if (eTag != null) {
+            request.withMatchingETagConstraint(eTag);
+        }
+        return request;
+    }
+
+    /**
+     * Continue an interrupted download from the end of the existing .part file.
+     *
+     * @return the completed file, or null when the part file had to be discarded
+     */
+    private File resumeStream(String bucketName, String key, Path target, Path partPath) throws IOException {
+        String eTag = partFileETag(target, partPath);
+        long offset = Files.size(partPath);
+        GetObjectRequest request = new GetObjectRequest(bucketName, key).withMatchingETagConstraint(eTag);
+        request.setGeneralProgressListener(progressListener);
+        if (offset > 0) {
+            request.setRange(offset);
+        }
+        try {
+            S3Object s3object = getObject(request);
+            if (s3object == null) {
+                logger.info("S3 object {} changed since the partial download, restarting", key);
+            } else {
+                objectMetadata = s3object.getObjectMetadata();
+                if (!isEncoded()) {
+                    logger.info("Resuming download of {} from byte {}", key, offset);
+                    writeStream(s3object, partPath, true);
+                    FileUtil.moveAtomically(partPath, target);
+                    return target.toFile();
+                }
+                // encoded objects are decoded while streaming and never leave a .part file
+                HedgedGet.abort(s3object);
+                objectMetadata = null;
+                logger.info("Partial download of {} holds encoded content, restarting", key);
+            }
+        } catch (AmazonS3Exception ex) {
+            if (ex.getStatusCode() != HTTP_RANGE_NOT_SATISFIABLE) {
+                throw ex;
+            }
+            logger.info("Partial download of {} is not resumable, restarting", key);
+        }
+        Files.deleteIfExists(partPath);
+        Files.deleteIfExists(rangesFilePath(partPath));
+        return null;
+    }
+
+    /**
+     * Send the GET with hedging and a deadline, retrying retryable failures.
+     */
+    private S3Object getObject(GetObjectRequest request) {
+        return retryPolicy.execute("GET " + request.getKey(), () -> hedgedGet.getObject(request));
+    }
+
+    private HedgedGet createHedgedGet() {
+        return new HedgedGet(s3Client, latencyTracker, retryPolicy.getRequestTimeout(), transferConfig.isHedgedReads());
+    }
+
+    /**
+     * Copy the object content into the file, appending or truncating.
+     */
+    private void writeStream(S3Object s3object, Path path, boolean append) throws IOException {
+        try (InputStream inputStream = s3object.getObjectContent();
+             OutputStream outputStream = new FileOutputStream(path.toFile(), append)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        }
+    }
+
+    /**
+     * Path of the .part file for the target tagged with the object ETag,
+     * e.g. report.csv.9b2cf535f27731c974343645a3985328.part
+     */
+    static Path partFilePath(Path target, String eTag) {
+        return target.resolveSibling(target.getFileName() + "." + fileTag(eTag) + PART_SUFFIX);
+    }
+
+    /**
+     * Path of the temporary file an encoded object is decoded into,
+     * e.g. report.csv.9b2cf535f27731c974343645a3985328.decoding
+     */
+    static Path decodedFilePath(Path target, String eTag) {
+        return target.resolveSibling(target.getFileName() + "." + fileTag(eTag) + DECODING_SUFFIX);
+    }
+
+    private static String fileTag(String eTag) {
+        return (eTag == null || eTag.isEmpty())? UNKNOWN_ETAG : eTag.replaceAll("[^A-Za-z0-9-]", "");
+    }
+
+    /**
+     * Find a resumable .part file left behind for the target, if any.
+     */
+    private static Path findPartFile(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        String prefix = target.getFileName() + ".";
+        if (directory == null || !Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> candidates = files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(PART_SUFFIX)
+                                && !name.substring(prefix.length(), name.length() - PART_SUFFIX.length()).contains(".");
+                    })
+                    .collect(Collectors.toList());
+            for (Path candidate : candidates) {
+                if (UNKNOWN_ETAG.equals(partFileETag(target, candidate))) {
+                    Files.deleteIfExists(candidate);
+                } else {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Path of the file recording the completed ranges of a ranged .part file,
+     * e.g. report.csv.9b2cf535f27731c974343645a3985328.part.ranges
+     */
+    static Path rangesFilePath(Path partPath) {
+        return partPath.resolveSibling(partPath.getFileName() + RANGES_SUFFIX);
+    }
+
+    /**
+     * Delete .part, ranges and decoding files left for the target by
+     * downloads of other versions of the object, and ranges files whose .part
+     * file is gone.
+     */
+    private static void deleteStaleParts(Path target, String eTag) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        String currentTag = fileTag(eTag);
+        String prefix = target.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.collect(Collectors.toList())) {
+                String name = path.getFileName().toString();
+                String suffix = Stream.of(PART_SUFFIX + RANGES_SUFFIX, PART_SUFFIX, DECODING_SUFFIX)
+                        .filter(name::endsWith)
+                        .findFirst()
+                        .orElse(null);
+                if (suffix == null || !name.startsWith(prefix) || name.length() < prefix.length() + suffix.length()) {
+                    continue;
+                }
+                String tag = name.substring(prefix.length(), name.length() - suffix.length());
+                if (tag.contains(".")) {
+                    continue;
+                }
+                boolean stale = !tag.equals(currentTag)
+                        || (suffix.endsWith(RANGES_SUFFIX) && !Files.exists(partFilePath(target, tag)));
+                if (stale) {
+                    logger.info("Deleting stale partial download {}", name);
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static String partFileETag(Path target, Path partPath) {
+        String name = partPath.getFileName().toString();
+        return name.substring(target.getFileName().toString().length() + 1, name.length() - PART_SUFFIX.length());
+    }
+
+    /**
+     * Fetch the rest of the object as concurrent byte ranges written at their
+     * offsets, while the content of the first range is written at offset 0.
+     * Every range is pinned to the ETag of the first response so a concurrent
+     * overwrite of the object cannot produce a mixed file.
+     */
+    private File downloadRanged(String bucketName, String key, String eTag, long objectSize, S3Object first,
+                                Path target) throws IOException {
+        logger.info("Ranged download of {} ({} bytes, range size {})", key, objectSize,
+                transferConfig.getDownloadRangeSize());
+        Path partPath = partFilePath(target, eTag);
+        // the ranges file marks the .part file as ranged before it is created
+        Files.write(rangesFilePath(partPath), new byte[0]);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(partPath.toFile(), "rw")) {
+            randomAccessFile.setLength(objectSize);
+        } catch (IOException ex) {
+            HedgedGet.abort(first);
+            throw ex;
+        }
+        return fetchRanges(bucketName, key, eTag, ranges(objectSize), first, partPath, target);
+    }
+
+    /**
+     * Continue an interrupted ranged download, fetching only the ranges not
+     * recorded as complete in the ranges file of the .part file. The first
+     * missing range is fetched before the others, so a changed object is
+     * detected with a single request.
+     *
+     * @return the completed file, or null when the part file had to be discarded
+     */
+    private File resumeRanged(String bucketName, String key, Path target, Path partPath) throws IOException {
+        String eTag = partFileETag(target, partPath);
+        long objectSize = Files.size(partPath);
+        Set<String> completed = readCompletedRanges(rangesFilePath(partPath));
+        List<long[]> ranges = ranges(objectSize);
+        List<long[]> missing = ranges.stream()
+                .filter(range -> !completed.contains(range[0] + "-" + range[1]))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            // fetch the last range again to check the object is unchanged
+            missing.add(ranges.get(ranges.size() - 1));
+        }
+        long[] range = missing.get(0);
+        S3Object first = getObject(rangeRequest(bucketName, key, eTag).withRange(range[0], range[1]));
+        if (first == null) {
+            logger.info("S3 object {} changed since the partial download, restarting", key);
+            Files.deleteIfExists(partPath);
+            Files.deleteIfExists(rangesFilePath(partPath));
+            return null;
+        }
+        objectMetadata = first.getObjectMetadata();
+        logger.info("Resuming ranged download of {} with {} of {} ranges missing", key, missing.size(),
+                ranges.size());
+        return fetchRanges(bucketName, key, eTag, missing, first, partPath, target);
+    }
+
+    /**
+     * Fetch the ranges concurrently into the .part file, the first one from
+     * the response already received, and move the file into place once all
+     * are written. Each range is flushed to disk before it is recorded in the
+     * ranges file, so after a failure or crash only unrecorded ranges are
+     * fetched again.
+     *
+     * @param first response for the first of the ranges
+     */
+    private File fetchRanges(String bucketName, String key, String eTag, List<long[]> ranges, S3Object first,
+                             Path partPath, Path target) throws IOException {
+        Path rangesPath = rangesFilePath(partPath);
+        ExecutorService executor = Executors.newFixedThreadPool(transferConfig.getDownloadConcurrency());
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int index = 0; index < ranges.size(); index++) {
+                long start = ranges.get(index)[0];
+                long end = ranges.get(index)[1];
+                boolean firstRange = index == 0;
+                futures.add(executor.submit(() -> {
+                    long written = firstRange
+                            ? writeRange(key, first, start, end, channel)
+                            : downloadRange(bucketName, key, eTag, start, end, channel);
+                    channel.force(false);
+                    recordCompletedRange(rangesPath, start, end);
+                    return written;
+                }));
+            }
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+            completed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ranged download interrupted: " + key, ex);
+        } catch (ExecutionException ex) {
+            logger.error("Ranged download failed for {} error: {}", key, ex.getCause().getMessage());
+            throw new IOException("Failed to download range of S3 object: " + key, ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (!completed) {
+                // the first range may not have been read yet
+                HedgedGet.abort(first);
+            }
+        }
+        FileUtil.moveAtomically(partPath, target);
+        Files.deleteIfExists(rangesPath);
+        return target.toFile();
+    }
+
+    /**
+     * Inclusive byte ranges of the configured range size covering the object.
+     */
+    private List<long[]> ranges(long objectSize) {
+        long rangeSize = transferConfig.getDownloadRangeSize();
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = 0; start < objectSize; start += rangeSize) {
+            ranges.add(new long[] {start, Math.min(start + rangeSize, objectSize) - 1});
+        }
+        return ranges;
+    }
+
+    /**
+     * Append a written range to the ranges file as a "start-end" line.
+     */
+    private synchronized void recordCompletedRange(Path rangesPath, long start, long end) throws IOException {
+        Files.writeString(rangesPath, start + "-" + end + "\n", StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Ranges recorded as complete; a line cut short by a crash is ignored.
+     */
+    private static Set<String> readCompletedRanges(Path rangesPath) throws IOException {
+        try (Stream<String> lines = Files.lines(rangesPath)) {
+            return lines.filter(line -> line.matches("\\d+-\\d+")).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * GET a single inclusive byte range and write it at its offset.
+     *
+     * @return number of bytes written
+     */
+    private long downloadRange(String bucketName, String key, String eTag, long start, long end,
+                               FileChannel channel) throws IOException {
+        S3Object s3object = getObject(rangeRequest(bucketName, key, eTag).withRange(start, end));
+        if (s3object == null) {
+            throw new IOException("S3 object changed during download: " + key);
+        }
+        return writeRange(key, s3object, start, end, channel);
+    }
+
+    /**
+     * Write the content of a range response at its offset.
+     *
+     * @return number of bytes written
+     */
+    private long writeRange(String key, S3Object s3object, long start, long end, FileChannel channel)
+            throws IOException {
+        long position = start;
+        try (InputStream inputStream = s3object.getObjectContent()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) > 0) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+        }
+        if (position != end + 1) {
+            throw new IOException(String.format("Short range read for %s: expected %d bytes, got %d",
+                    key, end - start + 1, position - start));
+        }
+        return position - start;
+    }
+}
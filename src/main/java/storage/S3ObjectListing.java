@@ -0,0 +1,145 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import util.FileUtil;
+
+/**
+ * S3ObjectListing walks a bucket listing page by page, following the
+ * ListObjectsV2 continuation token. Pages are only requested when the
+ * consumer asks for them, so memory stays bounded by one page.
+ *
+ * With a delimiter the listing covers a single folder level: the common
+ * prefixes under the prefix are returned as folder entries ahead of the
+ * objects directly under it.
+ *
+ * Page requests are retried by the retry policy. Service errors that remain
+ * surface as the unchecked AmazonServiceException thrown by the client.
+ */
+public class S3ObjectListing implements Iterator<List<FileObject>> {
+    private final AmazonS3 s3Client;
+    private final ListObjectsV2Request request;
+    private RetryPolicy retryPolicy = RetryPolicy.from(new TransferConfig());
+    private boolean hasMorePages = true;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param bucketName bucket to list
+     * @param prefix key prefix to restrict the listing to, or null for the whole bucket
+     * @param pageSize maximum keys per page (at most 1000)
+     */
+    public S3ObjectListing(AmazonS3 s3Client, String bucketName, String prefix, int pageSize) {
+        this(s3Client, bucketName, prefix, pageSize, null);
+    }
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param bucketName bucket to list
+     * @param prefix key prefix to restrict the listing to, or null for the whole bucket
+     * @param pageSize maximum keys per page (at most 1000)
+     * @param delimiter folder delimiter, e.g. "/", or null for a flat listing
+     */
+    public S3ObjectListing(AmazonS3 s3Client, String bucketName, String prefix, int pageSize, String delimiter) {
+        this.s3Client = s3Client;
+        this.request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withDelimiter(delimiter)
+                .withMaxKeys(pageSize);
+    }
+
+    /**
+     * @param retryPolicy policy retrying failed page requests
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasMorePages;
+    }
+
+    /**
+     * Fetch the next page of the listing.
+     */
+    @Override
+    public List<FileObject> next() {
+        if (!hasMorePages) {
+            throw new NoSuchElementException("No more listing pages");
+        }
+        ListObjectsV2Result result = retryPolicy.execute("LIST " + request.getBucketName(),
+                () -> s3Client.listObjectsV2(request));
+        hasMorePages = result.isTruncated() && result.getNextContinuationToken() != null;
+        request.setContinuationToken(result.getNextContinuationToken());
+        List<FileObject> page = new ArrayList<>();
+        for (String commonPrefix : result.getCommonPrefixes()) {
+            page.add(toFolderObject(request.getBucketName(), commonPrefix));
+        }
+        result.getObjectSummaries().stream()
+                // skip the zero byte marker object of the listed folder itself
+                .filter(object -> !object.getKey().equals(request.getPrefix()))
+                .map(S3ObjectListing::toFileObject)
+                .forEach(page::add);
+        return page;
+    }
+
+    /**
+     * Lazily stream the objects of the listing.
+     *
+     * @param prefetchPages number of pages fetched ahead of the consumer on a
+     *                      background thread; 0 fetches pages on demand
+     * @return stream of file objects; close it to stop any background fetching
+     */
+    public Stream<FileObject> stream(int prefetchPages) {
+        Stream<List<FileObject>> pageStream;
+        if (prefetchPages > 0) {
+            PrefetchingIterator<List<FileObject>> prefetching = new PrefetchingIterator<>(this, prefetchPages);
+            pageStream = toStream(prefetching).onClose(prefetching::close);
+        } else {
+            pageStream = toStream(this);
+        }
+        return pageStream.flatMap(List::stream);
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Map a listing summary to a FileObject.
+     */
+    public static FileObject toFileObject(S3ObjectSummary object) {
+        return FileObject.builder()
+                .setFileName(object.getKey())
+                .setBucketName(object.getBucketName())
+                .setFileSize(object.getSize())
+                .setLastModifiedDate(object.getLastModified())
+                .setCheckSum(object.getETag())
+                .build();
+    }
+
+    /**
+     * Map a common prefix to a folder FileObject.
+     */
+    public static FileObject toFolderObject(String bucketName, String prefix) {
+        return FileObject.builder()
+                .setFileName(prefix)
+                .setBucketName(bucketName)
+                .setFileType(FileUtil.FOLDER_OBJECT_TYPE)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package storage;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * S3RequestMetrics counts the requests sent by the AmazonS3 clients created
+ * by S3ClientFactory, per request type, along with failures and the total
+ * client side execution time.
+ */
+public class S3RequestMetrics extends RequestMetricCollector {
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder totalTimeMillis = new LongAdder();
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        String requestType = request.getOriginalRequest() == null
+                ? "Unknown" : request.getOriginalRequest().getClass().getSimpleName();
+        requestCounts.computeIfAbsent(requestType, type -> new LongAdder()).increment();
+        if (response == null) {
+            failedRequests.increment();
+        }
+        TimingInfo timingInfo = request.getAWSRequestMetrics() == null
+                ? null : request.getAWSRequestMetrics().getTimingInfo();
+        if (timingInfo != null && timingInfo.isEndTimeKnown()) {
+            totalTimeMillis.add(timingInfo.getTimeTakenMillisIfKnown().longValue());
+        }
+    }
+
+    /**
+     * @return total number of requests collected
+     */
+    public long getTotalRequests() {
+        return requestCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return request counts keyed by request type, e.g. PutObjectRequest
+     */
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requestCounts.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    /**
+     * @return number of requests completed without a response
+     */
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    /**
+     * @return total client execution time of all requests in milliseconds
+     */
+    public long getTotalTimeMillis() {
+        return totalTimeMillis.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("S3RequestMetrics{");
+        sb.append("requests=").append(getRequestCounts());
+        sb.append(", failedRequests=").append(getFailedRequests());
+        sb.append(", totalTimeMillis=").append(getTotalTimeMillis());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * S3StreamUploader uploads an InputStream of unknown length without
+ * spilling it to disk.
+ *
+ * The stream is read into part sized buffers taken from a bounded pool of
+ * uploadConcurrency + 1 buffers. Full buffers are uploaded as multipart parts
+ * while the next one is being filled, and a buffer only returns to the pool
+ * once its part is uploaded, so a slow network blocks the producer instead of
+ * growing memory. Streams that end within the first buffer are sent with a
+ * single PUT. As the length is unknown up front the part size is not grown,
+ * so a stream can hold at most TransferConfig.MAX_PARTS parts.
+ */
+public class S3StreamUploader {
+    private static final Logger logger = LogManager.getLogger(S3StreamUploader.class);
+
+    private final AmazonS3 s3Client;
+    private final TransferConfig transferConfig;
+    private ProgressListener progressListener = ProgressListener.NOOP;
+    private RetryPolicy retryPolicy;
+
+    /**
+     * @param s3Client connected AmazonS3 client
+     * @param transferConfig part size, concurrency and retry settings
+     */
+    public S3StreamUploader(AmazonS3 s3Client, TransferConfig transferConfig) {
+        this.s3Client = s3Client;
+        this.transferConfig = transferConfig;
+        this.retryPolicy = RetryPolicy.from(transferConfig);
+    }
+
+    /**
+     * @param retryPolicy policy retrying failed requests
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Attach a progress listener, such as the bandwidth throttling listener
+     * of TransferScheduler, to every request transferring content.
+     *
+     * @param progressListener listener, or null for none
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener == null ? ProgressListener.NOOP : progressListener;
+    }
+
+    /**
+     * Read the stream to its end and store it under the key. The stream is not
+     * closed.
+     *
+     * @param bucketName target bucket
+     * @param key target object key
+     * @param inputStream content to upload
+     * @return the stored object
+     * @throws FileStoreException if reading the stream or uploading fails
+     */
+    public FileObject upload(String bucketName, String key, InputStream inputStream) throws FileStoreException {
+        return upload(bucketName, key, inputStream, Map.of());
+    }
+
+    /**
+     * Read the stream to its end and store it under the key with the given
+     * user metadata. The stream is not closed.
+     *
+     * @param bucketName target bucket
+     * @param key target object key
+     * @param inputStream content to upload
+     * @param userMetadata user metadata stored with the object
+     * @return the stored object
+     * @throws FileStoreException if reading the stream or uploading fails
+     */
+    public FileObject upload(String bucketName, String key, InputStream inputStream,
+                             Map<String, String> userMetadata) throws FileStoreException {
+        int partSize = (int) Math.min(transferConfig.getPartSize(), Integer.MAX_VALUE - 8);
+        byte[] firstBuffer = new byte[partSize];
+        int firstLength;
+        try {
+            firstLength = readFully(inputStream, firstBuffer);
+        } catch (IOException ex) {
+            throw new FileStoreException("Failed to read upload stream for " + key, ex);
+        }
+        if (firstLength < partSize) {
+            return putSingle(bucketName, key, firstBuffer, firstLength, userMetadata);
+        }
+        return uploadMultipart(bucketName, key, inputStream, firstBuffer, userMetadata);
+    }
+
+    /**
+     * Send content that fits in one buffer with a single PUT.
+     */
+    private FileObject putSingle(String bucketName, String key, byte[] buffer, int length,
+                                 Map<String, String> userMetadata) throws FileStoreException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(length);
+        metadata.setUserMetadata(userMetadata);
+        try {
+            PutObjectResult result = retryPolicy.execute("PUT " + key, () -> {
+                PutObjectRequest request = new PutObjectRequest(bucketName, key,
+                        new ByteArrayInputStream(buffer, 0, length), metadata);
+                request.setGeneralProgressListener(progressListener);
+                return s3Client.putObject(request);
+            });
+            return toFileObject(bucketName, key, length,
+                    result != null ? result.getETag() : "", result != null ? result.getVersionId() : null);
+        } catch (AmazonClientException ex) {
+            logger.error("Failed to upload stream to {} error: {}", key, ex.getMessage());
+            throw new FileStoreException("Failed to save AWS S3 object: " + key, ex);
+        }
+    }
+
+    /**
+     * Upload the stream as multipart parts while it is still being read.
+     */
+    private FileObject uploadMultipart(String bucketName, String key, InputStream inputStream,
+                                       byte[] firstBuffer, Map<String, String> userMetadata) throws FileStoreException {
+        int poolSize = transferConfig.getUploadConcurrency() + 1;
+        BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(poolSize);
+        for (int index = 1; index < poolSize; index++) {
+            bufferPool.add(new byte[firstBuffer.length]);
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setUserMetadata(userMetadata);
+        String uploadId = retryPolicy.execute("INITIATE " + key, () -> s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, key, metadata))).getUploadId();
+        logger.info("Started streaming multipart upload {} for {}", uploadId, key);
+        ExecutorService executor = Executors.newFixedThreadPool(transferConfig.getUploadConcurrency());
+        try {
+            List<Future<PartETag>> futures = new ArrayList<>();
+            long totalSize = 0;
+            byte[] buffer = firstBuffer;
+            int length = firstBuffer.length;
+            int partNumber = 1;
+            while (length > 0) {
+                if (partNumber > TransferConfig.MAX_PARTS) {
+                    throw new FileStoreException(String.format("Stream for %s exceeds %d parts of %d bytes",
+                            key, TransferConfig.MAX_PARTS, firstBuffer.length));
+                }
+                failOnCompletedPartError(futures);
+                futures.add(executor.submit(uploadPartTask(bucketName, key, uploadId, partNumber++,
+                        buffer, length, bufferPool)));
+                totalSize += length;
+                buffer = bufferPool.take();
+                length = readFully(inputStream, buffer);
+            }
+            List<PartETag> partETags = new ArrayList<>();
+            for (Future<PartETag> future : futures) {
+                partETags.add(future.get());
+            }
+            CompleteMultipartUploadResult result = retryPolicy.execute("COMPLETE " + key,
+                    () -> s3Client.completeMultipartUpload(
+                            new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags)));
+            logger.info("Completed streaming multipart upload {} for {} with {} parts", uploadId, key, partETags.size());
+            return toFileObject(bucketName, key, totalSize,
+                    result != null ? result.getETag() : "", result != null ? result.getVersionId() : null);
+        } catch (IOException ex) {
+            PartUploads.stop(executor);
+            PartUploads.abort(s3Client, bucketName, key, uploadId);
+            throw new FileStoreException("Failed to read upload stream for " + key, ex);
+        } catch (InterruptedException ex) {
+            // restore the flag only once the parts have stopped, or awaitTermination would not wait
+            PartUploads.stop(executor);
+            PartUploads.abort(s3Client, bucketName, key, uploadId);
+            Thread.currentThread().interrupt();
+            throw new FileStoreException("Streaming upload interrupted: " + key, ex);
+        } catch (ExecutionException ex) {
+            PartUploads.stop(executor);
+            PartUploads.abort(s3Client, bucketName, key, uploadId);
+            logger.error("Streaming upload part failed for {} error: {}", key, ex.getCause().getMessage());
+            throw new FileStoreException("Failed to upload part of AWS S3 object: " + key, ex.getCause());
+        } catch (FileStoreException ex) {
+            PartUploads.stop(executor);
+            PartUploads.abort(s3Client, bucketName, key, uploadId);
+            throw ex;
+        } catch (AmazonClientException ex) {
+            PartUploads.abort(s3Client, bucketName, key, uploadId);
+            logger.error("Failed to complete streaming upload for {} error: {}", key, ex.getMessage());
+            throw new FileStoreException("Failed to complete AWS S3 multipart upload: " + key, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Upload one buffered part with retries and hand the buffer back to the pool.
+     */
+    private Callable<PartETag> uploadPartTask(String bucketName, String key, String uploadId,
+            int partNumber, byte[] buffer, int length, BlockingQueue<byte[]> bufferPool) {
+        return () -> {
+            try {
+                return retryPolicy.execute("UPLOAD PART " + partNumber + " of upload " + uploadId, () -> {
+                    UploadPartRequest partRequest = retryPolicy.withDeadline(new UploadPartRequest()
+                            .withBucketName(bucketName)
+                            .withKey(key)
+                            .withUploadId(uploadId)
+                            .withPartNumber(partNumber)
+                            .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+                            .withPartSize(length));
+                    partRequest.setGeneralProgressListener(progressListener);
+                    return s3Client.uploadPart(partRequest).getPartETag();
+                });
+            } finally {
+                bufferPool.add(buffer);
+            }
+        };
+    }
+
+    /**
+     * Stop reading the stream as soon as any part has failed.
+     */
+    private void failOnCompletedPartError(List<Future<PartETag>> futures)
+            throws ExecutionException, InterruptedException {
+        for (Future<PartETag> future : futures) {
+            if (future.isDone()) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Fill the buffer from the stream.
+     *
+     * @return number of bytes read, less than the buffer size only at the end of the stream
+     */
+    private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int bytesRead = inputStream.read(buffer, length, buffer.length - length);
+            if (bytesRead < 0) {
+                break;
+            }
+            length += bytesRead;
+        }
+        return length;
+    }
+
+    private static FileObject toFileObject(String bucketName, String key, long size, String eTag, String versionId) {
+        return FileObject.builder()
+                .setFileName(key)
+                .setLastModifiedDate(new Date())
+                .setBucketName(bucketName)
+                .setFileSize(size)
+                .setVersion(versionId != null ? versionId : "1")
+                .setCheckSum(eTag)
+                .build();
+    }
+}
@@ -0,0 +1,406 @@
+package storage;
+
+import java.time.Duration;
+
+/**
+ * TransferConfig holds the tuning knobs used by the cloud store when moving
+ * file content to and from the remote storage (part sizes, thresholds and
+ * concurrency limits).
+ */
+public class TransferConfig {
+    // S3 rejects multipart parts smaller than 5 MB (except the last one)
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    // S3 allows at most 10,000 parts per multipart upload
+    public static final int MAX_PARTS = 10_000;
+
+    private long multipartThreshold = 32L * 1024 * 1024;
+    private long partSize = 8L * 1024 * 1024;
+    private int uploadConcurrency = 4;
+    private long rangedDownloadThreshold = 32L * 1024 * 1024;
+    private long downloadRangeSize = 8L * 1024 * 1024;
+    private int downloadConcurrency = 4;
+    private int listPageSize = 1000;
+    private int listPrefetchPages = 2;
+    private int batchConcurrency = 16;
+    private Duration staleUploadMaxAge = Duration.ofDays(7);
+    // off by default: the check costs a full read of the file plus a HEAD per upload
+    private boolean skipUnchangedUploads = false;
+    private Duration folderCacheTtl = Duration.ofSeconds(30);
+    private int folderCacheMaxEntries = 256;
+    private CompressionCodec compressionCodec = CompressionCodec.NONE;
+    private long compressionMinSize = 4L * 1024;
+    private boolean clientSideEncryption = false;
+    private int encryptionChunkSize = ChunkedAesGcm.DEFAULT_CHUNK_SIZE;
+    private long uploadBytesPerSecond = 0;
+    private long downloadBytesPerSecond = 0;
+    private int maxRequestRetries = 3;
+    private Duration retryBaseDelay = Duration.ofMillis(100);
+    private Duration retryMaxDelay = Duration.ofSeconds(10);
+    private Duration requestTimeout = Duration.ofSeconds(60);
+    private boolean hedgedReads = true;
+    private long downloadCacheMaxBytes = 2L * 1024 * 1024 * 1024;
+    private Duration listingCacheTtl = Duration.ofSeconds(30);
+    private boolean deltaUploads = true;
+
+    public long getMultipartThreshold() {
+        return multipartThreshold;
+    }
+    public void setMultipartThreshold(long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+    public long getPartSize() {
+        return partSize;
+    }
+    public void setPartSize(long partSize) {
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+    }
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = Math.max(1, uploadConcurrency);
+    }
+    public long getRangedDownloadThreshold() {
+        return rangedDownloadThreshold;
+    }
+    public void setRangedDownloadThreshold(long rangedDownloadThreshold) {
+        this.rangedDownloadThreshold = rangedDownloadThreshold;
+    }
+    public long getDownloadRangeSize() {
+        return downloadRangeSize;
+    }
+    public void setDownloadRangeSize(long downloadRangeSize) {
+        this.downloadRangeSize = Math.max(1, downloadRangeSize);
+    }
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = Math.max(1, downloadConcurrency);
+    }
+    public int getListPageSize() {
+        return listPageSize;
+    }
+    public void setListPageSize(int listPageSize) {
+        this.listPageSize = Math.max(1, Math.min(listPageSize, 1000));
+    }
+    public int getListPrefetchPages() {
+        return listPrefetchPages;
+    }
+    public void setListPrefetchPages(int listPrefetchPages) {
+        this.listPrefetchPages = Math.max(1, listPrefetchPages);
+    }
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = Math.max(1, batchConcurrency);
+    }
+    public Duration getStaleUploadMaxAge() {
+        return staleUploadMaxAge;
+    }
+    public void setStaleUploadMaxAge(Duration staleUploadMaxAge) {
+        this.staleUploadMaxAge = staleUploadMaxAge;
+    }
+    public boolean isSkipUnchangedUploads() {
+        return skipUnchangedUploads;
+    }
+    public void setSkipUnchangedUploads(boolean skipUnchangedUploads) {
+        this.skipUnchangedUploads = skipUnchangedUploads;
+    }
+
+    public Duration getFolderCacheTtl() {
+        return folderCacheTtl;
+    }
+    public void setFolderCacheTtl(Duration folderCacheTtl) {
+        this.folderCacheTtl = folderCacheTtl;
+    }
+    public int getFolderCacheMaxEntries() {
+        return folderCacheMaxEntries;
+    }
+    public void setFolderCacheMaxEntries(int folderCacheMaxEntries) {
+        this.folderCacheMaxEntries = Math.max(0, folderCacheMaxEntries);
+    }
+    public CompressionCodec getCompressionCodec() {
+        return compressionCodec;
+    }
+    public void setCompressionCodec(CompressionCodec compressionCodec) {
+        this.compressionCodec = compressionCodec == null ? CompressionCodec.NONE : compressionCodec;
+    }
+    public long getCompressionMinSize() {
+        return compressionMinSize;
+    }
+    public void setCompressionMinSize(long compressionMinSize) {
+        this.compressionMinSize = Math.max(0, compressionMinSize);
+    }
+    public boolean isClientSideEncryption() {
+        return clientSideEncryption;
+    }
+    public void setClientSideEncryption(boolean clientSideEncryption) {
+        this.clientSideEncryption = clientSideEncryption;
+    }
+    public int getEncryptionChunkSize() {
+        return encryptionChunkSize;
+    }
+    public void setEncryptionChunkSize(int encryptionChunkSize) {
+        this.encryptionChunkSize = Math.max(4 * 1024, encryptionChunkSize);
+    }
+    public long getUploadBytesPerSecond() {
+        return uploadBytesPerSecond;
+    }
+    public void setUploadBytesPerSecond(long uploadBytesPerSecond) {
+        this.uploadBytesPerSecond = Math.max(0, uploadBytesPerSecond);
+    }
+    public long getDownloadBytesPerSecond() {
+        return downloadBytesPerSecond;
+    }
+    public void setDownloadBytesPerSecond(long downloadBytesPerSecond) {
+        this.downloadBytesPerSecond = Math.max(0, downloadBytesPerSecond);
+    }
+    public int getMaxRequestRetries() {
+        return maxRequestRetries;
+    }
+    public void setMaxRequestRetries(int maxRequestRetries) {
+        this.maxRequestRetries = Math.max(0, maxRequestRetries);
+    }
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+    public void setRetryBaseDelay(Duration retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+    public boolean isHedgedReads() {
+        return hedgedReads;
+    }
+    public void setHedgedReads(boolean hedgedReads) {
+        this.hedgedReads = hedgedReads;
+    }
+    public long getDownloadCacheMaxBytes() {
+        return downloadCacheMaxBytes;
+    }
+    public void setDownloadCacheMaxBytes(long downloadCacheMaxBytes) {
+        this.downloadCacheMaxBytes = Math.max(0, downloadCacheMaxBytes);
+    }
+    public Duration getListingCacheTtl() {
+        return listingCacheTtl;
+    }
+    public void setListingCacheTtl(Duration listingCacheTtl) {
+        this.listingCacheTtl = listingCacheTtl;
+    }
+    public boolean isDeltaUploads() {
+        return deltaUploads;
+    }
+    public void setDeltaUploads(boolean deltaUploads) {
+        this.deltaUploads = deltaUploads;
+    }
+
+    /**
+     * Part size actually used for a file of the given size. The configured part
+     * size is grown when needed so the upload never exceeds MAX_PARTS parts.
+     *
+     * @param fileSize total content size in bytes
+     * @return part size in bytes
+     */
+    public long effectivePartSize(long fileSize) {
+        long minimumForCount = (fileSize + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(partSize, minimumForCount);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TransferConfig{");
+        sb.append("multipartThreshold=").append(multipartThreshold);
+        sb.append(", partSize=").append(partSize);
+        sb.append(", uploadConcurrency=").append(uploadConcurrency);
+        sb.append(", rangedDownloadThreshold=").append(rangedDownloadThreshold);
+        sb.append(", downloadRangeSize=").append(downloadRangeSize);
+        sb.append(", downloadConcurrency=").append(downloadConcurrency);
+        sb.append(", listPageSize=").append(listPageSize);
+        sb.append(", listPrefetchPages=").append(listPrefetchPages);
+        sb.append(", batchConcurrency=").append(batchConcurrency);
+        sb.append(", staleUploadMaxAge=").append(staleUploadMaxAge);
+        sb.append(", skipUnchangedUploads=").append(skipUnchangedUploads);
+        sb.append(", folderCacheTtl=").append(folderCacheTtl);
+        sb.append(", folderCacheMaxEntries=").append(folderCacheMaxEntries);
+        sb.append(", compressionCodec=").append(compressionCodec);
+        sb.append(", compressionMinSize=").append(compressionMinSize);
+        sb.append(", clientSideEncryption=").append(clientSideEncryption);
+        sb.append(", encryptionChunkSize=").append(encryptionChunkSize);
+        sb.append(", uploadBytesPerSecond=").append(uploadBytesPerSecond);
+        sb.append(", downloadBytesPerSecond=").append(downloadBytesPerSecond);
+        sb.append(", maxRequestRetries=").append(maxRequestRetries);
+        sb.append(", retryBaseDelay=").append(retryBaseDelay);
+        sb.append(", retryMaxDelay=").append(retryMaxDelay);
+        sb.append(", requestTimeout=").append(requestTimeout);
+        sb.append(", hedgedReads=").append(hedgedReads);
+        sb.append(", downloadCacheMaxBytes=").append(downloadCacheMaxBytes);
+        sb.append(", listingCacheTtl=").append(listingCacheTtl);
+        sb.append(", deltaUploads=").append(deltaUploads);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public static TransferConfigBuilder builder(){
+        return new TransferConfigBuilder();
+    }
+
+    public static class TransferConfigBuilder{
+        private final TransferConfig transferConfig;
+
+        public TransferConfigBuilder(){
+            this.transferConfig = new TransferConfig();
+        }
+
+        public TransferConfigBuilder setMultipartThreshold(long multipartThreshold) {
+            this.transferConfig.setMultipartThreshold(multipartThreshold);
+            return this;
+        }
+
+        public TransferConfigBuilder setPartSize(long partSize) {
+            this.transferConfig.setPartSize(partSize);
+            return this;
+        }
+
+        public TransferConfigBuilder setUploadConcurrency(int uploadConcurrency) {
+            this.transferConfig.setUploadConcurrency(uploadConcurrency);
+            return this;
+        }
+
+        public TransferConfigBuilder setRangedDownloadThreshold(long rangedDownloadThreshold) {
+            this.transferConfig.setRangedDownloadThreshold(rangedDownloadThreshold);
+            return this;
+        }
+
+        public TransferConfigBuilder setDownloadRangeSize(long downloadRangeSize) {
+            this.transferConfig.setDownloadRangeSize(downloadRangeSize);
+            return this;
+        }
+
+        public TransferConfigBuilder setDownloadConcurrency(int downloadConcurrency) {
+            this.transferConfig.setDownloadConcurrency(downloadConcurrency);
+            return this;
+        }
+
+        public TransferConfigBuilder setListPageSize(int listPageSize) {
+            this.transferConfig.setListPageSize(listPageSize);
+            return this;
+        }
+
+        public TransferConfigBuilder setListPrefetchPages(int listPrefetchPages) {
+            this.transferConfig.setListPrefetchPages(listPrefetchPages);
+            return this;
+        }
+
+        public TransferConfigBuilder setBatchConcurrency(int batchConcurrency) {
+            this.transferConfig.setBatchConcurrency(batchConcurrency);
+            return this;
+        }
+
+        public TransferConfigBuilder setStaleUploadMaxAge(Duration staleUploadMaxAge) {
+            this.transferConfig.setStaleUploadMaxAge(staleUploadMaxAge);
+            return this;
+        }
+
+        public TransferConfigBuilder setSkipUnchangedUploads(boolean skipUnchangedUploads) {
+            this.transferConfig.setSkipUnchangedUploads(skipUnchangedUploads);
+            return this;
+        }
+
+        public TransferConfigBuilder setFolderCacheTtl(Duration folderCacheTtl) {
+            this.transferConfig.setFolderCacheTtl(folderCacheTtl);
+            return this;
+        }
+
+        public TransferConfigBuilder setFolderCacheMaxEntries(int folderCacheMaxEntries) {
+            this.transferConfig.setFolderCacheMaxEntries(folderCacheMaxEntries);
+            return this;
+        }
+
+        public TransferConfigBuilder setCompressionCodec(CompressionCodec compressionCodec) {
+            this.transferConfig.setCompressionCodec(compressionCodec);
+            return this;
+        }
+
+        public TransferConfigBuilder setCompressionMinSize(long compressionMinSize) {
+            this.transferConfig.setCompressionMinSize(compressionMinSize);
+            return this;
+        }
+
+        public TransferConfigBuilder setClientSideEncryption(boolean clientSideEncryption) {
+            this.transferConfig.setClientSideEncryption(clientSideEncryption);
+            return this;
+        }
+
+        public TransferConfigBuilder setEncryptionChunkSize(int encryptionChunkSize) {
+            this.transferConfig.setEncryptionChunkSize(encryptionChunkSize);
+            return this;
+        }
+
+        public TransferConfigBuilder setUploadBytesPerSecond(long uploadBytesPerSecond) {
+            this.transferConfig.setUploadBytesPerSecond(uploadBytesPerSecond);
+            return this;
+        }
+
+        public TransferConfigBuilder setDownloadBytesPerSecond(long downloadBytesPerSecond) {
+            this.transferConfig.setDownloadBytesPerSecond(downloadBytesPerSecond);
+            return this;
+        }
+
+        public TransferConfigBuilder setMaxRequestRetries(int maxRequestRetries) {
+            this.transferConfig.setMaxRequestRetries(maxRequestRetries);
+            return this;
+        }
+
+        public TransferConfigBuilder setRetryBaseDelay(Duration retryBaseDelay) {
+            this.transferConfig.setRetryBaseDelay(retryBaseDelay);
+            return this;
+        }
+
+        public TransferConfigBuilder setRetryMaxDelay(Duration retryMaxDelay) {
+            this.transferConfig.setRetryMaxDelay(retryMaxDelay);
+            return this;
+        }
+
+        public TransferConfigBuilder setRequestTimeout(Duration requestTimeout) {
+            this.transferConfig.setRequestTimeout(requestTimeout);
+            return this;
+        }
+
+        public TransferConfigBuilder setHedgedReads(boolean hedgedReads) {
+            this.transferConfig.setHedgedReads(hedgedReads);
+            return this;
+        }
+
+        public TransferConfigBuilder setDownloadCacheMaxBytes(long downloadCacheMaxBytes) {
+            this.transferConfig.setDownloadCacheMaxBytes(downloadCacheMaxBytes);
+            return this;
+        }
+
+        public TransferConfigBuilder setListingCacheTtl(Duration listingCacheTtl) {
+            this.transferConfig.setListingCacheTtl(listingCacheTtl);
+            return this;
+        }
+
+        public TransferConfigBuilder setDeltaUploads(boolean deltaUploads) {
+            this.transferConfig.setDeltaUploads(deltaUploads);
+            return this;
+        }
+
+        public TransferConfig build(){
+            return transferConfig;
+        }
+    }
+}
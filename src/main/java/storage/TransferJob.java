@@ -0,0 +1,128 @@
+package storage;
+
+import java.util.Date;
+
+/**
+ * TransferJob is a single upload or download stored in the durable transfer
+ * queue, together with its state and retry bookkeeping.
+ */
+public class TransferJob {
+    /**
+     * Direction of the transfer.
+     */
+    public enum Type {
+        UPLOAD,
+        DOWNLOAD
+    }
+
+    /**
+     * Lifecycle of a job: queued jobs are picked up by a worker and become
+     * running, then end as done, or as failed once their attempts run out.
+     */
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final long id;
+    private final Type type;
+    private final State state;
+    private final String key;
+    private final String filePath;
+    private final long fileSize;
+    private final TransferPriority priority;
+    private final int attempts;
+    private final int maxAttempts;
+    private final String lastError;
+    private final Date createdDate;
+    private final Date nextAttemptDate;
+
+    public TransferJob(long id, Type type, State state, String key, String filePath, long fileSize,
+                       TransferPriority priority, int attempts, int maxAttempts, String lastError,
+                       Date createdDate, Date nextAttemptDate) {
+        this.id = id;
+        this.type = type;
+        this.state = state;
+        this.key = key;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.priority = priority;
+        this.attempts = attempts;
+        this.maxAttempts = maxAttempts;
+        this.lastError = lastError;
+        this.createdDate = createdDate;
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    /**
+     * Create a new queued job that is due immediately.
+     *
+     * @param type upload or download
+     * @param key object key in the bucket
+     * @param filePath local file to upload, or null for downloads
+     * @param fileSize size in bytes used by the smallest first order, 0 if unknown
+     * @param priority bandwidth lane the transfer runs in
+     * @param maxAttempts attempts before the job is marked failed
+     * @return TransferJob
+     */
+    public static TransferJob queued(Type type, String key, String filePath, long fileSize,
+                                     TransferPriority priority, int maxAttempts) {
+        Date now = new Date();
+        return new TransferJob(0, type, State.QUEUED, key, filePath, fileSize, priority, 0, maxAttempts,
+                null, now, now);
+    }
+
+    public long getId() {
+        return id;
+    }
+    public Type getType() {
+        return type;
+    }
+    public State getState() {
+        return state;
+    }
+    public String getKey() {
+        return key;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public long getFileSize() {
+        return fileSize;
+    }
+    public TransferPriority getPriority() {
+        return priority;
+    }
+    public int getAttempts() {
+        return attempts;
+    }
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    public String getLastError() {
+        return lastError;
+    }
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TransferJob{");
+        sb.append("id=").append(id);
+        sb.append(", type=").append(type);
+        sb.append(", state=").append(state);
+        sb.append(", key=").append(key);
+        sb.append(", filePath=").append(filePath);
+        sb.append(", priority=").append(priority);
+        sb.append(", attempts=").append(attempts).append('/').append(maxAttempts);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package storage;
+
+/**
+ * TransferJobListener is notified by the transfer queue workers when a job
+ * finishes. Callbacks run on the worker thread.
+ */
+public interface TransferJobListener {
+    /**
+     * A job completed.
+     *
+     * @param job the completed job
+     * @param fileObject the uploaded or downloaded file object
+     */
+    public void onCompleted(TransferJob job, FileObject fileObject);
+
+    /**
+     * A job used up its attempts and was marked failed.
+     *
+     * @param job the failed job
+     * @param ex the error of the last attempt
+     */
+    public void onFailed(TransferJob job, FileStoreException ex);
+}
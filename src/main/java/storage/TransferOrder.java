@@ -0,0 +1,27 @@
+package storage;
+
+/**
+ * TransferOrder is the policy deciding which queued transfer job a free
+ * worker picks up next.
+ */
+public enum TransferOrder {
+    /** Oldest job first */
+    FIFO("created_date, id"),
+    /** Interactive jobs first, then oldest first */
+    PRIORITY("CASE priority WHEN 'INTERACTIVE' THEN 0 ELSE 1 END, created_date, id"),
+    /** Smallest file first, so many small transfers finish early */
+    SMALLEST_FIRST("file_size, created_date, id");
+
+    private final String orderBy;
+
+    TransferOrder(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * @return SQL ORDER BY expression over the transfer_job table
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+}
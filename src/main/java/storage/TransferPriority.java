@@ -0,0 +1,50 @@
+package storage;
+
+/**
+ * TransferPriority is the lane a transfer is scheduled in by the bandwidth
+ * limiter. Interactive transfers, started directly by the user, are granted
+ * bandwidth ahead of bulk transfers such as batch uploads and sync.
+ *
+ * The priority is bound to the calling thread; transfers started by the
+ * cloud store capture it when the operation begins, so part uploads and
+ * ranged downloads on worker threads keep the priority of their caller.
+ */
+public enum TransferPriority {
+    INTERACTIVE,
+    BULK;
+
+    private static final ThreadLocal<TransferPriority> CURRENT = ThreadLocal.withInitial(() -> BULK);
+
+    /**
+     * Operation run with a transfer priority
+     */
+    @FunctionalInterface
+    public interface PriorityCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Return the priority of transfers started by the current thread
+     * @return TransferPriority
+     */
+    public static TransferPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run the call with the given priority for transfers it starts
+     * @param priority
+     * @param call
+     * @return the result of the call
+     * @throws E the exception thrown by the call
+     */
+    public static <T, E extends Exception> T callWith(TransferPriority priority, PriorityCall<T, E> call) throws E {
+        TransferPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return call.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
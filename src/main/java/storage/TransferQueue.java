@@ -0,0 +1,312 @@
+package storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.db.TransferJobRepository;
+
+/**
+ * TransferQueue runs uploads and downloads from a durable job queue.
+ *
+ * Jobs are stored before they run, and a fixed number of workers claim them
+ * one at a time in the configured order. A failed attempt puts the job back
+ * in the queue with an exponential backoff until its attempts run out. Jobs
+ * still running when the application stops are queued again by start(), so
+ * a large batch queued overnight continues after a restart.
+ */
+public class TransferQueue implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(TransferQueue.class);
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5 * 60 * 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final TransferJobRepository repository;
+    private final FileStoreOperations fileStoreOperations;
+    private final int concurrency;
+    private final TransferOrder order;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private volatile TransferJobListener listener;
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile boolean closed;
+    private ExecutorService workers;
+
+    /**
+     * @param repository durable store of the jobs
+     * @param fileStoreOperations store running the transfers
+     * @param concurrency number of jobs running at once
+     * @param order policy picking the next job
+     */
+    public TransferQueue(TransferJobRepository repository, FileStoreOperations fileStoreOperations,
+                         int concurrency, TransferOrder order) {
+        this.repository = repository;
+        this.fileStoreOperations = fileStoreOperations;
+        this.concurrency = Math.max(1, concurrency);
+        this.order = order;
+    }
+
+    /**
+     * @param listener notified when jobs complete or fail, may be null
+     */
+    public void setListener(TransferJobListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param maxAttempts attempts made for jobs enqueued from now on
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Drop the jobs completed by the previous run, queue jobs it interrupted
+     * again and start the workers.
+     *
+     * @return number of interrupted jobs resumed
+     */
+    public synchronized int start() {
+        if (workers != null) {
+            return 0;
+        }
+        int purged = repository.deleteByState(TransferJob.State.DONE);
+        if (purged > 0) {
+            logger.info("Removed {} completed transfer jobs", purged);
+        }
+        int resumed = repository.requeueRunning();
+        if (resumed > 0) {
+            logger.info("Resuming {} interrupted transfer jobs", resumed);
+        }
+        workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transfer-worker-", 0).factory());
+        for (int worker = 0; worker < concurrency; worker++) {
+            workers.execute(this::runWorker);
+        }
+        return resumed;
+    }
+
+    /**
+     * Queue an upload of the local file.
+     *
+     * @param file local file
+     * @param priority bandwidth lane of the transfer
+     * @return the stored job
+     */
+    public TransferJob enqueueUpload(File file, TransferPriority priority) {
+        return enqueueUploads(List.of(file), priority).get(0);
+    }
+
+    /**
+     * Queue uploads of many local files in one transaction.
+     *
+     * @param files local files
+     * @param priority bandwidth lane of the transfers
+     * @return the stored jobs
+     */
+    public List<TransferJob> enqueueUploads(List<File> files, TransferPriority priority) {
+        List<TransferJob> jobs = new ArrayList<>();
+        for (File file : files) {
+            jobs.add(TransferJob.queued(TransferJob.Type.UPLOAD, file.getName(), file.getAbsolutePath(),
+                    file.length(), priority, maxAttempts));
+        }
+        return enqueue(jobs);
+    }
+
+    /**
+     * Queue a download of the object to the local storage directory.
+     *
+     * @param fileObject object to download
+     * @param priority bandwidth lane of the transfer
+     * @return the stored job
+     */
+    public TransferJob enqueueDownload(FileObject fileObject, TransferPriority priority) {
+        return enqueue(List.of(TransferJob.queued(TransferJob.Type.DOWNLOAD, fileObject.getFileName(), null,
+                fileObject.getFileSize(), priority, maxAttempts))).get(0);
+    }
+
+    /**
+     * @return jobs waiting to run, including those waiting for a retry
+     */
+    public int getQueuedCount() {
+        return repository.countByState(TransferJob.State.QUEUED);
+    }
+
+    /**
+     * @return jobs that used up their attempts
+     */
+    public List<TransferJob> getFailedJobs() {
+        return repository.findByState(TransferJob.State.FAILED);
+    }
+
+    /**
+     * Stop the workers. Jobs they are running stay marked running and are
+     * resumed by the next start().
+     */
+    @Override
+    public void close() {
+        closed = true;
+        signalWork();
+        ExecutorService running;
+        synchronized (this) {
+            running = workers;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdownNow();
+        try {
+            if (!running.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Transfer workers still running after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<TransferJob> enqueue(List<TransferJob> jobs) {
+        List<TransferJob> stored = repository.enqueue(jobs);
+        logger.info("Queued {} transfer jobs", stored.size());
+        signalWork();
+        return stored;
+    }
+
+    /**
+     * Claim and run jobs until the queue is closed, waiting for new jobs
+     * or for the next retry to become due while the queue is empty.
+     */
+    private void runWorker() {
+        while (!closed) {
+            TransferJob job;
+            try {
+                job = repository.claimNext(order, new Date());
+            } catch (RuntimeException ex) {
+                logger.error("Failed to claim transfer job, error: {}", ex.getMessage());
+                job = null;
+            }
+            if (job == null) {
+                if (!awaitWork()) {
+                    return;
+                }
+                continue;
+            }
+            runJob(job);
+        }
+    }
+
+    /**
+     * Run the job and record its outcome. Unexpected runtime errors, from
+     * the transfer or from the repository, count as a failed attempt, so
+     * they never end the worker.
+     */
+    private void runJob(TransferJob job) {
+        logger.info("Running transfer job {}", job);
+        FileObject fileObject;
+        try {
+            fileObject = TransferPriority.callWith(job.getPriority(), () -> transfer(job));
+            repository.markDone(job.getId());
+        } catch (FileStoreException ex) {
+            handleFailure(job, ex);
+            return;
+        } catch (RuntimeException ex) {
+            handleFailure(job, new FileStoreException("Unexpected transfer error: " + ex.getMessage(), ex));
+            return;
+        }
+        TransferJobListener current = listener;
+        if (current != null) {
+            try {
+                current.onCompleted(job, fileObject);
+            } catch (RuntimeException ex) {
+                logger.error("Transfer listener failed for job {} error: {}", job.getId(), ex.getMessage());
+            }
+        }
+    }
+
+    private void handleFailure(TransferJob job, FileStoreException ex) {
+        if (closed) {
+            logger.info("Transfer job {} interrupted by shutdown, resumed on next start", job.getId());
+            return;
+        }
+        try {
+            recordFailure(job, ex);
+        } catch (RuntimeException recordEx) {
+            // the job stays marked running and is queued again by the next start()
+            logger.error("Failed to record failure of transfer job {} error: {}", job.getId(), recordEx.getMessage());
+        }
+    }
+
+    private FileObject transfer(TransferJob job) throws FileStoreException {
+        if (job.getType() == TransferJob.Type.UPLOAD) {
+            File file = new File(job.getFilePath());
+            if (!file.isFile()) {
+                throw new FileStoreException("Local file not found: " + job.getFilePath());
+            }
+            return fileStoreOperations.save(file);
+        }
+        FileObject fileObject = FileObject.builder()
+                .setFileName(job.getKey())
+                .setFileSize(job.getFileSize())
+                .build();
+        File downloadedFile = fileStoreOperations.downloadFile(fileObject);
+        fileObject.setFilePath(downloadedFile.getAbsolutePath());
+        return fileObject;
+    }
+
+    /**
+     * Retry the job after a backoff doubling with each attempt, or mark it
+     * failed once its attempts are used up.
+     */
+    private void recordFailure(TransferJob job, FileStoreException ex) {
+        int attempts = job.getAttempts() + 1;
+        if (attempts >= job.getMaxAttempts()) {
+            logger.error("Transfer job {} failed after {} attempts error: {}", job.getId(), attempts, ex.getMessage());
+            repository.markFailed(job.getId(), attempts, ex.getMessage());
+            TransferJobListener current = listener;
+            if (current != null) {
+                current.onFailed(job, ex);
+            }
+            return;
+        }
+        long backoff = Math.min(MAX_RETRY_BACKOFF_MILLIS, RETRY_BACKOFF_MILLIS << Math.min(attempts - 1, 20));
+        logger.warn("Retrying transfer job {} in {} ms (attempt {}) error: {}",
+                job.getId(), backoff, attempts, ex.getMessage());
+        repository.markRetry(job.getId(), attempts, ex.getMessage(), new Date(System.currentTimeMillis() + backoff));
+    }
+
+    /**
+     * @return false if the worker was interrupted and should stop
+     */
+    private boolean awaitWork() {
+        lock.lock();
+        try {
+            if (!closed) {
+                workAvailable.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalWork() {
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.event.DeliveryMode;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.ProgressListener;
+
+/**
+ * TransferScheduler applies the upload and download bandwidth limits to the
+ * S3 requests of the cloud store.
+ *
+ * It hooks into the SDK byte transfer progress events, delivered
+ * synchronously on the thread moving the bytes, so waiting for bandwidth
+ * slows down the request itself. Upload and download limits are separate
+ * and can be changed at runtime.
+ */
+public class TransferScheduler {
+    private static final Logger logger = LogManager.getLogger(TransferScheduler.class);
+    private final BandwidthLimiter uploadLimiter;
+    private final BandwidthLimiter downloadLimiter;
+
+    /**
+     * @param uploadBytesPerSecond upload limit, 0 for unlimited
+     * @param downloadBytesPerSecond download limit, 0 for unlimited
+     */
+    public TransferScheduler(long uploadBytesPerSecond, long downloadBytesPerSecond) {
+        this.uploadLimiter = new BandwidthLimiter(uploadBytesPerSecond);
+        this.downloadLimiter = new BandwidthLimiter(downloadBytesPerSecond);
+    }
+
+    /**
+     * @param uploadBytesPerSecond upload limit, 0 for unlimited
+     */
+    public void setUploadBytesPerSecond(long uploadBytesPerSecond) {
+        uploadLimiter.setBytesPerSecond(uploadBytesPerSecond);
+    }
+
+    /**
+     * @return upload limit, 0 for unlimited
+     */
+    public long getUploadBytesPerSecond() {
+        return uploadLimiter.getBytesPerSecond();
+    }
+
+    /**
+     * @param downloadBytesPerSecond download limit, 0 for unlimited
+     */
+    public void setDownloadBytesPerSecond(long downloadBytesPerSecond) {
+        downloadLimiter.setBytesPerSecond(downloadBytesPerSecond);
+    }
+
+    /**
+     * @return download limit, 0 for unlimited
+     */
+    public long getDownloadBytesPerSecond() {
+        return downloadLimiter.getBytesPerSecond();
+    }
+
+    /**
+     * Progress listener throttling the requests it is attached to in the
+     * given priority lane
+     * @param priority
+     * @return ProgressListener
+     */
+    public ProgressListener progressListener(TransferPriority priority) {
+        return new ThrottlingProgressListener(priority);
+    }
+
+    private class ThrottlingProgressListener implements ProgressListener, DeliveryMode {
+        private final TransferPriority priority;
+
+        private ThrottlingProgressListener(TransferPriority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            try {
+                if (progressEvent.getEventType() == ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT) {
+                    uploadLimiter.acquire(progressEvent.getBytesTransferred(), priority);
+                } else if (progressEvent.getEventType() == ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT) {
+                    downloadLimiter.acquire(progressEvent.getBytesTransferred(), priority);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for transfer bandwidth");
+            }
+        }
+
+        // Deliver events on the transferring thread so waiting throttles it
+        @Override
+        public boolean isSyncCallSafe() {
+            return true;
+        }
+    }
+}
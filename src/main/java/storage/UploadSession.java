@@ -0,0 +1,70 @@
+package storage;
+
+import java.util.Date;
+
+/**
+ * UploadSession records an in-progress multipart upload so it can be
+ * resumed after the application is closed or crashes.
+ */
+public class UploadSession {
+    private final String uploadId;
+    private final String bucketName;
+    private final String key;
+    private final String filePath;
+    private final long fileSize;
+    private final long fileLastModified;
+    private final long partSize;
+    private final Date createdDate;
+
+    public UploadSession(String uploadId, String bucketName, String key, String filePath, long fileSize,
+                         long fileLastModified, long partSize, Date createdDate) {
+        this.uploadId = uploadId;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.fileLastModified = fileLastModified;
+        this.partSize = partSize;
+        this.createdDate = createdDate;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+    public String getBucketName() {
+        return bucketName;
+    }
+    public String getKey() {
+        return key;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public long getFileSize() {
+        return fileSize;
+    }
+    public long getFileLastModified() {
+        return fileLastModified;
+    }
+    public long getPartSize() {
+        return partSize;
+    }
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("UploadSession{");
+        sb.append("uploadId=").append(uploadId);
+        sb.append(", bucketName=").append(bucketName);
+        sb.append(", key=").append(key);
+        sb.append(", filePath=").append(filePath);
+        sb.append(", fileSize=").append(fileSize);
+        sb.append(", partSize=").append(partSize);
+        sb.append(", createdDate=").append(createdDate);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package storage.db;
+
+import java.util.Date;
+import java.util.List;
+
+import storage.CachedObject;
+
+/**
+ * DownloadCacheRepository persists the index of the download cache so
+ * cached objects are found again after a restart.
+ */
+public interface DownloadCacheRepository {
+    /**
+     * Finds the cached copy of an object.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     * @return the entry, or null if the object is not cached
+     */
+    public CachedObject findEntry(String bucketName, String key);
+
+    /**
+     * Saves an entry, replacing the entry of an older version of the object.
+     *
+     * @param entry the entry to save
+     */
+    public void saveEntry(CachedObject entry);
+
+    /**
+     * Records an access to the cached object for LRU eviction.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     * @param accessDate time of the access
+     */
+    public void touch(String bucketName, String key, Date accessDate);
+
+    /**
+     * Deletes the entry of an object.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     */
+    public void deleteEntry(String bucketName, String key);
+
+    /**
+     * Retrieves all entries, least recently used first.
+     *
+     * @return entries in eviction order
+     */
+    public List<CachedObject> findLeastRecentlyUsed();
+
+    /**
+     * Sums the size of all cached copies.
+     *
+     * @return total size in bytes
+     */
+    public long totalSize();
+}
@@ -1,6 +1,8 @@
 package storage.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import storage.FileObject;
 
@@ -38,6 +40,21 @@ public interface FileMetadataRepository {
      */
     public void delete(String name);
 
+    /**
+     * Deletes the file metadata entries of all given names in one batch.
+     *
+     * @param names the names of the files to delete
+     */
+    public void deleteAll(Collection<String> names);
+
+    /**
+     * Moves file metadata entries to new names in one transaction, replacing
+     * any entry already stored under a new name.
+     *
+     * @param renamed the moved file objects keyed by their old names
+     */
+    public void renameAll(Map<String, FileObject> renamed);
+
     /**
      * Retrieves all file metadata entries.
      *
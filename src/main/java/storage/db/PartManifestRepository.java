@@ -0,0 +1,33 @@
+package storage.db;
+
+import storage.PartManifest;
+
+/**
+ * PartManifestRepository persists the part layout of objects uploaded in
+ * parts so a modified file can be uploaded as a delta.
+ */
+public interface PartManifestRepository {
+    /**
+     * Finds the manifest of the last multipart upload of an object.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     * @return the manifest, or null if none is recorded
+     */
+    public PartManifest findManifest(String bucketName, String key);
+
+    /**
+     * Saves a manifest with its part hashes, replacing the previous one.
+     *
+     * @param manifest the manifest to save
+     */
+    public void saveManifest(PartManifest manifest);
+
+    /**
+     * Deletes the manifest of an object.
+     *
+     * @param bucketName bucket of the object
+     * @param key object key
+     */
+    public void deleteManifest(String bucketName, String key);
+}
@@ -0,0 +1,149 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.CachedObject;
+import util.SqlUtil;
+
+/**
+ * SQLiteDownloadCacheRepository stores the download cache index in the
+ * application SQLite database next to the file_metadata table.
+ *
+ * Methods are synchronized because downloads run concurrently while the
+ * application shares a single SQLite connection.
+ */
+public class SQLiteDownloadCacheRepository implements DownloadCacheRepository {
+    private static final Logger logger = LogManager.getLogger(SQLiteDownloadCacheRepository.class);
+    private final Connection connection;
+
+    /**
+     * Constructs a new SQLiteDownloadCacheRepository with a given SQLite connection.
+     *
+     * @param connection the SQLite JDBC connection
+     */
+    public SQLiteDownloadCacheRepository(Connection connection) {
+        this.connection = connection;
+        createTablesIfNotExists();
+    }
+
+    private void createTablesIfNotExists() {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(SqlUtil.DOWNLOAD_CACHE_SQL_SCHEMA);
+            stmt.execute(SqlUtil.DOWNLOAD_CACHE_ACCESS_INDEX);
+        } catch (SQLException ex) {
+            logger.error("Failed to create download cache table, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to create table", ex);
+        }
+    }
+
+    @Override
+    public synchronized CachedObject findEntry(String bucketName, String key) {
+        String sql = "SELECT * FROM download_cache WHERE bucket = ? AND object_key = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? mapRow(rs) : null;
+        } catch (SQLException ex) {
+            logger.error("Failed to find download cache entry, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find download cache entry", ex);
+        }
+    }
+
+    @Override
+    public synchronized void saveEntry(CachedObject entry) {
+        String sql = """
+                INSERT OR REPLACE INTO download_cache (bucket, object_key, etag, cache_file, file_size,
+                    codec, last_access_date)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, entry.getBucketName());
+            stmt.setString(2, entry.getKey());
+            stmt.setString(3, entry.getETag());
+            stmt.setString(4, entry.getCacheFile());
+            stmt.setLong(5, entry.getFileSize());
+            stmt.setString(6, entry.getCodec());
+            stmt.setLong(7, entry.getLastAccessDate().getTime());
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to save download cache entry, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to save download cache entry", ex);
+        }
+    }
+
+    @Override
+    public synchronized void touch(String bucketName, String key, Date accessDate) {
+        String sql = "UPDATE download_cache SET last_access_date = ? WHERE bucket = ? AND object_key = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, accessDate.getTime());
+            stmt.setString(2, bucketName);
+            stmt.setString(3, key);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to update download cache entry, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to update download cache entry", ex);
+        }
+    }
+
+    @Override
+    public synchronized void deleteEntry(String bucketName, String key) {
+        String sql = "DELETE FROM download_cache WHERE bucket = ? AND object_key = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to delete download cache entry, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to delete download cache entry", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<CachedObject> findLeastRecentlyUsed() {
+        String sql = "SELECT * FROM download_cache ORDER BY last_access_date";
+        List<CachedObject> entries = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                entries.add(mapRow(rs));
+            }
+            return entries;
+        } catch (SQLException ex) {
+            logger.error("Failed to list download cache entries, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to list download cache entries", ex);
+        }
+    }
+
+    @Override
+    public synchronized long totalSize() {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT COALESCE(SUM(file_size), 0) FROM download_cache")) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException ex) {
+            logger.error("Failed to sum download cache size, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to sum download cache size", ex);
+        }
+    }
+
+    private CachedObject mapRow(ResultSet resultSet) throws SQLException {
+        return new CachedObject(
+                resultSet.getString("bucket"),
+                resultSet.getString("object_key"),
+                resultSet.getString("etag"),
+                resultSet.getString("cache_file"),
+                resultSet.getLong("file_size"),
+                resultSet.getString("codec"),
+                new Date(resultSet.getLong("last_access_date")));
+    }
+}
@@ -7,7 +7,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
@@ -126,6 +128,64 @@ public class SQLiteFileMetadataRepository implements FileMetadataRepository {
         }
     }
 
+    /**
+     * Deletes the file metadata entries of all given names as one batch
+     * inside a single transaction.
+     *
+     * @param names the names of the files to delete
+     */
+    @Override
+    public void deleteAll(Collection<String> names) {
+        String sql = "DELETE FROM file_metadata WHERE file_name = ?";
+        runInTransaction(() -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (String name : names) {
+                    stmt.setString(1, name);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }, "Failed to delete files batch");
+    }
+
+    /**
+     * Moves file metadata entries to new names inside a single transaction.
+     * An entry already stored under a new name is replaced; old names
+     * without an entry are skipped.
+     *
+     * @param renamed the moved file objects keyed by their old names
+     */
+    @Override
+    public void renameAll(Map<String, FileObject> renamed) {
+        String deleteSql = "DELETE FROM file_metadata WHERE file_name = ?";
+        String updateSql = """
+                UPDATE file_metadata SET file_name = ?, checksum = ?, bucket = ?, version = ?,
+                    last_modified_date = ?
+                WHERE file_name = ?
+                """;
+        runInTransaction(() -> {
+            try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSql);
+                 PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
+                for (Map.Entry<String, FileObject> entry : renamed.entrySet()) {
+                    FileObject target = entry.getValue();
+                    if (entry.getKey().equals(target.getFileName()) || !exists(entry.getKey())) {
+                        continue;
+                    }
+                    deleteStmt.setString(1, target.getFileName());
+                    deleteStmt.executeUpdate();
+                    updateStmt.setString(1, target.getFileName());
+                    updateStmt.setString(2, target.getChecksum());
+                    updateStmt.setString(3, target.getBucketName());
+                    updateStmt.setString(4, target.getVersion() != null? target.getVersion() : "1");
+                    updateStmt.setDate(5, new Date(target.getLastModifiedDate() != null
+                            ? target.getLastModifiedDate().getTime() : System.currentTimeMillis()));
+                    updateStmt.setString(6, entry.getKey());
+                    updateStmt.executeUpdate();
+                }
+            }
+        }, "Failed to rename files batch");
+    }
+
     /**
      * Retrieves all file metadata entries from the database.
      *
@@ -171,6 +231,33 @@ public class SQLiteFileMetadataRepository implements FileMetadataRepository {
         }
     }
 
+    /**
+     * Runs the given statements in one transaction, rolling back on failure.
+     */
+    private void runInTransaction(SqlWork work, String errorMessage) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                work.run();
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            logger.error("{}, error: {}", errorMessage, ex.getMessage());
+            throw new RuntimeException(errorMessage, ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
     private FileObject mapRow(ResultSet resultSet) {
         try {
 
@@ -0,0 +1,139 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.PartManifest;
+import util.SqlUtil;
+
+/**
+ * SQLitePartManifestRepository stores part manifests in the application
+ * SQLite database next to the file_metadata table.
+ *
+ * Methods are synchronized because uploads run concurrently while the
+ * application shares a single SQLite connection.
+ */
+public class SQLitePartManifestRepository implements PartManifestRepository {
+    private static final Logger logger = LogManager.getLogger(SQLitePartManifestRepository.class);
+    private final Connection connection;
+
+    /**
+     * Constructs a new SQLitePartManifestRepository with a given SQLite connection.
+     *
+     * @param connection the SQLite JDBC connection
+     */
+    public SQLitePartManifestRepository(Connection connection) {
+        this.connection = connection;
+        createTablesIfNotExists();
+    }
+
+    private void createTablesIfNotExists() {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(SqlUtil.PART_MANIFEST_SQL_SCHEMA);
+            stmt.execute(SqlUtil.PART_MANIFEST_PART_SQL_SCHEMA);
+        } catch (SQLException ex) {
+            logger.error("Failed to create part manifest tables, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to create table", ex);
+        }
+    }
+
+    @Override
+    public synchronized PartManifest findManifest(String bucketName, String key) {
+        String sql = "SELECT * FROM part_manifest WHERE bucket = ? AND object_key = ?";
+        String partSql = "SELECT part_hash FROM part_manifest_part WHERE bucket = ? AND object_key = ? "
+                       + "ORDER BY part_number";
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             PreparedStatement partStmt = connection.prepareStatement(partSql)) {
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            partStmt.setString(1, bucketName);
+            partStmt.setString(2, key);
+            ResultSet partRs = partStmt.executeQuery();
+            List<String> partHashes = new ArrayList<>();
+            while (partRs.next()) {
+                partHashes.add(partRs.getString("part_hash"));
+            }
+            return new PartManifest(bucketName, key, rs.getString("etag"), rs.getLong("object_size"),
+                    rs.getLong("part_size"), partHashes);
+        } catch (SQLException ex) {
+            logger.error("Failed to find part manifest, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find part manifest", ex);
+        }
+    }
+
+    @Override
+    public synchronized void saveManifest(PartManifest manifest) {
+        String sql = """
+                INSERT OR REPLACE INTO part_manifest (bucket, object_key, etag, object_size, part_size)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        String partSql = "INSERT INTO part_manifest_part (bucket, object_key, part_number, part_hash) VALUES (?, ?, ?, ?)";
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(sql);
+                 PreparedStatement partStmt = connection.prepareStatement(partSql)) {
+                deleteParts(manifest.getBucketName(), manifest.getKey());
+                stmt.setString(1, manifest.getBucketName());
+                stmt.setString(2, manifest.getKey());
+                stmt.setString(3, manifest.getETag());
+                stmt.setLong(4, manifest.getObjectSize());
+                stmt.setLong(5, manifest.getPartSize());
+                stmt.executeUpdate();
+                List<String> partHashes = manifest.getPartHashes();
+                for (int i = 0; i < partHashes.size(); i++) {
+                    partStmt.setString(1, manifest.getBucketName());
+                    partStmt.setString(2, manifest.getKey());
+                    partStmt.setInt(3, i + 1);
+                    partStmt.setString(4, partHashes.get(i));
+                    partStmt.addBatch();
+                }
+                partStmt.executeBatch();
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            logger.error("Failed to save part manifest, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to save part manifest", ex);
+        }
+    }
+
+    @Override
+    public synchronized void deleteManifest(String bucketName, String key) {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "DELETE FROM part_manifest WHERE bucket = ? AND object_key = ?")) {
+            deleteParts(bucketName, key);
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to delete part manifest, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to delete part manifest", ex);
+        }
+    }
+
+    private void deleteParts(String bucketName, String key) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "DELETE FROM part_manifest_part WHERE bucket = ? AND object_key = ?")) {
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.TransferJob;
+import storage.TransferOrder;
+import storage.TransferPriority;
+import util.SqlUtil;
+
+/**
+ * SQLiteTransferJobRepository stores the transfer queue in the application
+ * SQLite database next to the file_metadata table.
+ *
+ * Methods are synchronized because the queue workers share the single
+ * application SQLite connection, and claiming a job must select and update
+ * it without another worker claiming the same job in between.
+ */
+public class SQLiteTransferJobRepository implements TransferJobRepository {
+    private static final Logger logger = LogManager.getLogger(SQLiteTransferJobRepository.class);
+    private final Connection connection;
+
+    /**
+     * Constructs a new SQLiteTransferJobRepository with a given SQLite connection.
+     *
+     * @param connection the SQLite JDBC connection
+     */
+    public SQLiteTransferJobRepository(Connection connection) {
+        this.connection = connection;
+        createTablesIfNotExists();
+    }
+
+    private void createTablesIfNotExists() {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(SqlUtil.TRANSFER_JOB_SQL_SCHEMA);
+            stmt.execute(SqlUtil.TRANSFER_JOB_STATE_INDEX);
+        } catch (SQLException ex) {
+            logger.error("Failed to create transfer job table, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to create table", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<TransferJob> enqueue(List<TransferJob> jobs) {
+        String sql = """
+                INSERT INTO transfer_job (job_type, state, object_key, file_path, file_size, priority,
+                    attempts, max_attempts, last_error, created_date, next_attempt_date)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        List<TransferJob> stored = new ArrayList<>();
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (TransferJob job : jobs) {
+                    stmt.setString(1, job.getType().name());
+                    stmt.setString(2, job.getState().name());
+                    stmt.setString(3, job.getKey());
+                    stmt.setString(4, job.getFilePath());
+                    stmt.setLong(5, job.getFileSize());
+                    stmt.setString(6, job.getPriority().name());
+                    stmt.setInt(7, job.getAttempts());
+                    stmt.setInt(8, job.getMaxAttempts());
+                    stmt.setString(9, job.getLastError());
+                    stmt.setLong(10, job.getCreatedDate().getTime());
+                    stmt.setLong(11, job.getNextAttemptDate().getTime());
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        keys.next();
+                        stored.add(withId(job, keys.getLong(1)));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return stored;
+        } catch (SQLException ex) {
+            logger.error("Failed to enqueue transfer jobs, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to enqueue transfer jobs", ex);
+        }
+    }
+
+    @Override
+    public synchronized TransferJob claimNext(TransferOrder order, Date now) {
+        String sql = "SELECT * FROM transfer_job WHERE state = 'QUEUED' AND next_attempt_date <= ? "
+                   + "ORDER BY " + order.getOrderBy() + " LIMIT 1";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, now.getTime());
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            TransferJob job = mapRow(rs);
+            updateState(job.getId(), TransferJob.State.RUNNING);
+            return withState(job, TransferJob.State.RUNNING);
+        } catch (SQLException ex) {
+            logger.error("Failed to claim transfer job, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to claim transfer job", ex);
+        }
+    }
+
+    @Override
+    public synchronized void markDone(long id) {
+        try {
+            updateState(id, TransferJob.State.DONE);
+        } catch (SQLException ex) {
+            logger.error("Failed to mark transfer job done, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to mark transfer job done", ex);
+        }
+    }
+
+    @Override
+    public synchronized void markRetry(long id, int attempts, String error, Date nextAttemptDate) {
+        String sql = "UPDATE transfer_job SET state = 'QUEUED', attempts = ?, last_error = ?, "
+                   + "next_attempt_date = ? WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, attempts);
+            stmt.setString(2, error);
+            stmt.setLong(3, nextAttemptDate.getTime());
+            stmt.setLong(4, id);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to requeue transfer job, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to requeue transfer job", ex);
+        }
+    }
+
+    @Override
+    public synchronized void markFailed(long id, int attempts, String error) {
+        String sql = "UPDATE transfer_job SET state = 'FAILED', attempts = ?, last_error = ? WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, attempts);
+            stmt.setString(2, error);
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to mark transfer job failed, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to mark transfer job failed", ex);
+        }
+    }
+
+    @Override
+    public synchronized int requeueRunning() {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE transfer_job SET state = 'QUEUED' WHERE state = 'RUNNING'")) {
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to requeue running transfer jobs, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to requeue running transfer jobs", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<TransferJob> findByState(TransferJob.State state) {
+        String sql = "SELECT * FROM transfer_job WHERE state = ? ORDER BY created_date, id";
+        List<TransferJob> jobs = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, state.name());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                jobs.add(mapRow(rs));
+            }
+            return jobs;
+        } catch (SQLException ex) {
+            logger.error("Failed to find transfer jobs, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find transfer jobs", ex);
+        }
+    }
+
+    @Override
+    public synchronized int countByState(TransferJob.State state) {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT COUNT(*) FROM transfer_job WHERE state = ?")) {
+            stmt.setString(1, state.name());
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException ex) {
+            logger.error("Failed to count transfer jobs, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to count transfer jobs", ex);
+        }
+    }
+
+    @Override
+    public synchronized int deleteByState(TransferJob.State state) {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM transfer_job WHERE state = ?")) {
+            stmt.setString(1, state.name());
+            return stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to delete transfer jobs, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to delete transfer jobs", ex);
+        }
+    }
+
+    private void updateState(long id, TransferJob.State state) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE transfer_job SET state = ? WHERE id = ?")) {
+            stmt.setString(1, state.name());
+            stmt.setLong(2, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    private TransferJob withId(TransferJob job, long id) {
+        return new TransferJob(id, job.getType(), job.getState(), job.getKey(), job.getFilePath(),
+                job.getFileSize(), job.getPriority(), job.getAttempts(), job.getMaxAttempts(),
+                job.getLastError(), job.getCreatedDate(), job.getNextAttemptDate());
+    }
+
+    private TransferJob withState(TransferJob job, TransferJob.State state) {
+        return new TransferJob(job.getId(), job.getType(), state, job.getKey(), job.getFilePath(),
+                job.getFileSize(), job.getPriority(), job.getAttempts(), job.getMaxAttempts(),
+                job.getLastError(), job.getCreatedDate(), job.getNextAttemptDate());
+    }
+
+    private TransferJob mapRow(ResultSet resultSet) throws SQLException {
+        return new TransferJob(
+                resultSet.getLong("id"),
+                TransferJob.Type.valueOf(resultSet.getString("job_type")),
+                TransferJob.State.valueOf(resultSet.getString("state")),
+                resultSet.getString("object_key"),
+                resultSet.getString("file_path"),
+                resultSet.getLong("file_size"),
+                TransferPriority.valueOf(resultSet.getString("priority")),
+                resultSet.getInt("attempts"),
+                resultSet.getInt("max_attempts"),
+                resultSet.getString("last_error"),
+                new Date(resultSet.getLong("created_date")),
+                new Date(resultSet.getLong("next_attempt_date")));
+    }
+}
@@ -0,0 +1,175 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import storage.UploadSession;
+import util.SqlUtil;
+
+/**
+ * SQLiteUploadSessionRepository stores multipart upload sessions in the
+ * application SQLite database next to the file_metadata table.
+ *
+ * Methods are synchronized because parts of one upload complete on several
+ * threads while the application shares a single SQLite connection.
+ */
+public class SQLiteUploadSessionRepository implements UploadSessionRepository {
+    private static final Logger logger = LogManager.getLogger(SQLiteUploadSessionRepository.class);
+    private final Connection connection;
+
+    /**
+     * Constructs a new SQLiteUploadSessionRepository with a given SQLite connection.
+     *
+     * @param connection the SQLite JDBC connection
+     */
+    public SQLiteUploadSessionRepository(Connection connection) {
+        this.connection = connection;
+        createTablesIfNotExists();
+    }
+
+    private void createTablesIfNotExists() {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(SqlUtil.UPLOAD_SESSION_SQL_SCHEMA);
+            stmt.execute(SqlUtil.UPLOAD_SESSION_PART_SQL_SCHEMA);
+        } catch (SQLException ex) {
+            logger.error("Failed to create upload session tables, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to create table", ex);
+        }
+    }
+
+    @Override
+    public synchronized void saveSession(UploadSession session) {
+        String sql = """
+                INSERT INTO upload_session (upload_id, bucket, object_key, file_path, file_size,
+                    file_last_modified, part_size, created_date)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, session.getUploadId());
+            stmt.setString(2, session.getBucketName());
+            stmt.setString(3, session.getKey());
+            stmt.setString(4, session.getFilePath());
+            stmt.setLong(5, session.getFileSize());
+            stmt.setLong(6, session.getFileLastModified());
+            stmt.setLong(7, session.getPartSize());
+            stmt.setLong(8, session.getCreatedDate().getTime());
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to save upload session, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to save upload session", ex);
+        }
+    }
+
+    @Override
+    public synchronized UploadSession findSession(String bucketName, String key, String filePath) {
+        String sql = "SELECT * FROM upload_session WHERE bucket = ? AND object_key = ? AND file_path = ? "
+                   + "ORDER BY created_date DESC";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, bucketName);
+            stmt.setString(2, key);
+            stmt.setString(3, filePath);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? mapRow(rs) : null;
+        } catch (SQLException ex) {
+            logger.error("Failed to find upload session, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find upload session", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<UploadSession> findSessionsCreatedBefore(Date createdBefore) {
+        String sql = "SELECT * FROM upload_session WHERE created_date < ?";
+        List<UploadSession> sessions = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, createdBefore.getTime());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                sessions.add(mapRow(rs));
+            }
+            return sessions;
+        } catch (SQLException ex) {
+            logger.error("Failed to find stale upload sessions, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find stale upload sessions", ex);
+        }
+    }
+
+    @Override
+    public synchronized void savePart(String uploadId, int partNumber, String eTag) {
+        String sql = "INSERT OR REPLACE INTO upload_session_part (upload_id, part_number, etag) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, uploadId);
+            stmt.setInt(2, partNumber);
+            stmt.setString(3, eTag);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            logger.error("Failed to save upload part, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to save upload part", ex);
+        }
+    }
+
+    @Override
+    public synchronized Map<Integer, String> findParts(String uploadId) {
+        String sql = "SELECT part_number, etag FROM upload_session_part WHERE upload_id = ?";
+        Map<Integer, String> parts = new TreeMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, uploadId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                parts.put(rs.getInt("part_number"), rs.getString("etag"));
+            }
+            return parts;
+        } catch (SQLException ex) {
+            logger.error("Failed to find upload parts, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to find upload parts", ex);
+        }
+    }
+
+    @Override
+    public synchronized void deleteSession(String uploadId) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement partStmt = connection.prepareStatement(
+                        "DELETE FROM upload_session_part WHERE upload_id = ?");
+                 PreparedStatement sessionStmt = connection.prepareStatement(
+                        "DELETE FROM upload_session WHERE upload_id = ?")) {
+                partStmt.setString(1, uploadId);
+                partStmt.executeUpdate();
+                sessionStmt.setString(1, uploadId);
+                sessionStmt.executeUpdate();
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            logger.error("Failed to delete upload session, error: {}", ex.getMessage());
+            throw new RuntimeException("Failed to delete upload session", ex);
+        }
+    }
+
+    private UploadSession mapRow(ResultSet resultSet) throws SQLException {
+        return new UploadSession(
+                resultSet.getString("upload_id"),
+                resultSet.getString("bucket"),
+                resultSet.getString("object_key"),
+                resultSet.getString("file_path"),
+                resultSet.getLong("file_size"),
+                resultSet.getLong("file_last_modified"),
+                resultSet.getLong("part_size"),
+                new Date(resultSet.getLong("created_date")));
+    }
+}
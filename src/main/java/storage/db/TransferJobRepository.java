@@ -0,0 +1,89 @@
+package storage.db;
+
+import java.util.Date;
+import java.util.List;
+
+import storage.TransferJob;
+import storage.TransferOrder;
+
+/**
+ * TransferJobRepository persists the transfer queue so queued and
+ * interrupted transfers survive an application restart.
+ */
+public interface TransferJobRepository {
+    /**
+     * Adds jobs to the queue in a single transaction.
+     *
+     * @param jobs new jobs
+     * @return the stored jobs with their assigned ids
+     */
+    public List<TransferJob> enqueue(List<TransferJob> jobs);
+
+    /**
+     * Picks the next queued job that is due and marks it running, so no
+     * other worker picks it up.
+     *
+     * @param order ordering policy among the due jobs
+     * @param now jobs with a next attempt date after this are skipped
+     * @return the claimed job, or null if no job is due
+     */
+    public TransferJob claimNext(TransferOrder order, Date now);
+
+    /**
+     * Marks a running job as done.
+     *
+     * @param id job id
+     */
+    public void markDone(long id);
+
+    /**
+     * Puts a running job back in the queue after a failed attempt.
+     *
+     * @param id job id
+     * @param attempts attempts made so far
+     * @param error error of the failed attempt
+     * @param nextAttemptDate the job is not picked up before this date
+     */
+    public void markRetry(long id, int attempts, String error, Date nextAttemptDate);
+
+    /**
+     * Marks a job as failed for good.
+     *
+     * @param id job id
+     * @param attempts attempts made
+     * @param error error of the last attempt
+     */
+    public void markFailed(long id, int attempts, String error);
+
+    /**
+     * Puts jobs left running by a previous run of the application back
+     * in the queue.
+     *
+     * @return number of jobs requeued
+     */
+    public int requeueRunning();
+
+    /**
+     * Retrieves the jobs in the given state, oldest first.
+     *
+     * @param state job state
+     * @return matching jobs
+     */
+    public List<TransferJob> findByState(TransferJob.State state);
+
+    /**
+     * Counts the jobs in the given state.
+     *
+     * @param state job state
+     * @return number of jobs
+     */
+    public int countByState(TransferJob.State state);
+
+    /**
+     * Deletes all jobs in the given state, e.g. done jobs once reported.
+     *
+     * @param state job state
+     * @return number of jobs deleted
+     */
+    public int deleteByState(TransferJob.State state);
+}
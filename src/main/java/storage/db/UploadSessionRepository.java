@@ -0,0 +1,62 @@
+package storage.db;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import storage.UploadSession;
+
+/**
+ * UploadSessionRepository persists in-progress multipart upload sessions
+ * and the parts completed for each of them.
+ */
+public interface UploadSessionRepository {
+    /**
+     * Saves a new upload session.
+     *
+     * @param session the session to save
+     */
+    public void saveSession(UploadSession session);
+
+    /**
+     * Finds the session uploading the given local file to the given key.
+     *
+     * @param bucketName target bucket
+     * @param key target object key
+     * @param filePath absolute path of the local file
+     * @return the matching session, or null if not found
+     */
+    public UploadSession findSession(String bucketName, String key, String filePath);
+
+    /**
+     * Retrieves all sessions created before the given date.
+     *
+     * @param createdBefore cut-off date
+     * @return sessions older than the cut-off
+     */
+    public List<UploadSession> findSessionsCreatedBefore(Date createdBefore);
+
+    /**
+     * Records a completed part of an upload session.
+     *
+     * @param uploadId the session upload id
+     * @param partNumber the 1-based part number
+     * @param eTag the ETag returned for the part
+     */
+    public void savePart(String uploadId, int partNumber, String eTag);
+
+    /**
+     * Retrieves the completed parts of an upload session.
+     *
+     * @param uploadId the session upload id
+     * @return part ETags keyed by part number
+     */
+    public Map<Integer, String> findParts(String uploadId);
+
+    /**
+     * Deletes an upload session and its parts.
+     *
+     * @param uploadId the session upload id
+     */
+    public void deleteSession(String uploadId);
+}
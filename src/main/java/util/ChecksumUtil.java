@@ -0,0 +1,32 @@
+package util;
+
+/**
+ * Checksum helper class comparing S3 ETags. Local files are hashed by
+ * storage.ChecksumEngine.
+ */
+public class ChecksumUtil {
+
+    private ChecksumUtil(){}
+
+    /**
+     * ETag without surrounding quotes, in lower case
+     * @param eTag
+     * @return String
+     */
+    public static String normalizeETag(String eTag) {
+        return eTag.replace("\"", "").trim().toLowerCase();
+    }
+
+    /**
+     * Compare two ETags ignoring surrounding quotes and case
+     * @param eTag
+     * @param otherETag
+     * @return boolean
+     */
+    public static boolean eTagMatches(String eTag, String otherETag) {
+        if (eTag == null || otherETag == null) {
+            return false;
+        }
+        return normalizeETag(eTag).equals(normalizeETag(otherETag));
+    }
+}
@@ -2,13 +2,17 @@ package util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Comparator;
 
 import javax.swing.tree.TreePath;
 
+import storage.ChecksumEngine;
 import storage.FileObject;
+import storage.TransferConfig;
 
 /**
  * File util helper class
@@ -19,8 +23,12 @@ public class FileUtil {
      */
     public static final String STORAGE_DIR = "S3 Storage";
     public static final String LOCAL_STORAGE_DIR = "local_storage";
+    public static final String DOWNLOAD_CACHE_DIR = "download_cache";
 
     public static final String DEFAULT_OBJECT_TYPE = "File";
+    public static final String FOLDER_OBJECT_TYPE = "Folder";
+    public static final String FOLDER_DELIMITER = "/";
+
     /**
      * Tree path to FilePath
      * @param treePath
@@ -47,6 +55,41 @@ public class FileUtil {
          return sb.toString();
     }
 
+    /**
+     * Create the storage folder prefix of TreeNode paths; the root node maps
+     * to the empty prefix and each folder below it ends with "/"
+     * @param paths
+     * @return String
+     */
+    public static String createObjectPrefix(Object[] paths){
+        StringBuilder sb = new StringBuilder();
+        for(int index = 1; index < paths.length; index++){
+            sb.append(paths[index].toString()).append(FOLDER_DELIMITER);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Last path segment of a folder prefix, e.g. "2024" for "photos/2024/"
+     * @param prefix
+     * @return String
+     */
+    public static String folderName(String prefix){
+        String folder = prefix.endsWith(FOLDER_DELIMITER) ? prefix.substring(0, prefix.length() - 1) : prefix;
+        return folder.substring(folder.lastIndexOf(FOLDER_DELIMITER) + 1);
+    }
+
+    /**
+     * Prefix of the folder holding a key or folder prefix, e.g. "photos/"
+     * for "photos/2024/" and for "photos/a.jpg"; empty at the root
+     * @param key
+     * @return String
+     */
+    public static String parentPrefix(String key){
+        String path = key.endsWith(FOLDER_DELIMITER) ? key.substring(0, key.length() - 1) : key;
+        return path.substring(0, path.lastIndexOf(FOLDER_DELIMITER) + 1);
+    }
+
     /**
      * Check if filepath is directory
      * @param filePath
@@ -110,10 +153,30 @@ public class FileUtil {
 		}
    }
 
-   public static FileObject toFileObject(File file){
-      return FileObject.builder()
-                       .setFileName(file.getName())
-                       .setFileSize(file.getTotalSpace())
-                       .build();
+   /**
+    * Move a file into place atomically, replacing any existing target.
+    * Falls back to a plain replace when the file system cannot move atomically.
+    * @param source
+    * @param target
+    * @throws IOException
+    */
+   public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+   }
+
+   /**
+    * Describe a local file with the ETag it would have once
+    * uploaded with the default transfer settings, so it can be compared
+    * with remote file objects during sync.
+    * @param file
+    * @return FileObject
+    * @throws IOException
+    */
+   public static FileObject toFileObject(File file) throws IOException {
+      return new ChecksumEngine().toFileObject(file, new TransferConfig());
    }
 }
\ No newline at end of file
@@ -34,4 +34,95 @@ public class SqlUtil {
                             checksum = excluded.checksum,
                             version = excluded.version;
                         """;
-}
\ No newline at end of file
+
+    //Multipart upload sessions that can be resumed after a restart
+    public static final String UPLOAD_SESSION_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS upload_session (
+                            upload_id TEXT PRIMARY KEY,
+                            bucket TEXT NOT NULL,
+                            object_key TEXT NOT NULL,
+                            file_path TEXT NOT NULL,
+                            file_size INTEGER NOT NULL,
+                            file_last_modified INTEGER NOT NULL,
+                            part_size INTEGER NOT NULL,
+                            created_date INTEGER NOT NULL
+                        );
+               """;
+
+    //Parts completed for an upload session
+    public static final String UPLOAD_SESSION_PART_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS upload_session_part (
+                            upload_id TEXT NOT NULL,
+                            part_number INTEGER NOT NULL,
+                            etag TEXT NOT NULL,
+                            PRIMARY KEY (upload_id, part_number)
+                        );
+               """;
+
+    //Durable queue of uploads and downloads run by the transfer workers
+    public static final String TRANSFER_JOB_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS transfer_job (
+                            id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            job_type TEXT NOT NULL,
+                            state TEXT NOT NULL,
+                            object_key TEXT NOT NULL,
+                            file_path TEXT,
+                            file_size INTEGER NOT NULL DEFAULT 0,
+                            priority TEXT NOT NULL,
+                            attempts INTEGER NOT NULL DEFAULT 0,
+                            max_attempts INTEGER NOT NULL,
+                            last_error TEXT,
+                            created_date INTEGER NOT NULL,
+                            next_attempt_date INTEGER NOT NULL
+                        );
+               """;
+
+    //Workers look up runnable jobs by state and due time
+    public static final String TRANSFER_JOB_STATE_INDEX = """
+                        CREATE INDEX IF NOT EXISTS transfer_job_state_idx
+                            ON transfer_job (state, next_attempt_date);
+               """;
+
+    //Index of the downloaded objects kept in the local download cache
+    public static final String DOWNLOAD_CACHE_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS download_cache (
+                            bucket TEXT NOT NULL,
+                            object_key TEXT NOT NULL,
+                            etag TEXT NOT NULL,
+                            cache_file TEXT NOT NULL,
+                            file_size INTEGER NOT NULL,
+                            codec TEXT,
+                            last_access_date INTEGER NOT NULL,
+                            PRIMARY KEY (bucket, object_key)
+                        );
+               """;
+
+    //Eviction walks the cache from the least recently used entry
+    public static final String DOWNLOAD_CACHE_ACCESS_INDEX = """
+                        CREATE INDEX IF NOT EXISTS download_cache_access_idx
+                            ON download_cache (last_access_date);
+               """;
+
+    //Part layout of the last multipart upload of an object, for delta uploads
+    public static final String PART_MANIFEST_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS part_manifest (
+                            bucket TEXT NOT NULL,
+                            object_key TEXT NOT NULL,
+                            etag TEXT NOT NULL,
+                            object_size INTEGER NOT NULL,
+                            part_size INTEGER NOT NULL,
+                            PRIMARY KEY (bucket, object_key)
+                        );
+               """;
+
+    //MD5 of each part listed in a part manifest
+    public static final String PART_MANIFEST_PART_SQL_SCHEMA = """
+                        CREATE TABLE IF NOT EXISTS part_manifest_part (
+                            bucket TEXT NOT NULL,
+                            object_key TEXT NOT NULL,
+                            part_number INTEGER NOT NULL,
+                            part_hash TEXT NOT NULL,
+                            PRIMARY KEY (bucket, object_key, part_number)
+                        );
+               """;
+}
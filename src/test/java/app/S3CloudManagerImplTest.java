@@ -7,6 +7,7 @@ import java.util.List;
 import javax.swing.JComponent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import storage.BatchResult;
 import storage.FileObject;
 import storage.FileStoreException;
 import storage.FileStoreOperations;
@@ -53,6 +54,23 @@ public class S3CloudManagerImplTest {
         verify(mockUI).showAlertMessage("Error deleting file");
     }
 
+    @Test
+    public void testDeleteSelectedFiles_UsesBulkDelete() throws FileStoreException {
+        List<FileObject> fileObjects = Arrays.asList(
+            FileObject.builder().setFileName("a.txt").build(),
+            FileObject.builder().setFileName("b.txt").build()
+        );
+        BatchResult batchResult = new BatchResult();
+        fileObjects.forEach(batchResult::addCompleted);
+        when(mockOperations.deleteAll(fileObjects)).thenReturn(batchResult);
+
+        manager.deleteSelectedFiles(fileObjects);
+
+        verify(mockOperations).deleteAll(fileObjects);
+        verify(mockOperations, never()).delete(any());
+        verify(mockOperations, times(1)).loadAll();
+    }
+
     @Test
     public void testListFiles_Success() throws FileStoreException {
         List<FileObject> files = Arrays.asList(
@@ -5,10 +5,12 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -115,4 +117,26 @@ public class S3LocalFileSyncHandleTest {
         assertTrue(unresolved.contains(cloudOnly));
         assertFalse(unresolved.contains(outdatedLocal));
     }
+
+    @Test
+    public void testSyncFile_UsesStatInsteadOfListing() throws FileStoreException {
+        when(fileStoreOperations.stat("example.txt")).thenReturn(remoteFileNewer);
+        when(fileMetadataRepository.findByName("example.txt")).thenReturn(localFile);
+
+        FileObject remote = syncHandle.syncFile("example.txt");
+
+        assertEquals(remoteFileNewer, remote);
+        verify(fileMetadataRepository, times(1)).saveOrUpdate(remoteFileNewer);
+        verify(fileStoreOperations, never()).loadAll();
+        assertTrue(syncHandle.getConflictedFiles().contains(remoteFileNewer));
+    }
+
+    @Test
+    public void testSyncFile_DropsTrackedFileMissingRemotely() throws FileStoreException {
+        when(fileStoreOperations.stat("example.txt")).thenReturn(null);
+        when(fileMetadataRepository.findByName("example.txt")).thenReturn(localFile);
+
+        assertNull(syncHandle.syncFile("example.txt"));
+        verify(fileMetadataRepository, times(1)).delete("example.txt");
+    }
 }
@@ -1,5 +1,8 @@
 package listeners;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -96,4 +99,20 @@ public class SqlFileEventListenerTest {
         FileEventExceptions ex = assertThrows(FileEventExceptions.class, () -> listener.onDelete(sampleFile));
         assertTrue(ex.getMessage().contains("Failed to delete file metadata"));
     }
+
+    @Test
+    public void testOnDeleteAll_success() {
+        FileObject otherFile = FileObject.builder().setFileName("other.txt").build();
+
+        assertDoesNotThrow(() -> listener.onDeleteAll(List.of(sampleFile, otherFile)));
+        verify(repository).deleteAll(List.of("test.txt", "other.txt"));
+    }
+
+    @Test
+    public void testOnRename_success() {
+        Map<String, FileObject> renamed = Map.of("old.txt", sampleFile);
+
+        assertDoesNotThrow(() -> listener.onRename(renamed));
+        verify(repository).renameAll(renamed);
+    }
 }
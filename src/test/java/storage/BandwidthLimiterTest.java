@@ -0,0 +1,77 @@
+package storage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class BandwidthLimiterTest {
+
+    @Test
+    public void testLimitsThroughput() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(100_000);
+        long start = System.nanoTime();
+        // the bucket starts empty, so 30 KB at 100 KB/s takes about 300 ms
+        for (int chunk = 0; chunk < 30; chunk++) {
+            limiter.acquire(1_000, TransferPriority.BULK);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis >= 200, "elapsed " + elapsedMillis);
+    }
+
+    @Test
+    public void testUnlimitedDoesNotBlock() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(0);
+        long start = System.nanoTime();
+        limiter.acquire(Long.MAX_VALUE / 2, TransferPriority.BULK);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 100);
+    }
+
+    @Test
+    public void testInteractiveIsServedBeforeBulk() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(10_000);
+        // put the bucket in debt so both lanes have to wait
+        limiter.acquire(1, TransferPriority.BULK);
+        Thread.sleep(20);
+        limiter.acquire(5_000, TransferPriority.BULK);
+        List<TransferPriority> order = new CopyOnWriteArrayList<>();
+        CountDownLatch bulkWaiting = new CountDownLatch(1);
+        Thread bulk = Thread.ofVirtual().start(() -> {
+            try {
+                bulkWaiting.countDown();
+                limiter.acquire(1_000, TransferPriority.BULK);
+                order.add(TransferPriority.BULK);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        bulkWaiting.await();
+        Thread.sleep(20);
+        limiter.acquire(1_000, TransferPriority.INTERACTIVE);
+        order.add(TransferPriority.INTERACTIVE);
+        bulk.join();
+
+        assertEquals(List.of(TransferPriority.INTERACTIVE, TransferPriority.BULK), order);
+    }
+
+    @Test
+    public void testLimitChangeAppliesToWaitingTransfers() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(1);
+        limiter.acquire(1_000_000, TransferPriority.BULK);
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire(1_000, TransferPriority.BULK);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(50);
+        limiter.setBytesPerSecond(0);
+        waiter.join(2_000);
+        assertFalse(waiter.isAlive());
+    }
+}
@@ -0,0 +1,108 @@
+package storage;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingFileStoreOperationsTest {
+    private FileStoreOperations delegate;
+    private CachingFileStoreOperations cachingOperations;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = mock(FileStoreOperations.class);
+        cachingOperations = new CachingFileStoreOperations(delegate, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testListingIsServedFromCacheWithinTtl() throws Exception {
+        when(delegate.loadAll()).thenReturn(List.of(fileObject("a.txt")));
+
+        cachingOperations.loadAll();
+        List<FileObject> fileObjects = cachingOperations.loadAll();
+
+        assertEquals(List.of("a.txt"), names(fileObjects));
+        verify(delegate, times(1)).loadAll();
+    }
+
+    @Test
+    public void testExpiredListingIsRefreshed() throws Exception {
+        cachingOperations.setTtl(Duration.ZERO);
+        when(delegate.loadAll()).thenReturn(List.of(fileObject("a.txt")));
+
+        cachingOperations.loadAll();
+        cachingOperations.loadAll();
+
+        verify(delegate, times(2)).loadAll();
+    }
+
+    @Test
+    public void testConcurrentRefreshesShareOneListing() throws Exception {
+        CountDownLatch listing = new CountDownLatch(1);
+        when(delegate.loadAll()).thenAnswer(invocation -> {
+            listing.await(5, TimeUnit.SECONDS);
+            return List.of(fileObject("a.txt"));
+        });
+        List<Future<List<FileObject>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int caller = 0; caller < 8; caller++) {
+                futures.add(executor.submit(cachingOperations::loadAll));
+            }
+            Thread.sleep(100);
+            listing.countDown();
+        }
+
+        for (Future<List<FileObject>> future : futures) {
+            assertEquals(List.of("a.txt"), names(future.get()));
+        }
+        verify(delegate, times(1)).loadAll();
+    }
+
+    @Test
+    public void testSaveAndDeleteUpdateCachedListing() throws Exception {
+        when(delegate.loadAll()).thenReturn(List.of(fileObject("a.txt"), fileObject("b.txt")));
+        when(delegate.save(any(File.class))).thenReturn(fileObject("c.txt"));
+        cachingOperations.loadAll();
+
+        cachingOperations.save(new File("c.txt"));
+        cachingOperations.delete(fileObject("a.txt"));
+
+        assertEquals(List.of("b.txt", "c.txt"), names(cachingOperations.loadAll()));
+        verify(delegate, times(1)).loadAll();
+    }
+
+    @Test
+    public void testInvalidateForcesListing() throws Exception {
+        when(delegate.loadAll()).thenReturn(List.of(fileObject("a.txt")));
+        cachingOperations.loadAll();
+
+        cachingOperations.invalidate();
+        cachingOperations.loadAll();
+
+        verify(delegate, times(2)).loadAll();
+    }
+
+    private FileObject fileObject(String name) {
+        return FileObject.builder().setFileName(name).build();
+    }
+
+    private List<String> names(List<FileObject> fileObjects) {
+        return fileObjects.stream().map(FileObject::getFileName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,114 @@
+package storage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChecksumEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ChecksumEngine checksumEngine = new ChecksumEngine();
+
+    @Test
+    public void testMultipartETagAndCrc32cMatchSequentialChecksums() throws Exception {
+        TransferConfig transferConfig = TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .build();
+        byte[] content = randomBytes(12 * 1024 * 1024 + 123);
+        File file = write("large.bin", content);
+
+        FileChecksum checksum = checksumEngine.compute(file, transferConfig, true);
+
+        int partSize = (int) TransferConfig.MIN_PART_SIZE;
+        MessageDigest partDigests = MessageDigest.getInstance("MD5");
+        partDigests.update(md5(Arrays.copyOfRange(content, 0, partSize)));
+        partDigests.update(md5(Arrays.copyOfRange(content, partSize, 2 * partSize)));
+        partDigests.update(md5(Arrays.copyOfRange(content, 2 * partSize, content.length)));
+        assertEquals(HexFormat.of().formatHex(partDigests.digest()) + "-3", checksum.getETag());
+        assertEquals(3, checksum.getPartMd5s().size());
+        assertEquals(HexFormat.of().formatHex(md5(Arrays.copyOfRange(content, partSize, 2 * partSize))),
+                checksum.getPartMd5s().get(1));
+        assertNull(checksum.getMd5());
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        assertEquals((int) crc.getValue(), checksum.getCrc32c());
+        assertEquals(content.length, checksum.getFileSize());
+    }
+
+    @Test
+    public void testSmallFileETagIsMd5() throws Exception {
+        File file = write("small.txt", "hello world".getBytes());
+
+        FileChecksum checksum = checksumEngine.compute(file, new TransferConfig(), false);
+
+        assertEquals("5eb63bbbe01eeed093cb22bb8f5acdc3", checksum.getETag());
+        assertEquals(checksum.getETag(), checksum.getMd5());
+        assertNull(checksum.getCrc32c());
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        File file = write("empty.txt", new byte[0]);
+
+        FileChecksum checksum = checksumEngine.compute(file, new TransferConfig(), true);
+
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", checksum.getETag());
+        assertEquals("AAAAAA==", checksum.getCrc32cBase64());
+    }
+
+    @Test
+    public void testToFileObjectUsesFileLength() throws Exception {
+        File file = write("notes.txt", "some notes".getBytes());
+
+        FileObject fileObject = checksumEngine.toFileObject(file, new TransferConfig());
+
+        assertEquals("notes.txt", fileObject.getFileName());
+        assertEquals(10, fileObject.getFileSize());
+        assertEquals("e6e8aac5bb36e11045b5f1a1db1cb3ef", fileObject.getChecksum());
+        assertEquals(file.lastModified(), fileObject.getLastModifiedDate().getTime());
+    }
+
+    @Test
+    public void testExplicitPartSizeHashesSmallFileAsParts() throws Exception {
+        byte[] content = randomBytes((int) TransferConfig.MIN_PART_SIZE + 7);
+        File file = write("parts.bin", content);
+
+        FileChecksum checksum = checksumEngine.compute(file, TransferConfig.MIN_PART_SIZE, false);
+
+        assertEquals(TransferConfig.MIN_PART_SIZE, checksum.getPartSize());
+        assertEquals(2, checksum.getPartMd5s().size());
+        assertEquals(HexFormat.of().formatHex(md5(Arrays.copyOfRange(content, (int) TransferConfig.MIN_PART_SIZE, content.length))),
+                checksum.getPartMd5s().get(1));
+        assertTrue(checksum.getETag().endsWith("-2"));
+    }
+
+    private static byte[] md5(byte[] content) throws Exception {
+        return MessageDigest.getInstance("MD5").digest(content);
+    }
+
+    private File write(String name, byte[] content) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.write(path, content);
+        return path.toFile();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
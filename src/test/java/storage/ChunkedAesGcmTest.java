@@ -0,0 +1,54 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class ChunkedAesGcmTest {
+    private final ChunkedAesGcm cipher = new ChunkedAesGcm(new SecretKeySpec(new byte[16], "AES"), 4096);
+
+    @Test
+    public void testRoundTripAcrossManyChunks() throws IOException {
+        byte[] plaintext = new byte[4096 * 37 + 123];
+        new Random(7).nextBytes(plaintext);
+
+        byte[] encrypted = cipher.encrypt(new ByteArrayInputStream(plaintext)).readAllBytes();
+
+        assertEquals(cipher.encryptedSize(plaintext.length), encrypted.length);
+        assertArrayEquals(plaintext, cipher.decrypt(new ByteArrayInputStream(encrypted)).readAllBytes());
+    }
+
+    @Test
+    public void testRoundTripOfEmptyAndChunkAlignedContent() throws IOException {
+        for (int size : new int[] {0, 4096, 4096 * 3}) {
+            byte[] plaintext = new byte[size];
+            byte[] encrypted = cipher.encrypt(new ByteArrayInputStream(plaintext)).readAllBytes();
+            assertArrayEquals(plaintext, cipher.decrypt(new ByteArrayInputStream(encrypted)).readAllBytes());
+        }
+    }
+
+    @Test
+    public void testTamperedChunkFailsToDecrypt() throws IOException {
+        byte[] encrypted = cipher.encrypt(new ByteArrayInputStream(new byte[10_000])).readAllBytes();
+        encrypted[encrypted.length / 2] ^= 1;
+
+        assertThrows(IOException.class, () -> cipher.decrypt(new ByteArrayInputStream(encrypted)).readAllBytes());
+    }
+
+    @Test
+    public void testTruncatedAtChunkBoundaryFailsToDecrypt() throws IOException {
+        byte[] encrypted = cipher.encrypt(new ByteArrayInputStream(new byte[4096 * 3])).readAllBytes();
+        // drop the last chunk frame: the remaining last frame was not encrypted as the final chunk
+        byte[] truncated = Arrays.copyOf(encrypted, encrypted.length - (4096 + 16));
+
+        assertThrows(IOException.class, () -> cipher.decrypt(new ByteArrayInputStream(truncated)).readAllBytes());
+    }
+}
@@ -0,0 +1,115 @@
+package storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import storage.db.DownloadCacheRepository;
+import storage.db.SQLiteDownloadCacheRepository;
+
+public class DownloadCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Connection connection;
+    private DownloadCacheRepository repository;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        repository = new SQLiteDownloadCacheRepository(connection);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testCopyServesCachedVersion() throws Exception {
+        DownloadCache cache = new DownloadCache(repository, tempDir.resolve("cache"), 1024);
+        cache.put("bucket", "a.txt", "etag-1", null, file("a.txt", 10));
+
+        CachedObject entry = cache.find("bucket", "a.txt");
+        assertNotNull(entry);
+        assertEquals("etag-1", entry.getETag());
+
+        Path target = tempDir.resolve("target.txt");
+        assertTrue(cache.copyTo(entry, target));
+        assertEquals(10, Files.size(target));
+        assertFalse(Files.isSameFile(target, tempDir.resolve("cache").resolve(entry.getCacheFile())));
+    }
+
+    @Test
+    public void testEditingDownloadedFileKeepsCachedCopy() throws Exception {
+        DownloadCache cache = new DownloadCache(repository, tempDir.resolve("cache"), 1024);
+        Path downloaded = file("a.txt", 10);
+        cache.put("bucket", "a.txt", "etag-1", null, downloaded);
+
+        Files.write(downloaded, "edited....".getBytes());
+
+        Path target = tempDir.resolve("target.txt");
+        assertTrue(cache.copyTo(cache.find("bucket", "a.txt"), target));
+        assertArrayEquals(new byte[10], Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testNewVersionReplacesOldCopy() throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        DownloadCache cache = new DownloadCache(repository, cacheDir, 1024);
+        cache.put("bucket", "a.txt", "etag-1", null, file("a.txt", 10));
+        cache.put("bucket", "a.txt", "etag-2", "gzip", file("a.txt", 20));
+
+        CachedObject entry = cache.find("bucket", "a.txt");
+        assertEquals("etag-2", entry.getETag());
+        assertEquals("gzip", entry.getCodec());
+        assertEquals(20, repository.totalSize());
+        try (var files = Files.list(cacheDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedAboveBudget() throws Exception {
+        DownloadCache cache = new DownloadCache(repository, tempDir.resolve("cache"), 100);
+        cache.put("bucket", "a.txt", "etag-a", null, file("a.txt", 40));
+        Thread.sleep(5);
+        cache.put("bucket", "b.txt", "etag-b", null, file("b.txt", 40));
+        Thread.sleep(5);
+        // reading a makes b the least recently used
+        assertTrue(cache.copyTo(cache.find("bucket", "a.txt"), tempDir.resolve("a-copy.txt")));
+        Thread.sleep(5);
+        cache.put("bucket", "c.txt", "etag-c", null, file("c.txt", 40));
+
+        assertNotNull(cache.find("bucket", "a.txt"));
+        assertNull(cache.find("bucket", "b.txt"));
+        assertNotNull(cache.find("bucket", "c.txt"));
+        assertEquals(80, repository.totalSize());
+    }
+
+    @Test
+    public void testFileLargerThanBudgetIsNotCached() throws Exception {
+        DownloadCache cache = new DownloadCache(repository, tempDir.resolve("cache"), 10);
+        cache.put("bucket", "big.bin", "etag", null, file("big.bin", 11));
+
+        assertNull(cache.find("bucket", "big.bin"));
+        assertFalse(Files.exists(tempDir.resolve("cache")) && Files.list(tempDir.resolve("cache")).findAny().isPresent());
+    }
+
+    private Path file(String name, int size) throws Exception {
+        return Files.write(tempDir.resolve(name), new byte[size]);
+    }
+}
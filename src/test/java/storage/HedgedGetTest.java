@@ -0,0 +1,86 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+public class HedgedGetTest {
+
+    @Test
+    public void testSlowRequestIsHedged() {
+        AmazonS3 s3Client = mock(AmazonS3.class);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        S3Object slow = s3Object("slow");
+        S3Object fast = s3Object("fast");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                release.await(5, TimeUnit.SECONDS);
+                return slow;
+            }
+            return fast;
+        });
+        LatencyTracker latencyTracker = new LatencyTracker(16, 4);
+        for (int sample = 0; sample < 4; sample++) {
+            latencyTracker.record(20);
+        }
+        HedgedGet hedgedGet = new HedgedGet(s3Client, latencyTracker, Duration.ofSeconds(10), true);
+
+        S3Object s3Object = hedgedGet.getObject(new GetObjectRequest("bucket", "key"));
+        release.countDown();
+
+        assertSame(fast, s3Object);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testNoHedgeWithoutLatencyHistory() {
+        AmazonS3 s3Client = mock(AmazonS3.class);
+        S3Object object = s3Object("content");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(object);
+        LatencyTracker latencyTracker = new LatencyTracker();
+        HedgedGet hedgedGet = new HedgedGet(s3Client, latencyTracker, Duration.ofSeconds(10), true);
+
+        assertSame(object, hedgedGet.getObject(new GetObjectRequest("bucket", "key")));
+        assertEquals(1, latencyTracker.getSampleCount());
+    }
+
+    @Test
+    public void testRequestPastDeadlineTimesOut() {
+        AmazonS3 s3Client = mock(AmazonS3.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return s3Object("late");
+        });
+        HedgedGet hedgedGet = new HedgedGet(s3Client, new LatencyTracker(), Duration.ofMillis(100), true);
+
+        long start = System.nanoTime();
+        assertThrows(ClientExecutionTimeoutException.class,
+                () -> hedgedGet.getObject(new GetObjectRequest("bucket", "key")));
+        release.countDown();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    private S3Object s3Object(String content) {
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(content.getBytes()));
+        return s3Object;
+    }
+}
@@ -1,77 +1,131 @@
-// package storage;
-
-// import java.io.File;
-// import java.io.FileWriter;
-// import java.util.Arrays;
-// import java.util.List;
-
-// import org.junit.jupiter.api.AfterEach;
-// import static org.junit.jupiter.api.Assertions.assertFalse;
-// import static org.junit.jupiter.api.Assertions.assertTrue;
-// import org.junit.jupiter.api.BeforeEach;
-// import org.junit.jupiter.api.Test;
-
-// public class LocalFileStoreOperationsTest {
-
-//     private static final String TEST_DIR = "test_folder";
-//     private LocalFileStoreOperations fileStore;
-
-//     @BeforeEach
-//     public void setup() {
-//         fileStore = new LocalFileStoreOperations(TEST_DIR);
-//     }
-
-//     private File createTempFile(String fileName, String content) throws Exception {
-//         File file = new File(TEST_DIR, fileName);
-//         try (FileWriter writer = new FileWriter(file)) {
-//             writer.write(content);
-//         }
-//         return file;
-//     }
-
-//     @Test
-//     public void testSaveFile() throws Exception {
-//         File file = createTempFile("test1.txt", "Hello World");
-//         fileStore.save(file);
-//         File storedFile = new File(TEST_DIR, "test1.txt");
-//         assertTrue(storedFile.exists());
-//     }
-
-//     @Test
-//     public void testSaveAllFiles() throws Exception {
-//         File file1 = createTempFile("multi1.txt", "File 1");
-//         File file2 = createTempFile("multi2.txt", "File 2");
-//         fileStore.saveAll(Arrays.asList(file1, file2));
-//         assertTrue(new File(TEST_DIR, "multi1.txt").exists());
-//         assertTrue(new File(TEST_DIR, "multi2.txt").exists());
-//     }
-
-//     @Test
-//     public void testDeleteFile() throws Exception {
-//         File file = createTempFile("delete_me.txt", "To be deleted");
-//         fileStore.save(file);
-//         FileObject fileObject = FileObject.builder().setFileName("delete_me.txt").build();
-//         fileStore.delete(fileObject);
-//         assertFalse(new File(TEST_DIR, "delete_me.txt").exists());
-//     }
-
-//     @Test
-//     public void testLoadAllFiles() throws Exception {
-//         File file = createTempFile("load.txt", "Load this file");
-//         fileStore.save(file);
-//         List<FileObject> loadedFiles = fileStore.loadAll();
-//         assertFalse(loadedFiles.isEmpty());
-//         assertTrue(loadedFiles.stream().anyMatch(f -> f.getFileName().equals("load.txt")));
-//     }
-
-//     @AfterEach
-//     public void cleanup() {
-//         File dir = new File(TEST_DIR);
-//         for (File file : dir.listFiles()) {
-//             file.delete();
-//         }
-
-//         dir.delete();
-
-//     }
-// }
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalFileStoreOperationsTest {
+
+    private static final String TEST_DIR = "test_folder";
+    private LocalFileStoreOperations fileStore;
+
+    @BeforeEach
+    public void setup() {
+        fileStore = new LocalFileStoreOperations(TEST_DIR);
+    }
+
+    private File createTempFile(String fileName, String content) throws Exception {
+        File file = new File(TEST_DIR, fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    public void testSaveFile() throws Exception {
+        File file = createTempFile("test1.txt", "Hello World");
+        fileStore.save(file);
+        File storedFile = new File(TEST_DIR, "test1.txt");
+        assertTrue(storedFile.exists());
+    }
+
+    @Test
+    public void testSaveAllFiles() throws Exception {
+        File file1 = createTempFile("multi1.txt", "File 1");
+        File file2 = createTempFile("multi2.txt", "File 2");
+        fileStore.saveAll(Arrays.asList(file1, file2));
+        assertTrue(new File(TEST_DIR, "multi1.txt").exists());
+        assertTrue(new File(TEST_DIR, "multi2.txt").exists());
+    }
+
+    @Test
+    public void testDeleteFile() throws Exception {
+        File file = createTempFile("delete_me.txt", "To be deleted");
+        fileStore.save(file);
+        FileObject fileObject = FileObject.builder().setFileName("delete_me.txt").build();
+        fileStore.delete(fileObject);
+        assertFalse(new File(TEST_DIR, "delete_me.txt").exists());
+    }
+
+    @Test
+    public void testLoadAllFiles() throws Exception {
+        File file = createTempFile("load.txt", "Load this file");
+        fileStore.save(file);
+        List<FileObject> loadedFiles = fileStore.loadAll();
+        assertFalse(loadedFiles.isEmpty());
+        assertTrue(loadedFiles.stream().anyMatch(f -> f.getFileName().equals("load.txt")));
+    }
+
+    @Test
+    public void testCopyAndMoveFile() throws Exception {
+        File file = createTempFile("source.txt", "Copy me");
+        fileStore.save(file);
+
+        FileObject copied = fileStore.copy("source.txt", "copied.txt");
+        FileObject moved = fileStore.move("source.txt", "moved.txt");
+
+        assertEquals("copied.txt", copied.getFileName());
+        assertEquals(7, copied.getFileSize());
+        assertEquals("Copy me", Files.readString(new File(TEST_DIR, "moved.txt").toPath()));
+        assertFalse(new File(TEST_DIR, "source.txt").exists());
+        assertEquals("moved.txt", moved.getFileName());
+    }
+
+    @Test
+    public void testCopyAndMoveRejectExistingTarget() throws Exception {
+        fileStore.save(createTempFile("first.txt", "First"));
+        fileStore.save(createTempFile("second.txt", "Second"));
+
+        assertThrows(FileStoreException.class, () -> fileStore.copy("first.txt", "second.txt"));
+        assertThrows(FileStoreException.class, () -> fileStore.move("first.txt", "second.txt"));
+
+        assertEquals("Second", Files.readString(new File(TEST_DIR, "second.txt").toPath()));
+        assertTrue(new File(TEST_DIR, "first.txt").exists());
+    }
+
+    @Test
+    public void testRenameFolderAndListFolder(@TempDir Path root) throws Exception {
+        LocalFileStoreOperations store = new LocalFileStoreOperations(root);
+        store.save("docs/a.txt", new ByteArrayInputStream("a".getBytes()));
+        store.save("docs/sub/b.txt", new ByteArrayInputStream("b".getBytes()));
+
+        BatchResult result = store.renameFolder("docs/", "archive/");
+
+        assertEquals(2, result.getCompleted().size());
+        assertFalse(Files.exists(root.resolve("docs")));
+        List<FileObject> listed = store.listFolder("archive/");
+        assertEquals("archive/sub/", listed.get(0).getFileName());
+        assertEquals("archive/a.txt", listed.get(1).getFileName());
+        assertEquals("b", Files.readString(root.resolve("archive/sub/b.txt")));
+    }
+
+    @Test
+    public void testRejectsKeysOutsideRoot() {
+        assertThrows(FileStoreException.class, () -> fileStore.stat("../outside.txt"));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        File dir = new File(TEST_DIR);
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+
+        dir.delete();
+
+    }
+}
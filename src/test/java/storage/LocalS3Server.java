@@ -0,0 +1,802 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LocalS3Server is an in-process S3 stand-in for tests and offline
+ * benchmarks, serving the S3 REST API on a loopback port with objects held
+ * in memory. Clients reach it through AwsS3Credential.endpoint, which makes
+ * S3ClientFactory use path style requests such as PUT /bucket/key.
+ *
+ * Supported: PUT (plain and aws-chunked bodies), GET with Range and If-Match,
+ * HEAD, DELETE, paginated ListObjectsV2 with delimiter, DeleteObjects,
+ * CopyObject, and multipart upload with UploadPartCopy, ListParts and abort.
+ * ETags are MD5s like S3's for unencrypted objects, including the MD5 of part
+ * MD5s for multipart objects. Request signatures are not verified.
+ *
+ * Knobs for realistic and failing networks: a fixed latency per request,
+ * upload and download bandwidth shared by all connections, and a rate of
+ * injected 500 InternalError and 503 SlowDown responses drawn from a seeded
+ * random source, so runs are repeatable.
+ */
+public class LocalS3Server implements AutoCloseable {
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final String XML_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_KEYS = 1000;
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ISO_DATE =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final HttpServer httpServer;
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final BandwidthLimiter uploadBandwidth = new BandwidthLimiter(0);
+    private final BandwidthLimiter downloadBandwidth = new BandwidthLimiter(0);
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+    private Random random = new Random(0);
+
+    /**
+     * Bind to a free loopback port; call start to serve requests.
+     *
+     * @throws IOException if no port can be bound
+     */
+    public LocalS3Server() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // platform threads: clients blocking on virtual threads inside the SDK's
+        // synchronized code pin their carriers and would starve virtual handlers
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        httpServer.createContext("/", this::handle);
+    }
+
+    public LocalS3Server start() {
+        httpServer.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+    }
+
+    /**
+     * @return base URL to use as AwsS3Credential endpoint
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Create the bucket and return a credential pointing at it.
+     */
+    public AwsS3Credential createBucket(String bucketName) {
+        buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+        AwsS3Credential credential = new AwsS3Credential("local-access-key", "local-secret-key", "us-east-1", bucketName);
+        credential.setEndpoint(getEndpoint());
+        return credential;
+    }
+
+    /**
+     * @return stored content of the object, or null if it does not exist
+     */
+    public byte[] getObjectContent(String bucketName, String key) {
+        StoredObject object = bucket(bucketName) == null ? null : bucket(bucketName).get(key);
+        return object == null ? null : object.content();
+    }
+
+    /**
+     * @return number of keys stored in the bucket
+     */
+    public int getObjectCount(String bucketName) {
+        return bucket(bucketName) == null ? 0 : bucket(bucketName).size();
+    }
+
+    /**
+     * @return number of multipart uploads neither completed nor aborted
+     */
+    public int getOpenUploadCount() {
+        return uploads.size();
+    }
+
+    /**
+     * @param operation S3 operation name, e.g. PutObject, UploadPart or GetObject
+     * @return number of requests served for the operation, injected failures included
+     */
+    public int getRequestCount(String operation) {
+        AtomicInteger count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetRequestCounts() {
+        requestCounts.clear();
+    }
+
+    /**
+     * @param latency delay added before every response
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @param bytesPerSecond request body bandwidth shared by all connections, 0 for unlimited
+     */
+    public void setUploadBandwidth(long bytesPerSecond) {
+        uploadBandwidth.setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * @param bytesPerSecond response body bandwidth shared by all connections, 0 for unlimited
+     */
+    public void setDownloadBandwidth(long bytesPerSecond) {
+        downloadBandwidth.setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * @param errorRate fraction of requests failed with 500 InternalError
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param throttleRate fraction of requests failed with 503 SlowDown
+     */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    /**
+     * @param seed seed of the random source drawing injected failures
+     */
+    public synchronized void setSeed(long seed) {
+        random = new Random(seed);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            S3Request request = S3Request.parse(exchange);
+            requestCounts.computeIfAbsent(request.operation(), name -> new AtomicInteger()).incrementAndGet();
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+            double draw = nextDraw();
+            if (draw < throttleRate) {
+                sendError(exchange, 503, "SlowDown", "Please reduce your request rate.");
+                return;
+            }
+            if (draw < throttleRate + errorRate) {
+                sendError(exchange, 500, "InternalError", "We encountered an internal error. Please try again.");
+                return;
+            }
+            NavigableMap<String, StoredObject> bucket = bucket(request.bucket());
+            if (bucket == null) {
+                sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+                return;
+            }
+            dispatch(exchange, request, bucket);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            sendError(exchange, 500, "InternalError", String.valueOf(ex.getMessage()));
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException, InterruptedException {
+        switch (request.operation()) {
+            case "ListObjectsV2" -> listObjects(exchange, request, bucket);
+            case "HeadBucket" -> sendEmpty(exchange, 200);
+            case "DeleteObjects" -> deleteObjects(exchange, request, bucket);
+            case "HeadObject", "GetObject" -> getObject(exchange, request, bucket);
+            case "PutObject" -> putObject(exchange, request, bucket);
+            case "CopyObject" -> copyObject(exchange, request, bucket);
+            case "DeleteObject" -> {
+                bucket.remove(request.key());
+                sendEmpty(exchange, 204);
+            }
+            case "CreateMultipartUpload" -> createMultipartUpload(exchange, request);
+            case "UploadPart", "UploadPartCopy" -> uploadPart(exchange, request);
+            case "ListParts" -> listParts(exchange, request);
+            case "CompleteMultipartUpload" -> completeMultipartUpload(exchange, request, bucket);
+            case "AbortMultipartUpload" -> {
+                if (uploads.remove(request.param("uploadId")) == null) {
+                    sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+                } else {
+                    sendEmpty(exchange, 204);
+                }
+            }
+            default -> sendError(exchange, 501, "NotImplemented", "Unsupported request " + request.operation());
+        }
+    }
+
+    private void getObject(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException, InterruptedException {
+        boolean head = "HeadObject".equals(request.operation());
+        StoredObject object = bucket.get(request.key());
+        if (object == null) {
+            if (head) {
+                sendEmpty(exchange, 404);
+            } else {
+                sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            }
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !stripQuotes(ifMatch).equals(object.eTag())) {
+            sendError(exchange, 412, "PreconditionFailed", "At least one of the preconditions did not hold");
+            return;
+        }
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && stripQuotes(ifNoneMatch).equals(object.eTag())) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+        writeObjectHeaders(exchange, object);
+        long size = object.content().length;
+        long start = 0;
+        long end = size - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            start = Long.parseLong(bounds[0]);
+            end = bounds[1].isEmpty() ? size - 1 : Math.min(Long.parseLong(bounds[1]), size - 1);
+            if (start >= size) {
+                exchange.getResponseHeaders().remove("ETag");
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+        }
+        long length = end - start + 1;
+        exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+        if (head) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        OutputStream outputStream = exchange.getResponseBody();
+        for (long offset = start; offset <= end; offset += BUFFER_SIZE) {
+            int chunk = (int) Math.min(BUFFER_SIZE, end + 1 - offset);
+            downloadBandwidth.acquire(chunk, TransferPriority.BULK);
+            outputStream.write(object.content(), (int) offset, chunk);
+        }
+    }
+
+    private void putObject(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException, InterruptedException {
+        byte[] content = readBody(exchange);
+        if (content == null) {
+            return;
+        }
+        StoredObject object = new StoredObject(content, md5Hex(content), Instant.now(),
+                exchange.getRequestHeaders().getFirst("Content-Type"), userMetadata(exchange));
+        bucket.put(request.key(), object);
+        exchange.getResponseHeaders().set("ETag", quote(object.eTag()));
+        sendEmpty(exchange, 200);
+    }
+
+    private void copyObject(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException {
+        StoredObject source = copySource(exchange);
+        if (source == null) {
+            return;
+        }
+        boolean replace = "REPLACE".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("x-amz-metadata-directive"));
+        StoredObject object = new StoredObject(source.content(), source.eTag(), Instant.now(),
+                replace ? exchange.getRequestHeaders().getFirst("Content-Type") : source.contentType(),
+                replace ? userMetadata(exchange) : source.userMetadata());
+        bucket.put(request.key(), object);
+        sendXml(exchange, 200, "<CopyObjectResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<LastModified>" + ISO_DATE.format(object.lastModified()) + "</LastModified>"
+                + "<ETag>" + escape(quote(object.eTag())) + "</ETag></CopyObjectResult>");
+    }
+
+    private void deleteObjects(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException, InterruptedException {
+        byte[] body = readBody(exchange);
+        if (body == null) {
+            return;
+        }
+        Document document = parseXml(body);
+        boolean quiet = "true".equalsIgnoreCase(textOf(document.getDocumentElement(), "Quiet"));
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + XML_NAMESPACE + "\">");
+        NodeList objects = document.getElementsByTagName("Object");
+        for (int index = 0; index < objects.getLength(); index++) {
+            String key = textOf((Element) objects.item(index), "Key");
+            bucket.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+            }
+        }
+        sendXml(exchange, 200, xml.append("</DeleteResult>").toString());
+    }
+
+    /**
+     * ListObjectsV2; the continuation token is the last key or common prefix
+     * returned, so pages stay consistent while keys are added or removed.
+     */
+    private void listObjects(HttpExchange exchange, S3Request request, NavigableMap<String, StoredObject> bucket)
+            throws IOException {
+        String prefix = request.param("prefix", "");
+        String delimiter = request.param("delimiter", "");
+        int maxKeys = Math.min(Integer.parseInt(request.param("max-keys", String.valueOf(DEFAULT_MAX_KEYS))),
+                DEFAULT_MAX_KEYS);
+        String token = request.param("continuation-token");
+        String after = token != null
+                ? new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8)
+                : request.param("start-after", "");
+        boolean urlEncoding = "url".equals(request.param("encoding-type"));
+
+        StringBuilder contents = new StringBuilder();
+        String lastPrefix = null;
+        String lastEmitted = null;
+        int keyCount = 0;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : bucket.tailMap(after, false).entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                if (key.compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            // resuming after a common prefix skips the keys rolled up into it
+            if (!delimiter.isEmpty() && after.endsWith(delimiter) && key.startsWith(after)) {
+                continue;
+            }
+            int delimiterIndex = delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            String commonPrefix = delimiterIndex < 0 ? null : key.substring(0, delimiterIndex + delimiter.length());
+            if (commonPrefix != null && commonPrefix.equals(lastPrefix)) {
+                continue;
+            }
+            if (keyCount == maxKeys) {
+                truncated = true;
+                break;
+            }
+            keyCount++;
+            if (commonPrefix != null) {
+                lastPrefix = commonPrefix;
+                lastEmitted = commonPrefix;
+                contents.append("<CommonPrefixes><Prefix>").append(encodeKey(commonPrefix, urlEncoding))
+                        .append("</Prefix></CommonPrefixes>");
+            } else {
+                StoredObject object = entry.getValue();
+                lastEmitted = key;
+                contents.append("<Contents><Key>").append(encodeKey(key, urlEncoding)).append("</Key>")
+                        .append("<LastModified>").append(ISO_DATE.format(object.lastModified())).append("</LastModified>")
+                        .append("<ETag>").append(escape(quote(object.eTag()))).append("</ETag>")
+                        .append("<Size>").append(object.content().length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            }
+        }
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + XML_NAMESPACE + "\">")
+                .append("<Name>").append(escape(request.bucket())).append("</Name>")
+                .append("<Prefix>").append(encodeKey(prefix, urlEncoding)).append("</Prefix>")
+                .append("<KeyCount>").append(keyCount).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>");
+        if (!delimiter.isEmpty()) {
+            xml.append("<Delimiter>").append(encodeKey(delimiter, urlEncoding)).append("</Delimiter>");
+        }
+        if (urlEncoding) {
+            xml.append("<EncodingType>url</EncodingType>");
+        }
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (token != null) {
+            xml.append("<ContinuationToken>").append(escape(token)).append("</ContinuationToken>");
+        }
+        if (truncated) {
+            xml.append("<NextContinuationToken>")
+                    .append(Base64.getEncoder().encodeToString(lastEmitted.getBytes(StandardCharsets.UTF_8)))
+                    .append("</NextContinuationToken>");
+        }
+        sendXml(exchange, 200, xml.append(contents).append("</ListBucketResult>").toString());
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, S3Request request) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new MultipartUpload(request.bucket(), request.key(),
+                exchange.getRequestHeaders().getFirst("Content-Type"), userMetadata(exchange),
+                new ConcurrentSkipListMap<>()));
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<Bucket>" + escape(request.bucket()) + "</Bucket><Key>" + escape(request.key()) + "</Key>"
+                + "<UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, S3Request request) throws IOException, InterruptedException {
+        MultipartUpload upload = upload(exchange, request);
+        if (upload == null) {
+            return;
+        }
+        int partNumber = Integer.parseInt(request.param("partNumber"));
+        if ("UploadPartCopy".equals(request.operation())) {
+            StoredObject source = copySource(exchange);
+            if (source == null) {
+                return;
+            }
+            byte[] content = source.content();
+            String range = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-");
+                long start = Long.parseLong(bounds[0]);
+                long end = Long.parseLong(bounds[1]);
+                if (end >= content.length) {
+                    sendError(exchange, 400, "InvalidRange", "The requested range is not satisfiable");
+                    return;
+                }
+                content = Arrays.copyOfRange(content, (int) start, (int) end + 1);
+            }
+            StoredObject part = new StoredObject(content, md5Hex(content), Instant.now(), null, Map.of());
+            upload.parts().put(partNumber, part);
+            sendXml(exchange, 200, "<CopyPartResult xmlns=\"" + XML_NAMESPACE + "\">"
+                    + "<LastModified>" + ISO_DATE.format(part.lastModified()) + "</LastModified>"
+                    + "<ETag>" + escape(quote(part.eTag())) + "</ETag></CopyPartResult>");
+            return;
+        }
+        byte[] content = readBody(exchange);
+        if (content == null) {
+            return;
+        }
+        StoredObject part = new StoredObject(content, md5Hex(content), Instant.now(), null, Map.of());
+        upload.parts().put(partNumber, part);
+        exchange.getResponseHeaders().set("ETag", quote(part.eTag()));
+        sendEmpty(exchange, 200);
+    }
+
+    private void listParts(HttpExchange exchange, S3Request request) throws IOException {
+        MultipartUpload upload = upload(exchange, request);
+        if (upload == null) {
+            return;
+        }
+        StringBuilder xml = new StringBuilder("<ListPartsResult xmlns=\"" + XML_NAMESPACE + "\">")
+                .append("<Bucket>").append(escape(request.bucket())).append("</Bucket>")
+                .append("<Key>").append(escape(request.key())).append("</Key>")
+                .append("<UploadId>").append(request.param("uploadId")).append("</UploadId>")
+                .append("<MaxParts>10000</MaxParts><IsTruncated>false</IsTruncated>");
+        for (Map.Entry<Integer, StoredObject> part : upload.parts().entrySet()) {
+            xml.append("<Part><PartNumber>").append(part.getKey()).append("</PartNumber>")
+                    .append("<LastModified>").append(ISO_DATE.format(part.getValue().lastModified())).append("</LastModified>")
+                    .append("<ETag>").append(escape(quote(part.getValue().eTag()))).append("</ETag>")
+                    .append("<Size>").append(part.getValue().content().length).append("</Size></Part>");
+        }
+        sendXml(exchange, 200, xml.append("</ListPartsResult>").toString());
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, S3Request request,
+                                         NavigableMap<String, StoredObject> bucket)
+            throws IOException, InterruptedException {
+        MultipartUpload upload = upload(exchange, request);
+        byte[] body = upload == null ? null : readBody(exchange);
+        if (body == null) {
+            return;
+        }
+        NodeList parts = parseXml(body).getElementsByTagName("Part");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        MessageDigest partDigests = newMd5();
+        int previousPartNumber = 0;
+        for (int index = 0; index < parts.getLength(); index++) {
+            Element element = (Element) parts.item(index);
+            int partNumber = Integer.parseInt(textOf(element, "PartNumber"));
+            StoredObject part = upload.parts().get(partNumber);
+            if (part == null || !stripQuotes(textOf(element, "ETag")).equals(part.eTag())) {
+                sendError(exchange, 400, "InvalidPart", "One or more of the specified parts could not be found.");
+                return;
+            }
+            if (partNumber <= previousPartNumber) {
+                sendError(exchange, 400, "InvalidPartOrder", "The list of parts was not in ascending order.");
+                return;
+            }
+            if (index < parts.getLength() - 1 && part.content().length < MIN_PART_SIZE) {
+                sendError(exchange, 400, "EntityTooSmall",
+                        "Your proposed upload is smaller than the minimum allowed object size.");
+                return;
+            }
+            previousPartNumber = partNumber;
+            content.write(part.content());
+            partDigests.update(HexFormat.of().parseHex(part.eTag()));
+        }
+        String eTag = HexFormat.of().formatHex(partDigests.digest()) + "-" + parts.getLength();
+        bucket.put(request.key(), new StoredObject(content.toByteArray(), eTag, Instant.now(),
+                upload.contentType(), upload.userMetadata()));
+        uploads.remove(request.param("uploadId"));
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XML_NAMESPACE + "\">"
+                + "<Location>" + escape(getEndpoint() + "/" + request.bucket() + "/" + request.key()) + "</Location>"
+                + "<Bucket>" + escape(request.bucket()) + "</Bucket><Key>" + escape(request.key()) + "</Key>"
+                + "<ETag>" + escape(quote(eTag)) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private MultipartUpload upload(HttpExchange exchange, S3Request request) throws IOException {
+        MultipartUpload upload = uploads.get(request.param("uploadId"));
+        if (upload == null || !upload.bucket().equals(request.bucket()) || !upload.key().equals(request.key())) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return null;
+        }
+        return upload;
+    }
+
+    /**
+     * Resolve x-amz-copy-source, checking x-amz-copy-source-if-match.
+     *
+     * @return the source object, or null after an error response was sent
+     */
+    private StoredObject copySource(HttpExchange exchange) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        int versionIndex = copySource.indexOf("?versionId=");
+        if (versionIndex >= 0) {
+            copySource = copySource.substring(0, versionIndex);
+        }
+        copySource = URLDecoder.decode(copySource.replace("+", "%2B"), StandardCharsets.UTF_8);
+        if (copySource.startsWith("/")) {
+            copySource = copySource.substring(1);
+        }
+        int slash = copySource.indexOf('/');
+        NavigableMap<String, StoredObject> sourceBucket = slash < 0 ? null : bucket(copySource.substring(0, slash));
+        StoredObject source = sourceBucket == null ? null : sourceBucket.get(copySource.substring(slash + 1));
+        if (source == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            return null;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("x-amz-copy-source-if-match");
+        if (ifMatch != null && !stripQuotes(ifMatch).equals(source.eTag())) {
+            sendError(exchange, 412, "PreconditionFailed", "At least one of the preconditions did not hold");
+            return null;
+        }
+        return source;
+    }
+
+    /**
+     * Read the request body at the upload bandwidth, decoding aws-chunked
+     * bodies and checking Content-MD5.
+     *
+     * @return the decoded body, or null after an error response was sent
+     */
+    private byte[] readBody(HttpExchange exchange) throws IOException, InterruptedException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream inputStream = exchange.getRequestBody();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) > 0) {
+            uploadBandwidth.acquire(bytesRead, TransferPriority.BULK);
+            body.write(buffer, 0, bytesRead);
+        }
+        byte[] content = body.toByteArray();
+        String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if ((contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked"))) {
+            content = decodeAwsChunked(content);
+        }
+        String contentMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        if (contentMd5 != null && !Arrays.equals(Base64.getDecoder().decode(contentMd5), newMd5().digest(content))) {
+            sendError(exchange, 400, "BadDigest", "The Content-MD5 you specified did not match what we received.");
+            return null;
+        }
+        return content;
+    }
+
+    /**
+     * Strip the chunk headers of a SigV4 streaming body:
+     * hex-size;chunk-signature=...\r\n data \r\n, ending with a 0 size chunk.
+     */
+    static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = position;
+            while (body[lineEnd] != '\r' || body[lineEnd + 1] != '\n') {
+                lineEnd++;
+            }
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt(semicolon < 0 ? header : header.substring(0, semicolon), 16);
+            if (size == 0) {
+                break;
+            }
+            content.write(body, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return content.toByteArray();
+    }
+
+    private void writeObjectHeaders(HttpExchange exchange, StoredObject object) {
+        exchange.getResponseHeaders().set("ETag", quote(object.eTag()));
+        exchange.getResponseHeaders().set("Last-Modified", HTTP_DATE.format(object.lastModified()));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Content-Type",
+                object.contentType() == null ? "application/octet-stream" : object.contentType());
+        object.userMetadata().forEach((name, value) ->
+                exchange.getResponseHeaders().set(USER_METADATA_PREFIX + name, value));
+    }
+
+    private static Map<String, String> userMetadata(HttpExchange exchange) {
+        Map<String, String> userMetadata = new HashMap<>();
+        exchange.getRequestHeaders().forEach((name, values) -> {
+            if (name.toLowerCase(Locale.ROOT).startsWith(USER_METADATA_PREFIX)) {
+                userMetadata.put(name.substring(USER_METADATA_PREFIX.length()).toLowerCase(Locale.ROOT), values.get(0));
+            }
+        });
+        return userMetadata;
+    }
+
+    private void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.getResponseHeaders().set("x-amz-request-id", requestId());
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            sendEmpty(exchange, status);
+            return;
+        }
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message)
+                + "</Message><RequestId>" + requestId() + "</RequestId></Error>");
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("x-amz-request-id", requestId());
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private NavigableMap<String, StoredObject> bucket(String bucketName) {
+        return bucketName == null ? null : buckets.get(bucketName);
+    }
+
+    private synchronized double nextDraw() {
+        return random.nextDouble();
+    }
+
+    private static Document parseXml(byte[] body) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Malformed XML request body", ex);
+        }
+    }
+
+    private static String textOf(Element element, String tagName) {
+        NodeList nodes = element.getElementsByTagName(tagName);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+
+    private static String encodeKey(String key, boolean urlEncoding) {
+        return urlEncoding ? URLEncoder.encode(key, StandardCharsets.UTF_8) : escape(key);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String quote(String eTag) {
+        return "\"" + eTag + "\"";
+    }
+
+    private static String stripQuotes(String eTag) {
+        return eTag.trim().replace("\"", "");
+    }
+
+    private static String requestId() {
+        return Long.toHexString(Double.doubleToLongBits(Math.random())).toUpperCase(Locale.ROOT);
+    }
+
+    private static String md5Hex(byte[] content) {
+        return HexFormat.of().formatHex(newMd5().digest(content));
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 algorithm not available", ex);
+        }
+    }
+
+    private record StoredObject(byte[] content, String eTag, Instant lastModified, String contentType,
+                                Map<String, String> userMetadata) {}
+
+    private record MultipartUpload(String bucket, String key, String contentType, Map<String, String> userMetadata,
+                                   NavigableMap<Integer, StoredObject> parts) {}
+
+    /**
+     * Path style request: /bucket or /bucket/key, mapped to the S3 operation name.
+     */
+    private record S3Request(String bucket, String key, Map<String, String> params, String operation) {
+
+        static S3Request parse(HttpExchange exchange) {
+            String path = exchange.getRequestURI().getPath();
+            path = path.startsWith("/") ? path.substring(1) : path;
+            int slash = path.indexOf('/');
+            String bucket = slash < 0 ? path : path.substring(0, slash);
+            String key = slash < 0 || slash == path.length() - 1 ? null : path.substring(slash + 1);
+            Map<String, String> params = new HashMap<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null && !query.isEmpty()) {
+                for (String pair : query.split("&")) {
+                    int equals = pair.indexOf('=');
+                    String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+                    String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+                    params.put(name, value);
+                }
+            }
+            boolean copy = exchange.getRequestHeaders().containsKey("x-amz-copy-source");
+            return new S3Request(bucket, key, params, operation(exchange.getRequestMethod(), key, params, copy));
+        }
+
+        private static String operation(String method, String key, Map<String, String> params, boolean copy) {
+            if (key == null) {
+                return switch (method) {
+                    case "GET" -> "ListObjectsV2";
+                    case "HEAD" -> "HeadBucket";
+                    case "POST" -> params.containsKey("delete") ? "DeleteObjects" : "Unknown";
+                    default -> "Unknown";
+                };
+            }
+            boolean multipart = params.containsKey("uploadId");
+            return switch (method) {
+                case "HEAD" -> "HeadObject";
+                case "GET" -> multipart ? "ListParts" : "GetObject";
+                case "PUT" -> multipart ? (copy ? "UploadPartCopy" : "UploadPart") : (copy ? "CopyObject" : "PutObject");
+                case "POST" -> params.containsKey("uploads") ? "CreateMultipartUpload"
+                        : multipart ? "CompleteMultipartUpload" : "Unknown";
+                case "DELETE" -> multipart ? "AbortMultipartUpload" : "DeleteObject";
+                default -> "Unknown";
+            };
+        }
+
+        String param(String name) {
+            return params.get(name);
+        }
+
+        String param(String name, String defaultValue) {
+            return params.getOrDefault(name, defaultValue);
+        }
+    }
+}
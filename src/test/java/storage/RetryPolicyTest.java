@@ -0,0 +1,84 @@
+package storage;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+public class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5),
+            Duration.ofSeconds(5));
+
+    @Test
+    public void testRetriesThrottlingUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryPolicy.execute("GET key", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw serviceException(503, "SlowDown");
+            }
+            return "content";
+        });
+
+        assertEquals("content", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testDoesNotRetryClientErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        AmazonServiceException ex = assertThrows(AmazonServiceException.class, () ->
+                retryPolicy.execute("GET key", () -> {
+                    attempts.incrementAndGet();
+                    throw serviceException(403, "AccessDenied");
+                }));
+
+        assertEquals(403, ex.getStatusCode());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testServiceErrorWithoutErrorCode() {
+        assertFalse(RetryPolicy.isRetryable(serviceException(404, null)));
+        assertTrue(RetryPolicy.isRetryable(serviceException(503, null)));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(AmazonClientException.class, () ->
+                retryPolicy.execute("PUT key", () -> {
+                    attempts.incrementAndGet();
+                    throw new AmazonClientException("connection reset");
+                }));
+
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void testBackoffIsJitteredAndCapped() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofMillis(1000), Duration.ofSeconds(5));
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long delay = policy.backoffMillis(attempt);
+            assertTrue(delay >= 0 && delay <= 1000, "delay " + delay);
+        }
+        assertTrue(RetryPolicy.isRetryable(serviceException(500, "InternalError")));
+        assertFalse(RetryPolicy.isRetryable(serviceException(404, "NoSuchKey")));
+    }
+
+    private AmazonServiceException serviceException(int statusCode, String errorCode) {
+        AmazonServiceException ex = new AmazonServiceException(errorCode);
+        ex.setStatusCode(statusCode);
+        ex.setErrorCode(errorCode);
+        return ex;
+    }
+}
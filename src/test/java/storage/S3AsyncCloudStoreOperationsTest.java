@@ -0,0 +1,86 @@
+package storage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class S3AsyncCloudStoreOperationsTest {
+    private FileStoreOperations mockOperations;
+    private S3AsyncCloudStoreOperations asyncOperations;
+
+    @BeforeEach
+    public void setUp() {
+        mockOperations = mock(FileStoreOperations.class);
+        asyncOperations = new S3AsyncCloudStoreOperations(mockOperations, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        asyncOperations.close();
+    }
+
+    @Test
+    public void testLoadAllAsync() throws Exception {
+        List<FileObject> files = List.of(FileObject.builder().setFileName("a.txt").build());
+        when(mockOperations.loadAll()).thenReturn(files);
+
+        assertEquals(files, asyncOperations.loadAllAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureCompletesExceptionally() throws Exception {
+        FileObject fileObject = FileObject.builder().setFileName("a.txt").build();
+        when(mockOperations.downloadFile(fileObject)).thenThrow(new FileStoreException("download failed"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> asyncOperations.downloadFileAsync(fileObject).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(FileStoreException.class, ex.getCause());
+    }
+
+    @Test
+    public void testOperationAfterCloseCompletesExceptionally() {
+        asyncOperations.close();
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> asyncOperations.loadAllAsync().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(FileStoreException.class, ex.getCause());
+    }
+
+    @Test
+    public void testInFlightOperationsAreBounded() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(mockOperations).delete(any());
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[6];
+        for (int index = 0; index < futures.length; index++) {
+            futures[index] = asyncOperations.deleteAsync(FileObject.builder().setFileName("f" + index).build());
+        }
+        Thread.sleep(200);
+        release.countDown();
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+        assertTrue(maxInFlight.get() <= 2);
+    }
+}
@@ -0,0 +1,86 @@
+package storage;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.s3.AmazonS3;
+
+public class S3ClientFactoryTest {
+    private S3ClientFactory clientFactory;
+
+    @BeforeEach
+    public void setUp() {
+        clientFactory = new S3ClientFactory(new S3ClientConfig()) {
+            @Override
+            protected AmazonS3 createClient(AwsS3Credential s3Credential) {
+                return mock(AmazonS3.class);
+            }
+        };
+    }
+
+    @Test
+    public void testAcquireReusesClientPerCredential() {
+        AwsS3Credential credential = new AwsS3Credential("access", "secret", "eu-north-1", "bucket");
+        AwsS3Credential otherBucket = new AwsS3Credential("access", "secret", "eu-north-1", "other-bucket");
+        AwsS3Credential otherRegion = new AwsS3Credential("access", "secret", "us-east-1", "bucket");
+
+        AmazonS3 client = clientFactory.acquire(credential);
+
+        assertSame(client, clientFactory.acquire(otherBucket));
+        assertNotSame(client, clientFactory.acquire(otherRegion));
+        assertEquals(2, clientFactory.getOpenClientCount());
+    }
+
+    @Test
+    public void testReleaseShutsDownUnusedClient() {
+        AwsS3Credential credential = new AwsS3Credential("access", "secret", "eu-north-1", "bucket");
+        AmazonS3 client = clientFactory.acquire(credential);
+        clientFactory.acquire(credential);
+
+        clientFactory.release(client);
+        verify(client, never()).shutdown();
+
+        clientFactory.release(client);
+        verify(client).shutdown();
+        assertEquals(0, clientFactory.getOpenClientCount());
+    }
+
+    @Test
+    public void testReconnectReleasesPreviousClient() {
+        S3CloudStoreOperations operations = new S3CloudStoreOperations(
+                new AwsS3Credential("access", "secret", "eu-north-1", "bucket"), clientFactory);
+        AmazonS3 previousClient = operations.getAwsS3Client();
+
+        operations.connectAwsS3Client(new AwsS3Credential("other", "secret", "eu-north-1", "bucket"));
+
+        verify(previousClient).shutdown();
+        assertEquals(1, clientFactory.getOpenClientCount());
+    }
+
+    @Test
+    public void testClientConfiguration() {
+        ClientConfiguration configuration = S3ClientConfig.builder()
+                .setMaxConnections(256)
+                .setSocketTimeout(Duration.ofSeconds(30))
+                .setConnectionTtl(Duration.ofMinutes(1))
+                .build()
+                .toClientConfiguration();
+
+        assertEquals(256, configuration.getMaxConnections());
+        assertEquals(30_000, configuration.getSocketTimeout());
+        assertEquals(60_000, configuration.getConnectionTTL());
+        assertEquals(true, configuration.useTcpKeepAlive());
+        assertEquals(0, configuration.getMaxErrorRetry());
+        assertEquals(PredefinedRetryPolicies.NO_RETRY_POLICY, configuration.getRetryPolicy());
+    }
+}
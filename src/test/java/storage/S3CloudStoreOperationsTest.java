@@ -1,31 +1,87 @@
 
 package storage;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import storage.db.FileMetadataRepository;
+import storage.db.SQLiteDownloadCacheRepository;
+import storage.db.SQLitePartManifestRepository;
+import storage.db.SQLiteUploadSessionRepository;
+import util.FileUtil;
 
 public class S3CloudStoreOperationsTest {
     private AmazonS3 mockS3Client;
@@ -55,6 +111,87 @@ public class S3CloudStoreOperationsTest {
         assertEquals(request.getBucketName(),mockCredential.getBucketName());
     }
 
+    @Test
+    public void testSaveSkipsUnchangedFile() throws Exception {
+        File file = File.createTempFile("unchanged", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "same content");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", new ChecksumEngine().compute(file, new TransferConfig(), false).getETag());
+        metadata.setContentLength(file.length());
+        when(mockS3Client.getObjectMetadata(headOf(file.getName()))).thenReturn(metadata);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setSkipUnchangedUploads(true).build());
+
+        FileObject fileObject = s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        assertEquals(file.getName(), fileObject.getFileName());
+        assertEquals(file.length(), fileObject.getFileSize());
+    }
+
+    @Test
+    public void testSaveSkipsFileTrackedInMetadataWithoutHead() throws Exception {
+        File file = File.createTempFile("tracked", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "tracked content");
+        FileMetadataRepository repository = mock(FileMetadataRepository.class);
+        when(repository.findByName(file.getName())).thenReturn(FileObject.builder()
+                .setFileName(file.getName())
+                .setBucketName(mockCredential.getBucketName())
+                .setCheckSum("\"" + new ChecksumEngine().compute(file, new TransferConfig(), false).getETag() + "\"")
+                .build());
+        s3CloudStoreOperations.setFileMetadataRepository(repository);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setSkipUnchangedUploads(true).build());
+
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testSaveUploadsChangedFile() throws Exception {
+        File file = File.createTempFile("changed", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "new content");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "0123456789abcdef0123456789abcdef");
+        when(mockS3Client.getObjectMetadata(headOf(file.getName()))).thenReturn(metadata);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setSkipUnchangedUploads(true).build());
+
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testSaveUploadsWhenHeadIsDenied() throws Exception {
+        File file = File.createTempFile("denied", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "put only content");
+        AmazonS3Exception denied = new AmazonS3Exception("Access Denied");
+        denied.setStatusCode(403);
+        denied.setErrorCode("AccessDenied");
+        when(mockS3Client.getObjectMetadata(headOf(file.getName()))).thenThrow(denied);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setSkipUnchangedUploads(true).build());
+
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testSaveDoesNotHeadByDefault() throws Exception {
+        File file = File.createTempFile("default", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "default content");
+
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        verify(mockS3Client).putObject(any(PutObjectRequest.class));
+    }
+
     @Test
     public void testDeleteFile() throws FileStoreException {
         FileObject fileObject = FileObject.builder()
@@ -62,7 +199,35 @@ public class S3CloudStoreOperationsTest {
                                            .build();
         s3CloudStoreOperations.delete(fileObject);
 
-        verify(mockS3Client).deleteObject(mockCredential.getBucketName(), "delete-me.txt");
+        verify(mockS3Client).deleteObject(argThat((DeleteObjectRequest request) ->
+                mockCredential.getBucketName().equals(request.getBucketName()) && "delete-me.txt".equals(request.getKey())));
+    }
+
+    @Test
+    public void testDeleteAllChunksKeysAndReportsErrors() throws FileStoreException {
+        List<FileObject> fileObjects = new ArrayList<>();
+        for (int index = 0; index < 2500; index++) {
+            fileObjects.add(FileObject.builder().setFileName("key-" + index).build());
+        }
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey("key-42");
+        error.setMessage("Access Denied");
+        when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            boolean containsFailingKey = request.getKeys().stream().anyMatch(key -> key.getKey().equals("key-42"));
+            if (containsFailingKey) {
+                throw new MultiObjectDeleteException(List.of(error), List.of());
+            }
+            return new DeleteObjectsResult(List.of());
+        });
+
+        BatchResult batchResult = s3CloudStoreOperations.deleteAll(fileObjects);
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client, times(3)).deleteObjects(captor.capture());
+        assertTrue(captor.getAllValues().stream().allMatch(request -> request.getKeys().size() <= 1000));
+        assertEquals(2499, batchResult.getCompleted().size());
+        assertEquals(Set.of("key-42"), batchResult.getFailures().keySet());
     }
 
     @Test
@@ -82,6 +247,65 @@ public class S3CloudStoreOperationsTest {
         verify(mockS3Client, times(2)).putObject(any(PutObjectRequest.class));
     }
 
+    @Test
+    public void testSaveAllReportsPerFileResults() throws FileStoreException {
+        File goodFile = mock(File.class);
+        when(goodFile.getName()).thenReturn("good.txt");
+        when(goodFile.isFile()).thenReturn(true);
+
+        File badFile = mock(File.class);
+        when(badFile.getName()).thenReturn("bad.txt");
+        when(badFile.isFile()).thenReturn(true);
+
+        when(mockS3Client.putObject(argThat((PutObjectRequest request) -> "bad.txt".equals(request.getKey()))))
+                .thenThrow(new AmazonServiceException("access denied"));
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setBatchConcurrency(2).build());
+
+        BatchResult batchResult = s3CloudStoreOperations.saveAll(List.of(goodFile, badFile));
+
+        assertEquals(1, batchResult.getCompleted().size());
+        assertEquals("good.txt", batchResult.getCompleted().get(0).getFileName());
+        assertTrue(batchResult.getFailures().containsKey("bad.txt"));
+    }
+
+    @Test
+    public void testSaveStreamUploadsPartsWithoutKnownLength() throws Exception {
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .setUploadConcurrency(2)
+                .build());
+        mockMultipartUpload("etag-3");
+        List<Long> partSizes = Collections.synchronizedList(new ArrayList<>());
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            partSizes.add(request.getPartSize());
+            return uploadPartResult(request);
+        });
+        long streamSize = 2 * TransferConfig.MIN_PART_SIZE + 1024;
+
+        FileObject fileObject = s3CloudStoreOperations.save("exports/dump.sql",
+                new BufferedInputStream(new ByteArrayInputStream(new byte[(int) streamSize])));
+
+        assertEquals(List.of(TransferConfig.MIN_PART_SIZE, TransferConfig.MIN_PART_SIZE, 1024L),
+                partSizes.stream().sorted(Comparator.reverseOrder()).toList());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(List.of(1, 2, 3), completeCaptor.getValue().getPartETags().stream().map(PartETag::getPartNumber).toList());
+        assertEquals(streamSize, fileObject.getFileSize());
+        assertEquals("exports/dump.sql", fileObject.getFileName());
+    }
+
+    @Test
+    public void testSaveShortStreamUsesSinglePut() throws Exception {
+        FileObject fileObject = s3CloudStoreOperations.save("notes.txt", new ByteArrayInputStream("hello".getBytes()));
+
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client).putObject(captor.capture());
+        assertEquals(5, captor.getValue().getMetadata().getContentLength());
+        verify(mockS3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        assertEquals(5, fileObject.getFileSize());
+    }
+
     @Test
     public void testLoadAll() throws FileStoreException {
         ListObjectsV2Result result = mock(ListObjectsV2Result.class);
@@ -92,15 +316,66 @@ public class S3CloudStoreOperationsTest {
         summaries.add(summary);
 
         when(result.getObjectSummaries()).thenReturn(summaries);
-        when(mockS3Client.listObjectsV2(mockCredential.getBucketName())).thenReturn(result);
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(result);
 
         List<FileObject> fileObjects = s3CloudStoreOperations.loadAll();
 
-        verify(mockS3Client).listObjectsV2(mockCredential.getBucketName());
+        ArgumentCaptor<ListObjectsV2Request> captor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(mockS3Client).listObjectsV2(captor.capture());
+        assertEquals(mockCredential.getBucketName(), captor.getValue().getBucketName());
 
         assertTrue(!fileObjects.isEmpty());
     }
 
+    @Test
+    public void testListFolderReturnsSubFoldersAndCachesListing() throws Exception {
+        ListObjectsV2Result page = listingPage(null, "photos/", "photos/a.jpg");
+        page.getCommonPrefixes().add("photos/2024/");
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page);
+
+        List<FileObject> fileObjects = s3CloudStoreOperations.listFolder("photos/");
+        s3CloudStoreOperations.listFolder("photos/");
+
+        ArgumentCaptor<ListObjectsV2Request> captor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(mockS3Client, times(1)).listObjectsV2(captor.capture());
+        assertEquals("/", captor.getValue().getDelimiter());
+        assertEquals("photos/", captor.getValue().getPrefix());
+        assertEquals(List.of("photos/2024/", "photos/a.jpg"), fileObjects.stream().map(FileObject::getFileName).toList());
+        assertEquals(FileUtil.FOLDER_OBJECT_TYPE, fileObjects.get(0).getFileType());
+
+        // a write below the folder invalidates its cached listing
+        s3CloudStoreOperations.delete(FileObject.builder().setFileName("photos/a.jpg").build());
+        s3CloudStoreOperations.listFolder("photos/");
+        verify(mockS3Client, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void testLoadAllFollowsContinuationToken() throws FileStoreException {
+        List<ListObjectsV2Result> pages = List.of(listingPage("token-2", "a.txt", "b.txt"), listingPage(null, "c.txt"));
+        List<String> requestedTokens = new ArrayList<>();
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            requestedTokens.add(((ListObjectsV2Request) invocation.getArgument(0)).getContinuationToken());
+            return pages.get(requestedTokens.size() - 1);
+        });
+
+        List<FileObject> fileObjects = s3CloudStoreOperations.loadAll();
+
+        assertEquals(List.of("a.txt", "b.txt", "c.txt"),
+                fileObjects.stream().map(FileObject::getFileName).toList());
+        assertEquals(Arrays.asList(null, "token-2"), requestedTokens);
+    }
+
+    @Test
+    public void testStreamAllFetchesPagesLazily() throws FileStoreException {
+        mockListingPages(listingPage("token-2", "a.txt", "b.txt"), listingPage(null, "c.txt"));
+
+        try (Stream<FileObject> stream = s3CloudStoreOperations.streamAll(false)) {
+            assertEquals("a.txt", stream.findFirst().get().getFileName());
+        }
+
+        verify(mockS3Client, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
      @Test
     public void testDownloadFileSuccess() throws Exception {
         String dummyContent = "File content from mock S3!";
@@ -127,6 +402,210 @@ public class S3CloudStoreOperationsTest {
         assertEquals(mockCredential.getBucketName(), requestCaptor.getValue().getBucketName());
     }
 
+    @Test
+    public void testCompressedUploadRecordsCodecAndRoundTrips() throws Exception {
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setCompressionCodec(CompressionCodec.GZIP)
+                .setCompressionMinSize(0)
+                .build());
+        File file = File.createTempFile("compress-test", ".csv");
+        file.deleteOnExit();
+        String content = "id,name,value\n".repeat(2000);
+        Files.writeString(file.toPath(), content);
+        AtomicReference<byte[]> stored = new AtomicReference<>();
+        AtomicReference<ObjectMetadata> storedMetadata = new AtomicReference<>();
+        when(mockS3Client.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            stored.set(request.getInputStream().readAllBytes());
+            storedMetadata.set(request.getMetadata());
+            return new PutObjectResult();
+        });
+
+        FileObject fileObject = s3CloudStoreOperations.save(file);
+
+        assertEquals("gzip", fileObject.getCodec());
+        assertEquals("gzip", storedMetadata.get().getUserMetaDataOf(CompressionCodec.METADATA_KEY));
+        assertTrue(stored.get().length < content.length() / 10);
+
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(stored.get()));
+        s3Object.setObjectMetadata(storedMetadata.get());
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName(file.getName()).build());
+        assertEquals(content, Files.readString(downloadedFile.toPath()));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testUnchangedCachedDownloadCostsOneConditionalGet(@TempDir Path cacheDir)
+            throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        s3CloudStoreOperations.setDownloadCache(new DownloadCache(
+                new SQLiteDownloadCacheRepository(connection), cacheDir, 1024 * 1024));
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag-1");
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream("reference content".getBytes()));
+        s3Object.setObjectMetadata(metadata);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                ((GetObjectRequest) invocation.getArgument(0)).getNonmatchingETagConstraints().isEmpty() ? s3Object : null);
+
+        File first = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("cached.txt").build());
+        first.delete();
+        File second = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("cached.txt").build());
+
+        assertEquals("reference content", Files.readString(second.toPath()));
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(mockS3Client, times(2)).getObject(captor.capture());
+        assertEquals(List.of("etag-1"), captor.getAllValues().get(1).getNonmatchingETagConstraints());
+        second.delete();
+        connection.close();
+    }
+
+    @Test
+    public void testEditedDownloadDoesNotChangeCachedCopy(@TempDir Path cacheDir) throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        s3CloudStoreOperations.setDownloadCache(new DownloadCache(
+                new SQLiteDownloadCacheRepository(connection), cacheDir, 1024 * 1024));
+        byte[] content = "reference content".getBytes();
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            return request.getNonmatchingETagConstraints().contains("etag-1") ? null
+                    : rangeOf(content, "etag-1", request);
+        });
+        File first = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("edited.txt").build());
+        Files.write(first.toPath(), "tampered content!".getBytes());
+
+        File second = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("edited.txt").build());
+
+        assertEquals("reference content", Files.readString(second.toPath()));
+        second.delete();
+        connection.close();
+    }
+
+    @Test
+    public void testChangedCachedDownloadContinuesRanged(@TempDir Path cacheDir) throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        s3CloudStoreOperations.setDownloadCache(new DownloadCache(
+                new SQLiteDownloadCacheRepository(connection), cacheDir, 1024 * 1024));
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setRangedDownloadThreshold(8)
+                .setDownloadRangeSize(10)
+                .setDownloadConcurrency(3)
+                .build());
+        byte[][] content = {"first version".getBytes()};
+        String[] eTag = {"etag-1"};
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            return request.getNonmatchingETagConstraints().contains(eTag[0]) ? null
+                    : rangeOf(content[0], eTag[0], request);
+        });
+        File first = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("changed.bin").build());
+        first.delete();
+        content[0] = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes();
+        eTag[0] = "etag-2";
+        clearInvocations(mockS3Client);
+
+        File second = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("changed.bin").build());
+
+        assertEquals("0123456789abcdefghijklmnopqrstuvwxyz", Files.readString(second.toPath()));
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(mockS3Client, times(4)).getObject(captor.capture());
+        GetObjectRequest conditional = captor.getAllValues().get(0);
+        assertEquals(List.of("etag-1"), conditional.getNonmatchingETagConstraints());
+        assertArrayEquals(new long[] {0, 9}, conditional.getRange());
+        for (GetObjectRequest range : captor.getAllValues().subList(1, 4)) {
+            assertEquals(List.of("etag-2"), range.getMatchingETagConstraints());
+        }
+        second.delete();
+        connection.close();
+    }
+
+    @Test
+    public void testEncryptedUploadRoundTrips() throws Exception {
+        s3CloudStoreOperations.setEncryptionKey(new SecretKeySpec(new byte[16], "AES"));
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setClientSideEncryption(true)
+                .setEncryptionChunkSize(8 * 1024)
+                .build());
+        File file = File.createTempFile("secret", ".txt");
+        file.deleteOnExit();
+        String content = "account,balance\n".repeat(5000);
+        Files.writeString(file.toPath(), content);
+        AtomicReference<byte[]> stored = new AtomicReference<>();
+        AtomicReference<ObjectMetadata> storedMetadata = new AtomicReference<>();
+        when(mockS3Client.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            stored.set(request.getInputStream().readAllBytes());
+            storedMetadata.set(request.getMetadata());
+            return new PutObjectResult();
+        });
+
+        s3CloudStoreOperations.save(file);
+
+        assertEquals(ChunkedAesGcm.SCHEME, storedMetadata.get().getUserMetaDataOf(ChunkedAesGcm.METADATA_KEY));
+        assertTrue(!new String(stored.get()).contains("account,balance"));
+
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(stored.get()));
+        s3Object.setObjectMetadata(storedMetadata.get());
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenReturn(s3Object);
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName(file.getName()).build());
+        assertEquals(content, Files.readString(downloadedFile.toPath()));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testEncryptedUploadRecordsKeyedSourceMacOnly() throws Exception {
+        s3CloudStoreOperations.setEncryptionKey(new SecretKeySpec(new byte[16], "AES"));
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setClientSideEncryption(true)
+                .setSkipUnchangedUploads(true)
+                .build());
+        File file = File.createTempFile("secret", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "account,balance\n".repeat(100));
+        AtomicReference<ObjectMetadata> storedMetadata = new AtomicReference<>();
+        when(mockS3Client.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            request.getInputStream().readAllBytes();
+            storedMetadata.set(request.getMetadata());
+            return new PutObjectResult();
+        });
+
+        s3CloudStoreOperations.save(file);
+
+        String plaintextETag = new ChecksumEngine().compute(file, new TransferConfig(), false).getETag();
+        ObjectMetadata metadata = storedMetadata.get();
+        assertNull(metadata.getUserMetaDataOf(CompressionCodec.SOURCE_ETAG_METADATA_KEY));
+        assertFalse(metadata.getUserMetadata().containsValue(plaintextETag));
+        assertNotNull(metadata.getUserMetaDataOf(ChunkedAesGcm.SOURCE_MAC_METADATA_KEY));
+
+        when(mockS3Client.getObjectMetadata(headOf(file.getName()))).thenReturn(metadata);
+        org.mockito.Mockito.clearInvocations(mockS3Client);
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testAlreadyCompressedFileIsNotCompressed() throws Exception {
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setCompressionCodec(CompressionCodec.GZIP)
+                .setCompressionMinSize(0)
+                .build());
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[] {0x50, 0x4b, 0x03, 0x04, 1, 2, 3, 4});
+
+        FileObject fileObject = s3CloudStoreOperations.save(file);
+
+        assertEquals(null, fileObject.getCodec());
+        verify(mockS3Client).putObject(argThat((PutObjectRequest request) -> file.equals(request.getFile())));
+    }
+
     @Test
     public void testDownloadThrowsFileStoreException() {
         FileObject testFileObject = FileObject.builder()
@@ -140,4 +619,660 @@ public class S3CloudStoreOperationsTest {
         });
 
     }
+
+    @Test
+    public void testSaveLargeFileUsesMultipartUpload() throws Exception {
+        File file = createLargeTempFile(12L * 1024 * 1024);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .setMaxRequestRetries(1)
+                .build());
+        mockMultipartUpload("etag-3");
+        // First attempt of a part fails, the retry succeeds
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class)))
+                .thenThrow(new AmazonClientException("connection reset"))
+                .thenAnswer(invocation -> uploadPartResult(invocation.getArgument(0)));
+
+        FileObject fileObject = s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        verify(mockS3Client, times(4)).uploadPart(any(UploadPartRequest.class));
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(captor.capture());
+        assertEquals(3, captor.getValue().getPartETags().size());
+        assertEquals("etag-3", fileObject.getChecksum());
+        assertEquals(file.length(), fileObject.getFileSize());
+    }
+
+    @Test
+    public void testSaveLargeFileAbortsOnPartFailure() throws Exception {
+        File file = createLargeTempFile(6L * 1024 * 1024);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setMaxRequestRetries(0)
+                .build());
+        mockMultipartUpload("unused");
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class)))
+                .thenThrow(new AmazonClientException("connection reset"));
+
+        assertThrows(FileStoreException.class, () -> s3CloudStoreOperations.save(file));
+
+        verify(mockS3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testInterruptedMultipartUploadResumesMissingParts() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        s3CloudStoreOperations.setUploadSessionRepository(new SQLiteUploadSessionRepository(connection));
+        File file = createLargeTempFile(12L * 1024 * 1024);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .setMaxRequestRetries(0)
+                .build());
+        mockMultipartUpload("etag-3");
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.getPartNumber() == 2) {
+                throw new AmazonClientException("connection reset");
+            }
+            return uploadPartResult(request);
+        });
+
+        assertThrows(FileStoreException.class, () -> s3CloudStoreOperations.save(file));
+        verify(mockS3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+
+        // Restart: S3 already holds parts 1 and 3
+        org.mockito.Mockito.clearInvocations(mockS3Client);
+        PartListing partListing = new PartListing();
+        for (int partNumber : new int[] {1, 3}) {
+            PartSummary partSummary = new PartSummary();
+            partSummary.setPartNumber(partNumber);
+            partSummary.setETag("part-" + partNumber);
+            partListing.getParts().add(partSummary);
+        }
+        when(mockS3Client.listParts(any(ListPartsRequest.class))).thenReturn(partListing);
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class)))
+                .thenAnswer(invocation -> uploadPartResult(invocation.getArgument(0)));
+
+        FileObject fileObject = s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(mockS3Client, times(1)).uploadPart(partCaptor.capture());
+        assertEquals(2, partCaptor.getValue().getPartNumber());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(List.of(1, 2, 3), completeCaptor.getValue().getPartETags().stream().map(PartETag::getPartNumber).toList());
+        assertEquals("etag-3", fileObject.getChecksum());
+    }
+
+    @Test
+    public void testDownloadLargeFileUsesConcurrentRanges() throws Exception {
+        byte[] content = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes();
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setRangedDownloadThreshold(8)
+                .setDownloadRangeSize(10)
+                .setDownloadConcurrency(3)
+                .build());
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(content, "etag-1", invocation.getArgument(0)));
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("ranged.bin").build());
+
+        assertEquals(new String(content), Files.readString(downloadedFile.toPath()));
+        verify(mockS3Client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(mockS3Client, times(4)).getObject(captor.capture());
+        assertTrue(captor.getAllValues().stream().skip(1)
+                .allMatch(request -> request.getMatchingETagConstraints().contains("etag-1")));
+
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testSmallDownloadCostsOneRangedGet() throws Exception {
+        byte[] content = "small object".getBytes();
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(content, "etag-1", invocation.getArgument(0)));
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("small.bin").build());
+
+        assertEquals("small object", Files.readString(downloadedFile.toPath()));
+        verify(mockS3Client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        verify(mockS3Client, times(1)).getObject(any(GetObjectRequest.class));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testFailedRangedDownloadResumesMissingRangesOnly() throws Exception {
+        byte[] content = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes();
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setRangedDownloadThreshold(8)
+                .setDownloadRangeSize(10)
+                .setDownloadConcurrency(3)
+                .build());
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "resume-ranged.bin");
+        Path partFile = S3ObjectDownloader.partFilePath(target, "etag-1");
+        AmazonS3Exception denied = new AmazonS3Exception("Access Denied");
+        denied.setStatusCode(403);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (request.getRange()[0] == 20) {
+                throw denied;
+            }
+            return rangeOf(content, "etag-1", request);
+        });
+
+        assertThrows(FileStoreException.class, () ->
+                s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("resume-ranged.bin").build()));
+
+        assertTrue(Files.exists(partFile));
+        List<String> recorded = Files.readAllLines(S3ObjectDownloader.rangesFilePath(partFile));
+        assertTrue(recorded.contains("0-9"));
+        assertFalse(recorded.contains("20-29"));
+        org.mockito.Mockito.reset(mockS3Client);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(content, "etag-1", invocation.getArgument(0)));
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("resume-ranged.bin").build());
+
+        assertEquals(new String(content), Files.readString(downloadedFile.toPath()));
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(mockS3Client, times(4 - recorded.size())).getObject(captor.capture());
+        assertTrue(captor.getAllValues().stream().anyMatch(request -> request.getRange()[0] == 20));
+        assertTrue(captor.getAllValues().stream().allMatch(request -> request.getRange()[0] != 0
+                && request.getMatchingETagConstraints().equals(List.of("etag-1"))));
+        assertFalse(Files.exists(partFile));
+        assertFalse(Files.exists(S3ObjectDownloader.rangesFilePath(partFile)));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testDownloadDeletesPartFilesOfOtherVersions() throws Exception {
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "versions.txt");
+        FileUtil.createFileDirectory(FileUtil.LOCAL_STORAGE_DIR);
+        Path oldPart = S3ObjectDownloader.partFilePath(target, "etag-old");
+        Path olderPart = S3ObjectDownloader.partFilePath(target, "etag-older");
+        Files.writeString(oldPart, "stale");
+        Files.writeString(olderPart, "staler");
+        Files.writeString(S3ObjectDownloader.rangesFilePath(olderPart), "0-5\n");
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf("current".getBytes(), "etag-1", invocation.getArgument(0)));
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("versions.txt").build());
+
+        assertEquals("current", Files.readString(downloadedFile.toPath()));
+        assertFalse(Files.exists(oldPart));
+        assertFalse(Files.exists(olderPart));
+        assertFalse(Files.exists(S3ObjectDownloader.rangesFilePath(olderPart)));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testCompressedDownloadDecodesWhileStreaming() throws Exception {
+        String content = "id,name,value\n".repeat(2000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = CompressionCodec.GZIP.compress(compressed)) {
+            outputStream.write(content.getBytes());
+        }
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setDownloadRangeSize(16).build());
+        Map<String, String> userMetadata = Map.of(CompressionCodec.METADATA_KEY, "gzip");
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(compressed.toByteArray(), "etag-1", userMetadata, invocation.getArgument(0)));
+
+        FileObject fileObject = FileObject.builder().setFileName("streamed.csv").build();
+        File downloadedFile = s3CloudStoreOperations.downloadFile(fileObject);
+
+        assertEquals(content, Files.readString(downloadedFile.toPath()));
+        assertEquals("gzip", fileObject.getCodec());
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(mockS3Client, times(2)).getObject(captor.capture());
+        assertEquals(16L, captor.getAllValues().get(1).getRange()[0]);
+        assertEquals(List.of("etag-1"), captor.getAllValues().get(1).getMatchingETagConstraints());
+        assertFalse(Files.exists(S3ObjectDownloader.partFilePath(downloadedFile.toPath(), "etag-1")));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testCorruptCompressedDownloadLeavesNoFile() throws Exception {
+        Map<String, String> userMetadata = Map.of(CompressionCodec.METADATA_KEY, "gzip");
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf("not gzip content".getBytes(), "etag-1", userMetadata, invocation.getArgument(0)));
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "corrupt.csv");
+
+        assertThrows(FileStoreException.class, () ->
+                s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("corrupt.csv").build()));
+
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(S3ObjectDownloader.decodedFilePath(target, "etag-1")));
+        assertFalse(Files.exists(S3ObjectDownloader.partFilePath(target, "etag-1")));
+    }
+
+    @Test
+    public void testEncryptedDownloadDecryptsWhileStreaming() throws Exception {
+        SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+        String content = "account,balance\n".repeat(1000);
+        byte[] encrypted = new ChunkedAesGcm(key, 1024).encrypt(new ByteArrayInputStream(content.getBytes())).readAllBytes();
+        s3CloudStoreOperations.setEncryptionKey(key);
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder().setDownloadRangeSize(100).build());
+        Map<String, String> userMetadata = Map.of(ChunkedAesGcm.METADATA_KEY, ChunkedAesGcm.SCHEME);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(encrypted, "etag-1", userMetadata, invocation.getArgument(0)));
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("ledger.csv").build());
+
+        assertEquals(content, Files.readString(downloadedFile.toPath()));
+        verify(mockS3Client, times(2)).getObject(any(GetObjectRequest.class));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testTamperedEncryptedDownloadLeavesNoFile() throws Exception {
+        SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+        byte[] encrypted = new ChunkedAesGcm(key, 1024)
+                .encrypt(new ByteArrayInputStream("account,balance\n".repeat(1000).getBytes())).readAllBytes();
+        encrypted[encrypted.length / 2] ^= 1;
+        s3CloudStoreOperations.setEncryptionKey(key);
+        Map<String, String> userMetadata = Map.of(ChunkedAesGcm.METADATA_KEY, ChunkedAesGcm.SCHEME);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                rangeOf(encrypted, "etag-1", userMetadata, invocation.getArgument(0)));
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "tampered.csv");
+
+        assertThrows(FileStoreException.class, () ->
+                s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("tampered.csv").build()));
+
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(S3ObjectDownloader.decodedFilePath(target, "etag-1")));
+        assertFalse(Files.exists(S3ObjectDownloader.partFilePath(target, "etag-1")));
+    }
+
+    /**
+     * Answer a GET for the content as S3 does, with a Content-Range header
+     * for range requests.
+     */
+    private static S3Object rangeOf(byte[] content, String eTag, GetObjectRequest request) {
+        return rangeOf(content, eTag, Map.of(), request);
+    }
+
+    private static S3Object rangeOf(byte[] content, String eTag, Map<String, String> userMetadata,
+                                    GetObjectRequest request) {
+        if (!request.getMatchingETagConstraints().isEmpty() && !request.getMatchingETagConstraints().contains(eTag)) {
+            return null; // 412 Precondition Failed
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", eTag);
+        int start = 0;
+        int end = content.length - 1;
+        if (request.getRange() != null) {
+            start = (int) request.getRange()[0];
+            end = request.getRange().length > 1 ? (int) Math.min(request.getRange()[1], end) : end;
+            metadata.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+        metadata.setContentLength(end - start + 1);
+        metadata.setUserMetadata(userMetadata);
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectMetadata(metadata);
+        s3Object.setObjectContent(new ByteArrayInputStream(content, start, end - start + 1));
+        return s3Object;
+    }
+
+    @Test
+    public void testDownloadResumesFromPartFile() throws Exception {
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "resume.txt");
+        Path partFile = S3ObjectDownloader.partFilePath(target, "etag-1");
+        FileUtil.createFileDirectory(FileUtil.LOCAL_STORAGE_DIR);
+        Files.writeString(partFile, "Hello ");
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            assertEquals(6L, request.getRange()[0]);
+            assertEquals(List.of("etag-1"), request.getMatchingETagConstraints());
+            S3Object s3Object = new S3Object();
+            s3Object.setObjectContent(new ByteArrayInputStream("world".getBytes()));
+            return s3Object;
+        });
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("resume.txt").build());
+
+        assertEquals("Hello world", Files.readString(downloadedFile.toPath()));
+        assertFalse(Files.exists(partFile));
+        downloadedFile.delete();
+    }
+
+    @Test
+    public void testDownloadRestartsWhenETagChanged() throws Exception {
+        Path target = Paths.get(FileUtil.LOCAL_STORAGE_DIR, "changed.txt");
+        Path partFile = S3ObjectDownloader.partFilePath(target, "etag-old");
+        FileUtil.createFileDirectory(FileUtil.LOCAL_STORAGE_DIR);
+        Files.writeString(partFile, "stale");
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (!request.getMatchingETagConstraints().isEmpty()) {
+                return null; // 412 Precondition Failed
+            }
+            S3Object s3Object = new S3Object();
+            s3Object.setObjectContent(new ByteArrayInputStream("fresh content".getBytes()));
+            return s3Object;
+        });
+
+        File downloadedFile = s3CloudStoreOperations.downloadFile(FileObject.builder().setFileName("changed.txt").build());
+
+        assertEquals("fresh content", Files.readString(downloadedFile.toPath()));
+        assertFalse(Files.exists(partFile));
+        verify(mockS3Client, times(2)).getObject(any(GetObjectRequest.class));
+        downloadedFile.delete();
+    }
+
+    private void mockListingPages(ListObjectsV2Result firstPage, ListObjectsV2Result... nextPages) {
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstPage, nextPages);
+    }
+
+    private ListObjectsV2Result listingPage(String nextToken, String... keys) {
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        for (String key : keys) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(key);
+            summary.setBucketName(mockCredential.getBucketName());
+            result.getObjectSummaries().add(summary);
+        }
+        result.setTruncated(nextToken != null);
+        result.setNextContinuationToken(nextToken);
+        return result;
+    }
+
+    private void mockMultipartUpload(String eTag) {
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId("upload-1");
+        when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initResult);
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setETag(eTag);
+        when(mockS3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(completeResult);
+    }
+
+    private static UploadPartResult uploadPartResult(UploadPartRequest request) {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag("part-" + request.getPartNumber());
+        return result;
+    }
+
+    /**
+     * Upload a 12 MB file in three parts with part manifests recorded, then
+     * reset the client mock for a second upload of the same key.
+     */
+    private File uploadWithPartManifest() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        s3CloudStoreOperations.setPartManifestRepository(new SQLitePartManifestRepository(connection));
+        s3CloudStoreOperations.setTransferConfig(TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .setSkipUnchangedUploads(false)
+                .build());
+        File file = createLargeTempFile(12L * 1024 * 1024);
+        mockMultipartUpload("etag-3");
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag(new ChecksumEngine().compute(request.getFile(), TransferConfig.MIN_PART_SIZE, false)
+                    .getPartMd5s().get(request.getPartNumber() - 1));
+            return result;
+        });
+        s3CloudStoreOperations.save(file);
+        org.mockito.Mockito.clearInvocations(mockS3Client);
+        return file;
+    }
+
+    private static void writeByte(File file, long offset) throws Exception {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.write(1);
+        }
+    }
+
+    private static File createLargeTempFile(long size) throws Exception {
+        File file = File.createTempFile("large-upload", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(size);
+        }
+        return file;
+    }
+
+    @Test
+    public void testModifiedLargeFileCopiesUnchangedParts() throws Exception {
+        File file = uploadWithPartManifest();
+        writeByte(file, 6L * 1024 * 1024);
+        when(mockS3Client.copyPart(any(CopyPartRequest.class))).thenAnswer(invocation -> {
+            CopyPartRequest request = invocation.getArgument(0);
+            CopyPartResult result = new CopyPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("copy-" + request.getPartNumber());
+            return result;
+        });
+
+        s3CloudStoreOperations.save(file);
+
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(mockS3Client, times(1)).uploadPart(partCaptor.capture());
+        assertEquals(2, partCaptor.getValue().getPartNumber());
+        ArgumentCaptor<CopyPartRequest> copyCaptor = ArgumentCaptor.forClass(CopyPartRequest.class);
+        verify(mockS3Client, times(2)).copyPart(copyCaptor.capture());
+        CopyPartRequest lastCopy = copyCaptor.getAllValues().stream()
+                .filter(request -> request.getPartNumber() == 3).findFirst().orElseThrow();
+        assertEquals(10L * 1024 * 1024, lastCopy.getFirstByte());
+        assertEquals(file.length() - 1, lastCopy.getLastByte());
+        assertEquals(List.of("etag-3"), lastCopy.getMatchingETagConstraints());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(List.of(1, 2, 3), completeCaptor.getValue().getPartETags().stream().map(PartETag::getPartNumber).toList());
+    }
+
+    @Test
+    public void testDeltaUploadFallsBackWhenPreviousObjectChanged() throws Exception {
+        File file = uploadWithPartManifest();
+        writeByte(file, 0);
+        when(mockS3Client.copyPart(any(CopyPartRequest.class))).thenReturn(null);
+
+        s3CloudStoreOperations.save(file);
+
+        verify(mockS3Client, times(2)).copyPart(any(CopyPartRequest.class));
+        verify(mockS3Client, times(3)).uploadPart(any(UploadPartRequest.class));
+    }
+
+    @Test
+    public void testCopyUsesSingleCopyObjectRequest() throws FileStoreException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(1024);
+        when(mockS3Client.getObjectMetadata(headOf("a.txt"))).thenReturn(metadata);
+        CopyObjectResult copyResult = new CopyObjectResult();
+        copyResult.setETag("copy-etag");
+        when(mockS3Client.copyObject(any(CopyObjectRequest.class))).thenReturn(copyResult);
+
+        FileObject copy = s3CloudStoreOperations.copy("a.txt", "b.txt");
+
+        ArgumentCaptor<CopyObjectRequest> captor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(mockS3Client).copyObject(captor.capture());
+        assertEquals("a.txt", captor.getValue().getSourceKey());
+        assertEquals("b.txt", captor.getValue().getDestinationKey());
+        assertEquals("b.txt", copy.getFileName());
+        assertEquals("copy-etag", copy.getChecksum());
+        assertEquals(1024, copy.getFileSize());
+        verify(mockS3Client, never()).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    public void testCopyRejectsExistingTarget() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(1024);
+        when(mockS3Client.getObjectMetadata(headOf("a.txt"))).thenReturn(metadata);
+        when(mockS3Client.getObjectMetadata(headOf("b.txt"))).thenReturn(new ObjectMetadata());
+
+        assertThrows(FileStoreException.class, () -> s3CloudStoreOperations.move("a.txt", "b.txt"));
+
+        verify(mockS3Client, never()).copyObject(any(CopyObjectRequest.class));
+        verify(mockS3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    public void testCopyOver5GbUsesMultipartCopy() throws FileStoreException {
+        long size = 6L * 1024 * 1024 * 1024;
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        metadata.setHeader("ETag", "\"source-etag\"");
+        metadata.addUserMetadata("codec", "gzip");
+        when(mockS3Client.getObjectMetadata(headOf("disk.img"))).thenReturn(metadata);
+        mockMultipartUpload("copy-etag");
+        when(mockS3Client.copyPart(any(CopyPartRequest.class))).thenAnswer(invocation -> {
+            CopyPartRequest request = invocation.getArgument(0);
+            CopyPartResult result = new CopyPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("part-" + request.getPartNumber());
+            return result;
+        });
+
+        FileObject copy = s3CloudStoreOperations.move("disk.img", "backup/disk.img");
+
+        verify(mockS3Client, never()).copyObject(any(CopyObjectRequest.class));
+        ArgumentCaptor<InitiateMultipartUploadRequest> initCaptor = ArgumentCaptor.forClass(InitiateMultipartUploadRequest.class);
+        verify(mockS3Client).initiateMultipartUpload(initCaptor.capture());
+        assertEquals("gzip", initCaptor.getValue().getObjectMetadata().getUserMetaDataOf("codec"));
+        ArgumentCaptor<CopyPartRequest> partCaptor = ArgumentCaptor.forClass(CopyPartRequest.class);
+        verify(mockS3Client, times(12)).copyPart(partCaptor.capture());
+        assertEquals(size - 1, partCaptor.getAllValues().stream().mapToLong(CopyPartRequest::getLastByte).max().getAsLong());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(12, completeCaptor.getValue().getPartETags().size());
+        verify(mockS3Client).deleteObject(argThat((DeleteObjectRequest request) -> "disk.img".equals(request.getKey())));
+        assertEquals("copy-etag", copy.getChecksum());
+    }
+
+    @Test
+    public void testRenameFolderMovesEveryKeyUnderPrefix() throws FileStoreException {
+        // the first listing checks that the target folder is empty
+        mockListingPages(listingPage(null), listingPage(null, "photos/a.jpg", "photos/2024/b.jpg"));
+        when(mockS3Client.copyObject(any(CopyObjectRequest.class))).thenAnswer(invocation -> new CopyObjectResult());
+        when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(new DeleteObjectsResult(new ArrayList<>()));
+
+        BatchResult batchResult = s3CloudStoreOperations.renameFolder("photos/", "pictures/");
+
+        ArgumentCaptor<CopyObjectRequest> captor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(mockS3Client, times(2)).copyObject(captor.capture());
+        assertTrue(captor.getAllValues().stream().anyMatch(request -> "pictures/2024/b.jpg".equals(request.getDestinationKey())));
+        verify(mockS3Client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client, times(1)).deleteObjects(deleteCaptor.capture());
+        assertEquals(2, deleteCaptor.getValue().getKeys().size());
+        assertEquals(2, batchResult.getCompleted().size());
+        assertTrue(batchResult.getCompleted().stream().allMatch(fileObject -> fileObject.getFileName().startsWith("pictures/")));
+    }
+
+    @Test
+    public void testRenameFolderRejectsNonEmptyTarget() {
+        mockListingPages(listingPage(null, "pictures/existing.jpg"));
+
+        assertThrows(FileStoreException.class, () -> s3CloudStoreOperations.renameFolder("photos/", "pictures/"));
+
+        verify(mockS3Client, never()).copyObject(any(CopyObjectRequest.class));
+    }
+
+    @Test
+    public void testRenameFolderKeepsSourceOfFailedCopy() throws FileStoreException {
+        // the first listing checks that the target folder is empty
+        mockListingPages(listingPage(null), listingPage(null, "photos/a.jpg", "photos/b.jpg"));
+        when(mockS3Client.copyObject(any(CopyObjectRequest.class))).thenAnswer(invocation -> {
+            CopyObjectRequest request = invocation.getArgument(0);
+            if (request.getSourceKey().equals("photos/b.jpg")) {
+                throw new AmazonServiceException("Access Denied");
+            }
+            return new CopyObjectResult();
+        });
+        when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(new DeleteObjectsResult(new ArrayList<>()));
+
+        BatchResult batchResult = s3CloudStoreOperations.renameFolder("photos/", "pictures/");
+
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client).deleteObjects(deleteCaptor.capture());
+        assertEquals(List.of("photos/a.jpg"), deleteCaptor.getValue().getKeys().stream()
+                .map(DeleteObjectsRequest.KeyVersion::getKey).toList());
+        assertEquals(1, batchResult.getCompleted().size());
+        assertTrue(batchResult.getFailures().containsKey("photos/b.jpg"));
+    }
+
+    @Test
+    public void testStatMapsHeadMetadata() throws FileStoreException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "\"etag-1\"");
+        metadata.setHeader("x-amz-version-id", "v2");
+        metadata.setContentLength(42);
+        metadata.setContentType("text/plain");
+        when(mockS3Client.getObjectMetadata(headOf("notes.txt"))).thenReturn(metadata);
+
+        FileObject fileObject = s3CloudStoreOperations.stat("notes.txt");
+
+        assertEquals("notes.txt", fileObject.getFileName());
+        assertEquals(mockCredential.getBucketName(), fileObject.getBucketName());
+        assertEquals(42, fileObject.getFileSize());
+        assertEquals("v2", fileObject.getVersion());
+        assertEquals("text/plain", fileObject.getContentType());
+        assertNotNull(fileObject.getChecksum());
+    }
+
+    @Test
+    public void testStatMissingObjectReturnsNull() throws FileStoreException {
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        when(mockS3Client.getObjectMetadata(headOf("missing.txt"))).thenThrow(notFound);
+
+        assertNull(s3CloudStoreOperations.stat("missing.txt"));
+    }
+
+    @Test
+    public void testStatAllSkipsMissingKeys() throws FileStoreException {
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        when(mockS3Client.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenAnswer(invocation -> {
+            GetObjectMetadataRequest request = invocation.getArgument(0);
+            if (request.getKey().startsWith("missing")) {
+                throw notFound;
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(request.getKey().length());
+            return metadata;
+        });
+
+        BatchResult batchResult = s3CloudStoreOperations.statAll(List.of("a.txt", "missing.txt", "bb.txt"));
+
+        assertEquals(List.of("a.txt", "bb.txt"),
+                batchResult.getCompleted().stream().map(FileObject::getFileName).toList());
+        assertEquals(6, batchResult.getCompleted().get(1).getFileSize());
+        assertFalse(batchResult.hasFailures());
+        verify(mockS3Client, times(3)).getObjectMetadata(any(GetObjectMetadataRequest.class));
+    }
+
+    @Test
+    public void testStatAllReportsServiceErrorsPerKey() throws FileStoreException {
+        AmazonS3Exception denied = new AmazonS3Exception("Access Denied");
+        denied.setStatusCode(403);
+        when(mockS3Client.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenAnswer(invocation -> {
+            GetObjectMetadataRequest request = invocation.getArgument(0);
+            if (request.getKey().startsWith("secret")) {
+                throw denied;
+            }
+            return new ObjectMetadata();
+        });
+
+        BatchResult batchResult = s3CloudStoreOperations.statAll(List.of("a.txt", "secret.txt"));
+
+        assertEquals(1, batchResult.getCompleted().size());
+        assertEquals("a.txt", batchResult.getCompleted().get(0).getFileName());
+        assertEquals(Set.of("secret.txt"), batchResult.getFailures().keySet());
+    }
+
+    private GetObjectMetadataRequest headOf(String key) {
+        return argThat(request -> request != null && mockCredential.getBucketName().equals(request.getBucketName())
+                && key.equals(request.getKey()));
+    }
 }
@@ -0,0 +1,161 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs S3CloudStoreOperations against LocalS3Server over real HTTP, without
+ * AWS credentials.
+ */
+public class S3LocalServerIntegrationTest {
+    private static final String BUCKET_NAME = "local-bucket";
+
+    @TempDir
+    Path tempDir;
+
+    private LocalS3Server server;
+    private S3ClientFactory clientFactory;
+    private S3CloudStoreOperations operations;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = new LocalS3Server().start();
+        clientFactory = new S3ClientFactory(new S3ClientConfig());
+        operations = new S3CloudStoreOperations(server.createBucket(BUCKET_NAME), clientFactory);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        operations.disconnect();
+        clientFactory.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testSaveStatDownloadAndDelete() throws Exception {
+        File file = write("local-roundtrip.txt", "Local S3 content".getBytes());
+
+        FileObject saved = operations.save(file);
+        FileObject stat = operations.stat("local-roundtrip.txt");
+        File downloaded = operations.downloadFile(FileObject.builder().setFileName("local-roundtrip.txt").build());
+
+        try {
+            assertEquals("Local S3 content", new String(server.getObjectContent(BUCKET_NAME, "local-roundtrip.txt")));
+            assertEquals(16, stat.getFileSize());
+            assertEquals(saved.getChecksum(), stat.getChecksum());
+            assertEquals("Local S3 content", Files.readString(downloaded.toPath()));
+            assertTrue(server.getRequestCount("PutObject") > 0);
+        } finally {
+            Files.deleteIfExists(downloaded.toPath());
+        }
+        operations.delete(FileObject.builder().setFileName("local-roundtrip.txt").build());
+        assertNull(operations.stat("local-roundtrip.txt"));
+    }
+
+    @Test
+    public void testMultipartUploadAndRangedDownload() throws Exception {
+        operations.setTransferConfig(TransferConfig.builder()
+                .setMultipartThreshold(TransferConfig.MIN_PART_SIZE)
+                .setPartSize(TransferConfig.MIN_PART_SIZE)
+                .setRangedDownloadThreshold(TransferConfig.MIN_PART_SIZE)
+                .setDownloadRangeSize(TransferConfig.MIN_PART_SIZE)
+                .build());
+        byte[] content = randomBytes(12 * 1024 * 1024 + 17);
+        File file = write("local-large.bin", content);
+
+        FileObject saved = operations.save(file);
+        File downloaded = operations.downloadFile(FileObject.builder().setFileName("local-large.bin").build());
+
+        try {
+            assertTrue(saved.getChecksum().endsWith("-3"), saved.getChecksum());
+            assertEquals(3, server.getRequestCount("UploadPart"));
+            assertEquals(0, server.getOpenUploadCount());
+            assertArrayEquals(content, server.getObjectContent(BUCKET_NAME, "local-large.bin"));
+            assertTrue(server.getRequestCount("GetObject") >= 3);
+            assertArrayEquals(content, Files.readAllBytes(downloaded.toPath()));
+        } finally {
+            Files.deleteIfExists(downloaded.toPath());
+        }
+    }
+
+    @Test
+    public void testPaginatedListingAndFolderRename() throws Exception {
+        operations.setTransferConfig(TransferConfig.builder().setListPageSize(2).build());
+        for (String key : List.of("docs/a.txt", "docs/b.txt", "docs/sub/c.txt", "top.txt")) {
+            operations.save(key, new ByteArrayInputStream(key.getBytes()));
+        }
+
+        assertEquals(4, operations.loadAll().size());
+        assertTrue(server.getRequestCount("ListObjectsV2") >= 2);
+        List<FileObject> folder = operations.listFolder("docs/");
+        assertEquals(3, folder.size());
+
+        BatchResult result = operations.renameFolder("docs/", "archive/");
+
+        assertFalse(result.hasFailures());
+        assertEquals(3, result.getCompleted().size());
+        assertNull(server.getObjectContent(BUCKET_NAME, "docs/a.txt"));
+        assertEquals("docs/sub/c.txt", new String(server.getObjectContent(BUCKET_NAME, "archive/sub/c.txt")));
+        assertEquals(1, server.getRequestCount("DeleteObjects"));
+    }
+
+    @Test
+    public void testThrottledAndFailingRequestsAreRetried() throws Exception {
+        server.setSeed(7);
+        server.setThrottleRate(0.2);
+        server.setErrorRate(0.1);
+
+        for (int index = 0; index < 10; index++) {
+            operations.save("retry/" + index + ".txt", new ByteArrayInputStream(("content " + index).getBytes()));
+        }
+
+        assertEquals(10, server.getObjectCount(BUCKET_NAME));
+        assertEquals("content 3", new String(server.getObjectContent(BUCKET_NAME, "retry/3.txt")));
+    }
+
+    @Test
+    public void testLatencyAndBandwidthSlowDownDownloads() throws Exception {
+        operations.save("slow.bin", new ByteArrayInputStream(randomBytes(512 * 1024)));
+        server.setLatency(Duration.ofMillis(50));
+        server.setDownloadBandwidth(1024 * 1024);
+
+        long start = System.nanoTime();
+        File downloaded = operations.downloadFile(FileObject.builder().setFileName("slow.bin").build());
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        try {
+            assertEquals(512 * 1024, Files.size(downloaded.toPath()));
+            // 512 KiB at 1 MiB/s, less the tokens refilled during the request latency
+            assertTrue(elapsedMillis >= 400, "download took " + elapsedMillis + " ms");
+        } finally {
+            Files.deleteIfExists(downloaded.toPath());
+        }
+    }
+
+    private File write(String name, byte[] content) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.write(path, content);
+        return path.toFile();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
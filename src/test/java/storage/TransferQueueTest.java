@@ -0,0 +1,168 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import storage.db.SQLiteTransferJobRepository;
+import storage.db.TransferJobRepository;
+
+public class TransferQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Connection connection;
+    private TransferJobRepository repository;
+    private FileStoreOperations fileStoreOperations;
+    private TransferQueue transferQueue;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        repository = new SQLiteTransferJobRepository(connection);
+        fileStoreOperations = mock(FileStoreOperations.class);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (transferQueue != null) {
+            transferQueue.close();
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testRunsQueuedUploadsWithBoundedConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(fileStoreOperations.save(any(File.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            File file = invocation.getArgument(0);
+            return FileObject.builder().setFileName(file.getName()).build();
+        });
+        CountDownLatch completed = new CountDownLatch(10);
+        transferQueue = new TransferQueue(repository, fileStoreOperations, 3, TransferOrder.FIFO);
+        transferQueue.setListener(listener(completed, null));
+        transferQueue.start();
+
+        transferQueue.enqueueUploads(files(10), TransferPriority.BULK);
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 3, "max running " + maxRunning.get());
+        assertEquals(0, transferQueue.getQueuedCount());
+        assertEquals(10, repository.countByState(TransferJob.State.DONE));
+    }
+
+    @Test
+    public void testFailedUploadIsRetriedThenMarkedFailed() throws Exception {
+        when(fileStoreOperations.save(any(File.class))).thenThrow(new FileStoreException("access denied"));
+        CountDownLatch failed = new CountDownLatch(1);
+        transferQueue = new TransferQueue(repository, fileStoreOperations, 1, TransferOrder.FIFO);
+        transferQueue.setMaxAttempts(2);
+        transferQueue.setListener(listener(null, failed));
+        transferQueue.start();
+
+        transferQueue.enqueueUploads(files(1), TransferPriority.BULK);
+
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        List<TransferJob> failedJobs = transferQueue.getFailedJobs();
+        assertEquals(1, failedJobs.size());
+        assertEquals(2, failedJobs.get(0).getAttempts());
+        assertEquals("access denied", failedJobs.get(0).getLastError());
+    }
+
+    @Test
+    public void testRuntimeErrorCountsAsFailedAttempt() throws Exception {
+        when(fileStoreOperations.save(any(File.class))).thenThrow(new IllegalStateException("connection pool shut down"));
+        CountDownLatch failed = new CountDownLatch(1);
+        transferQueue = new TransferQueue(repository, fileStoreOperations, 1, TransferOrder.FIFO);
+        transferQueue.setMaxAttempts(2);
+        transferQueue.setListener(listener(null, failed));
+        transferQueue.start();
+
+        transferQueue.enqueueUploads(files(1), TransferPriority.BULK);
+
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        List<TransferJob> failedJobs = transferQueue.getFailedJobs();
+        assertEquals(1, failedJobs.size());
+        assertEquals(2, failedJobs.get(0).getAttempts());
+        assertTrue(failedJobs.get(0).getLastError().contains("connection pool shut down"));
+    }
+
+    @Test
+    public void testStartRemovesCompletedJobs() throws Exception {
+        repository.enqueue(List.of(TransferJob.queued(TransferJob.Type.DOWNLOAD, "old.pdf", null, 10,
+                TransferPriority.BULK, 3)));
+        TransferJob done = repository.claimNext(TransferOrder.FIFO, new Date());
+        repository.markDone(done.getId());
+        transferQueue = new TransferQueue(repository, fileStoreOperations, 1, TransferOrder.FIFO);
+
+        transferQueue.start();
+
+        assertEquals(0, repository.countByState(TransferJob.State.DONE));
+    }
+
+    @Test
+    public void testStartResumesJobsInterruptedByRestart() throws Exception {
+        repository.enqueue(List.of(TransferJob.queued(TransferJob.Type.DOWNLOAD, "report.pdf", null, 10,
+                TransferPriority.INTERACTIVE, 3)));
+        // a previous run claimed the job and stopped before it finished
+        repository.claimNext(TransferOrder.FIFO, new Date());
+        when(fileStoreOperations.downloadFile(any(FileObject.class))).thenReturn(tempDir.resolve("report.pdf").toFile());
+        CountDownLatch completed = new CountDownLatch(1);
+        transferQueue = new TransferQueue(repository, fileStoreOperations, 2, TransferOrder.PRIORITY);
+        transferQueue.setListener(listener(completed, null));
+
+        assertEquals(1, transferQueue.start());
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, repository.countByState(TransferJob.State.DONE));
+    }
+
+    private List<File> files(int count) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            files.add(Files.writeString(tempDir.resolve("file" + index + ".txt"), "content " + index).toFile());
+        }
+        return files;
+    }
+
+    private TransferJobListener listener(CountDownLatch completed, CountDownLatch failed) {
+        return new TransferJobListener() {
+            @Override
+            public void onCompleted(TransferJob job, FileObject fileObject) {
+                if (completed != null) {
+                    completed.countDown();
+                }
+            }
+
+            @Override
+            public void onFailed(TransferJob job, FileStoreException ex) {
+                if (failed != null) {
+                    failed.countDown();
+                }
+            }
+        };
+    }
+}
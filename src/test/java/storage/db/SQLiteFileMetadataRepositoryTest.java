@@ -5,6 +5,7 @@ import java.sql.DriverManager;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -105,6 +106,27 @@ public class SQLiteFileMetadataRepositoryTest {
         assertFalse(repository.exists("delete_me.txt"));
     }
 
+    @Test
+    public void testDeleteAll() {
+        for (String name : List.of("bulk1.txt", "bulk2.txt", "keep.txt")) {
+            repository.saveOrUpdate(FileObject.builder()
+                    .setFileName(name)
+                    .setFilePath("/data/" + name)
+                    .setFileSize(1024L)
+                    .setCheckSum("sum")
+                    .setBucketName("bucket")
+                    .setVersion("1")
+                    .setLastModifiedDate(new Date())
+                    .build());
+        }
+
+        repository.deleteAll(List.of("bulk1.txt", "bulk2.txt"));
+
+        assertFalse(repository.exists("bulk1.txt"));
+        assertFalse(repository.exists("bulk2.txt"));
+        assertTrue(repository.exists("keep.txt"));
+    }
+
     @Test
     public void testUpdateFile() {
         FileObject original = FileObject.builder()
@@ -166,4 +188,28 @@ public class SQLiteFileMetadataRepositoryTest {
         assertTrue(allFiles.stream().anyMatch(f -> f.getFileName().equals("file1.txt")));
         assertTrue(allFiles.stream().anyMatch(f -> f.getFileName().equals("file2.txt")));
     }
+
+    @Test
+    public void testRenameAllMovesEntriesAndReplacesTargets() {
+        Date now = new Date();
+        repository.saveOrUpdate(FileObject.builder().setFileName("docs/a.txt").setFilePath("/data/a.txt")
+                .setFileSize(10L).setCheckSum("a").setBucketName("bucket").setLastModifiedDate(now).build());
+        repository.saveOrUpdate(FileObject.builder().setFileName("archive/a.txt").setFilePath("/old/a.txt")
+                .setFileSize(5L).setCheckSum("stale").setBucketName("bucket").setLastModifiedDate(now).build());
+
+        FileObject moved = FileObject.builder().setFileName("archive/a.txt").setCheckSum("a2")
+                .setBucketName("bucket").setVersion("v2").setLastModifiedDate(now).build();
+        FileObject untracked = FileObject.builder().setFileName("archive/b.txt").setCheckSum("b")
+                .setBucketName("bucket").setLastModifiedDate(now).build();
+        repository.renameAll(Map.of("docs/a.txt", moved, "docs/b.txt", untracked));
+
+        assertFalse(repository.exists("docs/a.txt"));
+        assertFalse(repository.exists("archive/b.txt"));
+        FileObject found = repository.findByName("archive/a.txt");
+        assertNotNull(found);
+        assertEquals("/data/a.txt", found.getFilePath());
+        assertEquals("a2", found.getChecksum());
+        assertEquals("v2", found.getVersion());
+        assertEquals(1, repository.findAll().size());
+    }
 }
@@ -0,0 +1,61 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import storage.PartManifest;
+
+/**
+ * Unit tests for SQLitePartManifestRepository.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SQLitePartManifestRepositoryTest {
+
+    private Connection connection;
+    private PartManifestRepository repository;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        repository = new SQLitePartManifestRepository(connection);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        connection.createStatement().execute("DELETE FROM part_manifest");
+        connection.createStatement().execute("DELETE FROM part_manifest_part");
+    }
+
+    @Test
+    public void testSaveReplacesPreviousManifest() {
+        repository.saveManifest(new PartManifest("bucket", "disk.img", "etag-3", 20, 8, List.of("a", "b", "c")));
+        repository.saveManifest(new PartManifest("bucket", "disk.img", "etag-2", 12, 8, List.of("a", "d")));
+
+        PartManifest found = repository.findManifest("bucket", "disk.img");
+        assertNotNull(found);
+        assertEquals("etag-2", found.getETag());
+        assertEquals(List.of("a", "d"), found.getPartHashes());
+        assertEquals(4, found.getPartLength(2));
+        assertNull(found.getPartHash(3));
+    }
+
+    @Test
+    public void testDeleteManifestRemovesParts() throws Exception {
+        repository.saveManifest(new PartManifest("bucket", "disk.img", "etag-1", 8, 8, List.of("a")));
+
+        repository.deleteManifest("bucket", "disk.img");
+
+        assertNull(repository.findManifest("bucket", "disk.img"));
+        var rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM part_manifest_part");
+        assertEquals(0, rs.getInt(1));
+    }
+}
@@ -0,0 +1,98 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import storage.TransferJob;
+import storage.TransferOrder;
+import storage.TransferPriority;
+
+/**
+ * Unit tests for SQLiteTransferJobRepository.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SQLiteTransferJobRepositoryTest {
+
+    private Connection connection;
+    private TransferJobRepository repository;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        repository = new SQLiteTransferJobRepository(connection);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        connection.createStatement().execute("DELETE FROM transfer_job");
+    }
+
+    @Test
+    public void testClaimFollowsOrderAndMarksRunning() {
+        List<TransferJob> jobs = repository.enqueue(List.of(
+                upload("big.iso", 5000, TransferPriority.BULK),
+                upload("small.txt", 10, TransferPriority.BULK),
+                upload("report.pdf", 700, TransferPriority.INTERACTIVE)));
+        assertNotEquals(jobs.get(0).getId(), jobs.get(1).getId());
+
+        TransferJob claimed = repository.claimNext(TransferOrder.PRIORITY, new Date());
+        assertEquals("report.pdf", claimed.getKey());
+        assertEquals(TransferJob.State.RUNNING, claimed.getState());
+        assertEquals("small.txt", repository.claimNext(TransferOrder.SMALLEST_FIRST, new Date()).getKey());
+        assertEquals("big.iso", repository.claimNext(TransferOrder.FIFO, new Date()).getKey());
+        assertNull(repository.claimNext(TransferOrder.FIFO, new Date()));
+        assertEquals(3, repository.countByState(TransferJob.State.RUNNING));
+    }
+
+    @Test
+    public void testRetryIsNotClaimedBeforeDue() {
+        TransferJob job = repository.enqueue(List.of(upload("a.txt", 1, TransferPriority.BULK))).get(0);
+        repository.claimNext(TransferOrder.FIFO, new Date());
+
+        Date due = new Date(System.currentTimeMillis() + 60_000);
+        repository.markRetry(job.getId(), 1, "timeout", due);
+
+        assertNull(repository.claimNext(TransferOrder.FIFO, new Date()));
+        TransferJob retried = repository.claimNext(TransferOrder.FIFO, new Date(due.getTime() + 1));
+        assertEquals(1, retried.getAttempts());
+        assertEquals("timeout", retried.getLastError());
+    }
+
+    @Test
+    public void testRequeueRunningAfterRestart() {
+        repository.enqueue(List.of(upload("a.txt", 1, TransferPriority.BULK), upload("b.txt", 1, TransferPriority.BULK)));
+        TransferJob done = repository.claimNext(TransferOrder.FIFO, new Date());
+        repository.markDone(done.getId());
+        repository.claimNext(TransferOrder.FIFO, new Date());
+
+        assertEquals(1, repository.requeueRunning());
+        assertEquals(1, repository.countByState(TransferJob.State.QUEUED));
+        assertEquals(1, repository.deleteByState(TransferJob.State.DONE));
+    }
+
+    @Test
+    public void testMarkFailed() {
+        TransferJob job = repository.enqueue(List.of(upload("a.txt", 1, TransferPriority.BULK))).get(0);
+        repository.claimNext(TransferOrder.FIFO, new Date());
+        repository.markFailed(job.getId(), 3, "access denied");
+
+        List<TransferJob> failed = repository.findByState(TransferJob.State.FAILED);
+        assertEquals(1, failed.size());
+        assertEquals(3, failed.get(0).getAttempts());
+        assertEquals("access denied", failed.get(0).getLastError());
+    }
+
+    private TransferJob upload(String name, long size, TransferPriority priority) {
+        return TransferJob.queued(TransferJob.Type.UPLOAD, name, "/data/" + name, size, priority, 3);
+    }
+}
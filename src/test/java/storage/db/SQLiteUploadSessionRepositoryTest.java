@@ -0,0 +1,81 @@
+package storage.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import storage.UploadSession;
+
+/**
+ * Unit tests for SQLiteUploadSessionRepository.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SQLiteUploadSessionRepositoryTest {
+
+    private Connection connection;
+    private UploadSessionRepository repository;
+
+    @BeforeAll
+    public void setup() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        repository = new SQLiteUploadSessionRepository(connection);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        connection.createStatement().execute("DELETE FROM upload_session");
+        connection.createStatement().execute("DELETE FROM upload_session_part");
+    }
+
+    @Test
+    public void testSaveAndFindSessionWithParts() {
+        repository.saveSession(session("upload-1", new Date()));
+        repository.savePart("upload-1", 2, "etag-2");
+        repository.savePart("upload-1", 1, "etag-1");
+
+        UploadSession found = repository.findSession("bucket", "big.iso", "/data/big.iso");
+        assertNotNull(found);
+        assertEquals("upload-1", found.getUploadId());
+        assertEquals(8L * 1024 * 1024, found.getPartSize());
+        assertEquals(Map.of(1, "etag-1", 2, "etag-2"), repository.findParts("upload-1"));
+    }
+
+    @Test
+    public void testDeleteSessionRemovesParts() {
+        repository.saveSession(session("upload-2", new Date()));
+        repository.savePart("upload-2", 1, "etag-1");
+
+        repository.deleteSession("upload-2");
+
+        assertNull(repository.findSession("bucket", "big.iso", "/data/big.iso"));
+        assertTrue(repository.findParts("upload-2").isEmpty());
+    }
+
+    @Test
+    public void testFindSessionsCreatedBefore() {
+        long now = System.currentTimeMillis();
+        repository.saveSession(session("old-upload", new Date(now - 10 * 24 * 3600 * 1000L)));
+        repository.saveSession(session("new-upload", new Date(now)));
+
+        List<UploadSession> stale = repository.findSessionsCreatedBefore(new Date(now - 24 * 3600 * 1000L));
+
+        assertEquals(1, stale.size());
+        assertEquals("old-upload", stale.get(0).getUploadId());
+    }
+
+    private UploadSession session(String uploadId, Date createdDate) {
+        return new UploadSession(uploadId, "bucket", "big.iso", "/data/big.iso",
+                40L * 1024 * 1024, 1000L, 8L * 1024 * 1024, createdDate);
+    }
+}
@@ -0,0 +1,21 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ChecksumUtilTest {
+
+    @Test
+    public void testETagMatchesIgnoresQuotesAndCase() {
+        assertTrue(ChecksumUtil.eTagMatches("\"ABC123-2\"", "abc123-2"));
+        assertFalse(ChecksumUtil.eTagMatches("abc123", null));
+        assertFalse(ChecksumUtil.eTagMatches("abc123", "abc124"));
+    }
+
+    @Test
+    public void testNormalizeETagStripsQuotes() {
+        assertEquals("abc123-2", ChecksumUtil.normalizeETag("\"ABC123-2\""));
+    }
+}
@@ -4,7 +4,11 @@ import java.io.File;
 import java.io.FileWriter;
 
 import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import storage.FileObject;
 
 public class FileUtilTest {
 
@@ -25,4 +29,12 @@ public class FileUtilTest {
         }
     }
 
+    @Test
+    public void testToFileObjectCarriesChecksums() throws Exception {
+        FileObject fileObject = FileUtil.toFileObject(tempFile);
+
+        assertEquals(tempFile.getName(), fileObject.getFileName());
+        assertEquals(tempFile.length(), fileObject.getFileSize());
+        assertEquals("b3e563c3d42e8594d5c935434518d2bc", fileObject.getChecksum());
+    }
 }